@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.ComponentScan.Filter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * The same beans as {@link ExampleApplication}, minus the test doubles in
+ * edu.ucsb.cs156.example.testconfig, which are on the classpath whenever the
+ * benchmarks are (they would otherwise clash with the real services).
+ */
+@Configuration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackages = "edu.ucsb.cs156.example")
+@ComponentScan(basePackages = "edu.ucsb.cs156.example", excludeFilters = {
+    @Filter(type = FilterType.CUSTOM, classes = { TypeExcludeFilter.class, AutoConfigurationExcludeFilter.class }),
+    @Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ExampleApplication.class),
+    @Filter(type = FilterType.REGEX, pattern = "edu\\.ucsb\\.cs156\\.example\\.testconfig\\..*") })
+public class BenchmarkApplication {
+}
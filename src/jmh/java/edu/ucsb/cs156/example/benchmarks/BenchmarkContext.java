@@ -0,0 +1,46 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Boots the application for a benchmark trial.  The embedded server listens on
+ * a random port: security (and its OAuth client registration) is only wired
+ * up for servlet applications, so a non-web context would not start.
+ *
+ * By default this uses a private in-memory H2 database.  To measure against
+ * a real server, set BENCHMARK_JDBC_URL (and BENCHMARK_JDBC_USERNAME /
+ * BENCHMARK_JDBC_PASSWORD); the Hibernate dialect is then production's
+ * PostgreSQL one unless BENCHMARK_JDBC_DIALECT names another.  Environment
+ * variables are inherited by the JVMs that JMH forks.
+ */
+public final class BenchmarkContext {
+
+  private BenchmarkContext() {
+  }
+
+  public static ConfigurableApplicationContext start(String name, String... extraArgs) {
+    List<String> args = new ArrayList<>(List.of(
+        "--spring.datasource.url=" + Optional.ofNullable(System.getenv("BENCHMARK_JDBC_URL"))
+            .orElse("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1"),
+        "--spring.datasource.username=" + Optional.ofNullable(System.getenv("BENCHMARK_JDBC_USERNAME")).orElse("sa"),
+        "--spring.datasource.password=" + Optional.ofNullable(System.getenv("BENCHMARK_JDBC_PASSWORD")).orElse(""),
+        "--server.port=0",
+        "--spring.main.banner-mode=off",
+        "--logging.level.root=WARN",
+        "--logging.level.sql=WARN",
+        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"));
+    if (System.getenv("BENCHMARK_JDBC_URL") != null) {
+      // the development profile is active, and it sets H2's dialect
+      args.add("--spring.jpa.database-platform=" + Optional.ofNullable(System.getenv("BENCHMARK_JDBC_DIALECT"))
+          .orElse("org.hibernate.dialect.PostgreSQL9Dialect"));
+    }
+    args.addAll(List.of(extraArgs));
+    return new SpringApplicationBuilder(BenchmarkApplication.class)
+        .run(args.toArray(String[]::new));
+  }
+}
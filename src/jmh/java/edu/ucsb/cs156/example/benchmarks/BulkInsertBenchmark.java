@@ -0,0 +1,110 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.Book;
+import edu.ucsb.cs156.example.repositories.BookRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Inserts {@code rows} books per operation in one transaction, flushing and
+ * clearing every 50 rows the way ApiController.saveInBatches does.
+ *
+ * sequenceIds uses {@link Book} (pooled-lo sequence, so Hibernate can send
+ * each flush as one JDBC batch); identityIds uses {@link IdentityBook}, where
+ * Hibernate has to execute every INSERT on its own to read back the key.
+ * Report ops/s multiplied by rows for rows/s.
+ *
+ * Run it against PostgreSQL (BENCHMARK_JDBC_URL, see BenchmarkContext).  On
+ * the default in-process H2 a batch saves no round trip, and identityIds
+ * comes out ahead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+  private static final int FLUSH_EVERY = 50;
+
+  @Param({ "1000" })
+  int rows;
+
+  ConfigurableApplicationContext context;
+  BookRepository bookRepository;
+  IdentityBookRepository identityBookRepository;
+  EntityManager entityManager;
+  TransactionTemplate transactionTemplate;
+  JdbcTemplate jdbcTemplate;
+
+  @Setup(Level.Trial)
+  public void start() {
+    // Book is in the second-level cache and IdentityBook is not; with the
+    // cache on, sequenceIds would also be timing 1000 cache puts
+    context = BenchmarkContext.start("bulkinsert",
+        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false");
+    bookRepository = context.getBean(BookRepository.class);
+    identityBookRepository = context.getBean(IdentityBookRepository.class);
+    entityManager = context.getBean(EntityManager.class);
+    transactionTemplate = context.getBean(TransactionTemplate.class);
+    jdbcTemplate = context.getBean(JdbcTemplate.class);
+  }
+
+  @TearDown(Level.Iteration)
+  public void truncate() {
+    jdbcTemplate.execute("DELETE FROM books");
+    jdbcTemplate.execute("DELETE FROM identity_books");
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public int sequenceIds() {
+    return insert(bookRepository, i -> Book.builder()
+        .title("Title " + i).author("Author " + i).publicdate("2023/01/01").build());
+  }
+
+  @Benchmark
+  public int identityIds() {
+    return insert(identityBookRepository, i -> IdentityBook.builder()
+        .title("Title " + i).author("Author " + i).publicdate("2023/01/01").build());
+  }
+
+  private <T> int insert(CrudRepository<T, Long> repository, IntFunction<T> row) {
+    return transactionTemplate.execute(status -> {
+      for (int i = 1; i <= rows; i++) {
+        repository.save(row.apply(i));
+        if (i % FLUSH_EVERY == 0) {
+          entityManager.flush();
+          entityManager.clear();
+        }
+      }
+      return rows;
+    });
+  }
+}
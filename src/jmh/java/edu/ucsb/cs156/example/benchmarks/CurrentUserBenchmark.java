@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.services.CurrentUserServiceImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CurrentUserServiceImpl#getCurrentUser()} for a logged in Google
+ * user, the call behind /api/currentUser and every role check that reads
+ * the user.  With {@code cached=false} the user cache is emptied before each
+ * call, so every call also reads the users row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CurrentUserBenchmark {
+
+  @Param({ "true", "false" })
+  boolean cached;
+
+  ConfigurableApplicationContext context;
+  CurrentUserServiceImpl currentUserService;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start("currentuser");
+    currentUserService = context.getBean(CurrentUserServiceImpl.class);
+
+    // JMH may call setup and the benchmark methods on different threads
+    SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+    DefaultOAuth2User principal = new DefaultOAuth2User(
+        List.of(new SimpleGrantedAuthority("ROLE_USER")),
+        Map.of("sub", "1234", "email", "cgaucho@ucsb.edu", "email_verified", true, "name", "Chris Gaucho"),
+        "sub");
+    SecurityContextHolder.getContext().setAuthentication(
+        new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+    currentUserService.login(principal.getAttributes());
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    SecurityContextHolder.clearContext();
+    context.close();
+  }
+
+  @Benchmark
+  public CurrentUser getCurrentUser() {
+    if (!cached) {
+      currentUserService.invalidateAllUsers();
+    }
+    return currentUserService.getCurrentUser();
+  }
+}
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+
+/**
+ * Same shape as {@link edu.ucsb.cs156.example.entities.Book}, but with the
+ * IDENTITY id generation every entity used before moving to sequences.
+ * Only exists on the benchmark classpath, as the baseline for
+ * {@link BulkInsertBenchmark}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "identity_books")
+public class IdentityBook {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+  private String title;
+  private String author;
+  private String publicdate;
+}
@@ -0,0 +1,9 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IdentityBookRepository extends CrudRepository<IdentityBook, Long> {
+
+}
@@ -0,0 +1,88 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.aop.LoggingAspect;
+import edu.ucsb.cs156.example.controllers.SystemInfoController;
+import edu.ucsb.cs156.example.models.SystemInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of {@link LoggingAspect} on one cheap handler,
+ * SystemInfoController.getSystemInfo: called directly, and through a proxy
+ * that applies only that aspect (so method security is out of the picture).
+ * The difference between the two is the advice overhead per request.
+ *
+ * Logging runs at WARN, as in BenchmarkContext, so this measures the timer,
+ * gauge and request lookup rather than console output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingAspectBenchmark {
+
+  ConfigurableApplicationContext context;
+  SystemInfoController direct;
+  SystemInfoController advised;
+
+  @State(Scope.Thread)
+  public static class BoundRequest {
+    @Setup(Level.Trial)
+    public void bind() {
+      RequestContextHolder.setRequestAttributes(
+          new ServletRequestAttributes(new MockHttpServletRequest("GET", "/api/systemInfo")));
+    }
+
+    @TearDown(Level.Trial)
+    public void unbind() {
+      RequestContextHolder.resetRequestAttributes();
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start("loggingaspect");
+    direct = AopTestUtils.getUltimateTargetObject(context.getBean(SystemInfoController.class));
+
+    AspectJProxyFactory factory = new AspectJProxyFactory(direct);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(context.getBean(LoggingAspect.class));
+    advised = factory.getProxy();
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public SystemInfo direct(BoundRequest request) {
+    return direct.getSystemInfo();
+  }
+
+  @Benchmark
+  public SystemInfo advised(BoundRequest request) {
+    return advised.getSystemInfo();
+  }
+}
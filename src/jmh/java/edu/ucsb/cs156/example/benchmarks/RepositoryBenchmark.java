@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.School;
+import edu.ucsb.cs156.example.repositories.SchoolRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The repository calls behind the School endpoints, through Spring Data and
+ * Hibernate, against a table of {@code rows} schools.
+ *
+ * findById is usually answered by the second-level cache once warmed up;
+ * findAll always queries (and hydrates every row).  save inserts a new row,
+ * and the rows it adds are deleted after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+  @Param({ "1000" })
+  int rows;
+
+  ConfigurableApplicationContext context;
+  SchoolRepository schoolRepository;
+  JdbcTemplate jdbcTemplate;
+  long[] ids;
+  long lastSeededId;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContext.start("repository");
+    schoolRepository = context.getBean(SchoolRepository.class);
+    jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+    List<School> seeded = IntStream.range(0, rows).mapToObj(RepositoryBenchmark::school).toList();
+    ids = StreamSupport.stream(schoolRepository.saveAll(seeded).spliterator(), false)
+        .mapToLong(School::getId)
+        .toArray();
+    lastSeededId = LongStream.of(ids).max().orElse(0);
+  }
+
+  @TearDown(Level.Iteration)
+  public void removeSavedRows() {
+    jdbcTemplate.update("DELETE FROM schools WHERE id > ?", lastSeededId);
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public Iterable<School> findAll() {
+    return schoolRepository.findAll();
+  }
+
+  @Benchmark
+  public School findById() {
+    long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    return schoolRepository.findById(id).orElseThrow();
+  }
+
+  @Benchmark
+  public School save() {
+    return schoolRepository.save(school(rows));
+  }
+
+  private static School school(int i) {
+    return School.builder()
+        .name("School " + i)
+        .address(i + " Main St, Santa Barbara, CA")
+        .description("Description " + i)
+        .build();
+  }
+}
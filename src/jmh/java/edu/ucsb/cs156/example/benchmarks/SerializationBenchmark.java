@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.AmusementPark;
+import edu.ucsb.cs156.example.entities.Book;
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.entities.IceCreamShop;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.School;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Serializes a list of {@code rows} entities to JSON bytes, as the /all
+ * endpoints do on a response cache miss.  No application context is needed:
+ * the ObjectMapper comes from the same builder Spring Boot configures its
+ * own from (so UCSBDate's LocalDateTime goes through the JSR-310 module).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+  @Param({ "schools", "books", "games", "amusementparks", "icecreamshops", "restaurants", "ucsbdates",
+      "ucsbdiningcommons" })
+  String entity;
+
+  @Param({ "100", "1000" })
+  int rows;
+
+  ObjectMapper objectMapper;
+  List<?> list;
+
+  @Setup(Level.Trial)
+  public void build() {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    list = IntStream.range(0, rows).mapToObj(row(entity)).toList();
+  }
+
+  @Benchmark
+  public byte[] writeValueAsBytes() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(list);
+  }
+
+  private static IntFunction<Object> row(String entity) {
+    return switch (entity) {
+      case "schools" -> i -> School.builder()
+          .id(i).name("School " + i).address(i + " Main St, Santa Barbara, CA").description("Description " + i).build();
+      case "books" -> i -> Book.builder()
+          .id(i).title("Title " + i).author("Author " + i).publicdate("2023/01/01").build();
+      case "games" -> i -> Game.builder()
+          .id(i).name("Game " + i).creator("Creator " + i).genre("Puzzle").build();
+      case "amusementparks" -> i -> AmusementPark.builder()
+          .id(i).name("Park " + i).address(i + " Main St, Anaheim, CA").description("Description " + i).build();
+      case "icecreamshops" -> i -> IceCreamShop.builder()
+          .id(i).name("Shop " + i).address(i + " State St, Santa Barbara, CA").description("Description " + i).build();
+      case "restaurants" -> i -> Restaurant.builder()
+          .id(i).name("Restaurant " + i).address(i + " State St, Santa Barbara, CA").specialty("Tacos").build();
+      case "ucsbdates" -> i -> UCSBDate.builder()
+          .id(i).quarterYYYYQ("20231").name("Date " + i).localDateTime(LocalDateTime.of(2023, 1, 1, 0, 0).plusHours(i))
+          .build();
+      case "ucsbdiningcommons" -> i -> UCSBDiningCommons.builder()
+          .code("commons" + i).name("Commons " + i).hasSackMeal(i % 2 == 0).hasTakeOutMeal(true).hasDiningCam(false)
+          .latitude(34.41 + i * 1e-5).longitude(-119.85 - i * 1e-5).build();
+      default -> throw new IllegalArgumentException("unknown entity " + entity);
+    };
+  }
+}
@@ -0,0 +1,46 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Creates one sequence per table for the pooled-lo id generators declared on
+ * the entities.  Each sequence starts just above the largest id already in
+ * its table, so rows created under the old IDENTITY columns are never
+ * reused.  Written in Java rather than SQL because H2 and PostgreSQL do not
+ * share a syntax for starting a sequence at a computed value.
+ *
+ * The increment must match allocationSize on the entities' @SequenceGenerator.
+ */
+public class V5__Use_pooled_id_sequences extends BaseJavaMigration {
+  static final int ALLOCATION_SIZE = 50;
+
+  static final Map<String, String> SEQUENCES = Map.of(
+      "users", "users_seq",
+      "amusement_parks", "amusement_parks_seq",
+      "books", "books_seq",
+      "games", "games_seq",
+      "icecreamshop", "icecreamshop_seq",
+      "restaurant", "restaurant_seq",
+      "schools", "schools_seq",
+      "ucsbdates", "ucsbdates_seq");
+
+  @Override
+  public void migrate(Context context) throws Exception {
+    try (Statement statement = context.getConnection().createStatement()) {
+      for (Map.Entry<String, String> entry : SEQUENCES.entrySet()) {
+        long maxId;
+        try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + entry.getKey())) {
+          rs.next();
+          maxId = rs.getLong(1);
+        }
+        statement.execute("CREATE SEQUENCE %s START WITH %d INCREMENT BY %d"
+            .formatted(entry.getValue(), maxId + 1, ALLOCATION_SIZE));
+      }
+    }
+  }
+}
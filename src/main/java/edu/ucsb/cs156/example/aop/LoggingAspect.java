@@ -1,20 +1,40 @@
 package edu.ucsb.cs156.example.aop;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.servlet.http.HttpServletRequest;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Logs each controller call and records, per handler method:
+ * <ul>
+ * <li>{@code app.controller.requests}, a timer with a latency histogram,</li>
+ * <li>{@code app.controller.errors}, a count of calls that threw, by
+ * exception type,</li>
+ * <li>{@code app.controller.inflight}, a gauge of calls in progress.</li>
+ * </ul>
+ * All are tagged with the controller class and handler method, and can be
+ * read (by admins) from /actuator/metrics.
+ */
 @Slf4j
 @Aspect
 @Component
@@ -29,19 +49,66 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
-
-  @Before(pointcut)
-  public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+  private static final Set<String> stoplist = Set.of(
+      "edu.ucsb.cs156.example.controllers.FrontendProxyController");
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  // meters are looked up once per handler rather than once per call
+  private final Map<Method, HandlerMeters> meters = new ConcurrentHashMap<>();
+
+  private class HandlerMeters {
+    final Tags tags;
+    final Timer timer;
+    final AtomicInteger inFlight = new AtomicInteger();
+
+    HandlerMeters(Method method) {
+      tags = Tags.of("controller", method.getDeclaringClass().getSimpleName(), "handler", method.getName());
+      timer = Timer.builder("app.controller.requests")
+          .description("Time spent in controller handler methods")
+          .tags(tags)
+          .publishPercentileHistogram()
+          .register(meterRegistry);
+      Gauge.builder("app.controller.inflight", inFlight, AtomicInteger::get)
+          .description("Controller handler calls in progress")
+          .tags(tags)
+          .register(meterRegistry);
+    }
+
+    Counter errors(Throwable e) {
+      return Counter.builder("app.controller.errors")
+          .description("Controller handler calls that threw an exception")
+          .tags(tags.and("exception", e.getClass().getSimpleName()))
+          .register(meterRegistry);
+    }
+  }
+
+  @Around(pointcut)
+  public Object timeControllers(ProceedingJoinPoint joinPoint) throws Throwable {
+    String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
+    if (stoplist.contains(declaringTypeName)) {
+      return joinPoint.proceed();
+    }
+    if (log.isInfoEnabled()) {
+      getCurrentHttpRequest().ifPresent(
+          request -> log.info("===== {} {} handled by {} in {}", request.getMethod(), request.getRequestURI(),
+              joinPoint.getSignature().getName(), declaringTypeName));
+    }
+
+    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    HandlerMeters handler = meters.computeIfAbsent(method, HandlerMeters::new);
+    handler.inFlight.incrementAndGet();
+    Timer.Sample sample = Timer.start(meterRegistry);
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable e) {
+      handler.errors(e).increment();
+      throw e;
+    } finally {
+      sample.stop(handler.timer);
+      handler.inFlight.decrementAndGet();
+    }
   }
 
   private static Optional<HttpServletRequest> getCurrentHttpRequest() {
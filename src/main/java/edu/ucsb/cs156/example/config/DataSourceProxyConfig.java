@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * Wraps the application's DataSource in a datasource-proxy, so that every
+ * JDBC statement is seen by {@link QueryCountingListener}: it counts and
+ * times the statements of each request and logs slow ones.
+ */
+@Configuration
+public class DataSourceProxyConfig {
+
+  @Bean
+  public static BeanPostProcessor dataSourceProxyBeanPostProcessor(Environment environment) {
+    long slowStatementMillis = environment.getProperty("app.sql.slowStatementMillis", Long.class, 200L);
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+          return ProxyDataSourceBuilder.create(dataSource)
+              .name(beanName)
+              .listener(new QueryCountingListener(slowStatementMillis))
+              .build();
+        }
+        return bean;
+      }
+    };
+  }
+}
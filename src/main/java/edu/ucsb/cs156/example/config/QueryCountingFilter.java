@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Counts the SQL statements each /api request runs, and how long they
+ * take, by endpoint:
+ * <ul>
+ * <li>{@code app.sql.statements}, a distribution of statements per
+ * request,</li>
+ * <li>{@code app.sql.time}, a timer of time spent in the database per
+ * request.</li>
+ * </ul>
+ * The count is also left in the {@value #STATEMENTS_ATTRIBUTE} request
+ * attribute, which is what the query budget tests read.
+ */
+@Slf4j
+@Component
+public class QueryCountingFilter extends OncePerRequestFilter {
+
+  public static final String STATEMENTS_ATTRIBUTE = "app.sql.statements";
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith("/api/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    QueryCountingListener.start();
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      QueryCountingListener.Tally tally = QueryCountingListener.stop();
+      request.setAttribute(STATEMENTS_ATTRIBUTE, tally.getStatements());
+
+      // the mapping pattern, not the URI, so ids do not become tags
+      String endpoint = request.getMethod() + " " + Optional
+          .ofNullable(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE))
+          .orElse("unmapped");
+      DistributionSummary.builder("app.sql.statements")
+          .description("SQL statements run per request")
+          .tag("endpoint", endpoint)
+          .register(meterRegistry)
+          .record(tally.getStatements());
+      Timer.builder("app.sql.time")
+          .description("Time spent running SQL statements per request")
+          .tag("endpoint", endpoint)
+          .register(meterRegistry)
+          .record(tally.getMillis(), TimeUnit.MILLISECONDS);
+      log.debug("{} {} ran {} statements in {} ms", request.getMethod(), request.getRequestURI(),
+          tally.getStatements(), tally.getMillis());
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Counts and times the JDBC statements run on the current thread between
+ * {@link #start()} and {@link #stop()} (QueryCountingFilter brackets each
+ * request with these), and logs, with its endpoint, any statement slower
+ * than the threshold.
+ *
+ * A batch counts as one statement: it is one round trip to the database.
+ */
+@Slf4j
+public class QueryCountingListener implements QueryExecutionListener {
+
+  @Getter
+  public static class Tally {
+    private int statements;
+    private long millis;
+  }
+
+  private static final ThreadLocal<Tally> current = new ThreadLocal<>();
+
+  private final long slowStatementMillis;
+
+  public QueryCountingListener(long slowStatementMillis) {
+    this.slowStatementMillis = slowStatementMillis;
+  }
+
+  /** Start counting the statements run on this thread. */
+  public static void start() {
+    current.set(new Tally());
+  }
+
+  /** Stop counting on this thread, and return what was counted. */
+  public static Tally stop() {
+    Tally tally = Optional.ofNullable(current.get()).orElseGet(Tally::new);
+    current.remove();
+    return tally;
+  }
+
+  @Override
+  public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+  }
+
+  @Override
+  public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    Tally tally = current.get();
+    if (tally != null) {
+      tally.statements++;
+      tally.millis += execInfo.getElapsedTime();
+    }
+    if (execInfo.getElapsedTime() >= slowStatementMillis && log.isWarnEnabled()) {
+      log.warn("slow statement ({} ms) in {}: {}", execInfo.getElapsedTime(), endpoint(),
+          queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; ")));
+    }
+  }
+
+  private static String endpoint() {
+    return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
+        .filter(ServletRequestAttributes.class::isInstance)
+        .map(ServletRequestAttributes.class::cast)
+        .map(ServletRequestAttributes::getRequest)
+        .map(QueryCountingListener::describe)
+        .orElse("(no request)");
+  }
+
+  private static String describe(HttpServletRequest request) {
+    return request.getMethod() + " " + request.getRequestURI();
+  }
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import edu.ucsb.cs156.example.services.SyntheticDataService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fills the database with generated rows at startup when
+ * app.syntheticData.rows is set, e.g.
+ *     mvn spring-boot:run -Dspring-boot.run.arguments="--app.syntheticData.rows=1000000 --app.syntheticData.seed=7"
+ * The rows are added to every entity table; see {@link SyntheticDataService}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty("app.syntheticData.rows")
+public class SyntheticDataConfig {
+
+  @Bean
+  public ApplicationRunner syntheticDataRunner(SyntheticDataService syntheticDataService,
+      @Value("${app.syntheticData.rows}") long rows,
+      @Value("${app.syntheticData.seed:1}") long seed) {
+    return args -> log.info("generated rows (seed {}): {}", seed, syntheticDataService.generate(rows, seed));
+  }
+}
@@ -2,24 +2,39 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.AmusementPark;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.AmusementParkRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 @Api(description = "AmusementParks")
 @RequestMapping("/api/amusementparks")
 @RestController
@@ -28,19 +43,55 @@ public class AmusementParksController extends ApiController{
     @Autowired
     AmusementParkRepository amusementParksRepository;
 
-    @ApiOperation(value = "List all amusement parks")
+    @Autowired
+    EntityPatchService entityPatchService;
+
+    @ApiOperation(value = "List all amusement parks", response = AmusementPark.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<AmusementPark> allAmusementParkss() {
-        Iterable<AmusementPark> amusementParks = amusementParksRepository.findAll();
-        return amusementParks;
+    public ResponseEntity<byte[]> allAmusementParkss(ServletWebRequest request) throws JsonProcessingException {
+        return cachedListing(AmusementPark.class, request, () -> amusementParksRepository.findAll());
+    }
+
+    @ApiOperation(value = "List amusement parks one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<AmusementPark, Long> pageOfAmusementParks(
+            @ApiParam("only return amusement parks with an id greater than this cursor") @RequestParam(defaultValue = "0") long after,
+            @ApiParam("maximum number of amusement parks to return") @RequestParam int limit) {
+        List<AmusementPark> page = amusementParksRepository.findByIdGreaterThanOrderByIdAsc(after, keysetPageable(limit));
+        return keysetPage(page, limit, AmusementPark::getId);
+    }
+
+    @ApiOperation(value = "Get many amusement parks in one query; results keep the order of the ids and list the ids that were not found")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/batch")
+    public BatchResult<AmusementPark, Long> batchOfAmusementParks(
+            @ApiParam("comma separated ids") @RequestParam List<Long> ids) {
+        return batch(ids, amusementParksRepository::findAllById, AmusementPark::getId);
+    }
+
+    @ApiOperation(value = "Export all amusement parks as newline delimited JSON, streamed from a database cursor")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/export")
+    public void exportAmusementParks(
+            @ApiParam("export format (only ndjson is supported)") @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        writeNdjson(format, () -> amusementParksRepository.streamAllByOrderByIdAsc(), response);
     }
 
     @ApiOperation(value = "Get a single amusementParks")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public AmusementPark getById(
-            @ApiParam("id") @RequestParam Long id) {
+            @ApiParam("id") @RequestParam Long id,
+            ServletWebRequest request) {
+        if (notModified(AmusementPark.class, request)) {
+            return null;
+        }
+
         AmusementPark amusementParks = amusementParksRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(AmusementPark.class, id));
 
@@ -63,22 +114,58 @@ public class AmusementParksController extends ApiController{
         amusementParks.setDescription(description);
 
         AmusementPark savedAmusementParks = amusementParksRepository.save(amusementParks);
+        markModified(AmusementPark.class);
 
         return savedAmusementParks;
     }
 
+    @ApiOperation(value = "Create many amusement parks in one transaction from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<AmusementPark> bulkPostAmusementParks(
+            @RequestBody List<AmusementPark> incoming) {
+        incoming.forEach(amusementPark -> amusementPark.setId(0));
+        List<AmusementPark> saved = saveInBatches(amusementParksRepository, incoming);
+        markModified(AmusementPark.class);
+        return saved;
+    }
+
+    @ApiOperation(value = "Create many amusement parks in one transaction from CSV with a header row (name,address,description)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = CSV)
+    public List<AmusementPark> bulkPostAmusementParksCsv(
+            @RequestBody String csv) {
+        return bulkPostAmusementParks(readCsv(csv, AmusementPark.class));
+    }
+
     @ApiOperation(value = "Delete a AmusementPark")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteAmusementParks(
             @ApiParam("id") @RequestParam Long id) {
-        AmusementPark amusementParks = amusementParksRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(AmusementPark.class, id));
-
-        amusementParksRepository.delete(amusementParks);
+        if (amusementParksRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(AmusementPark.class, id);
+        }
+        markModified(AmusementPark.class);
         return genericMessage("AmusementPark with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many amusement parks by id in one transaction")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @DeleteMapping("/bulk")
+    public Object bulkDeleteAmusementParks(
+            @ApiParam("ids") @RequestParam List<Long> ids) {
+        int deleted = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            deleted += amusementParksRepository.deleteRowsByIds(chunk);
+        }
+        markModified(AmusementPark.class);
+        return genericMessage("%d amusement parks deleted".formatted(deleted));
+    }
+
     @ApiOperation(value = "Update a single amusementParks")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -86,16 +173,27 @@ public class AmusementParksController extends ApiController{
             @ApiParam("id") @RequestParam Long id,
             @RequestBody @Valid AmusementPark incoming) {
 
-        AmusementPark amusementParks = amusementParksRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(AmusementPark.class, id));
+        if (amusementParksRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(AmusementPark.class, id);
+        }
+        markModified(AmusementPark.class);
 
-        amusementParks.setName(incoming.getName());
-        amusementParks.setAddress(incoming.getAddress());
-        amusementParks.setDescription(incoming.getDescription());
+        incoming.setId(id);
+        return incoming;
+    }
 
-        amusementParksRepository.save(amusementParks);
+    @ApiOperation(value = "Update only the supplied fields of a single amusementParks")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public AmusementPark patchAmusementPark(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("the fields to change, keyed by name") @RequestBody Map<String, Object> fields) {
 
-        return amusementParks;
+        AmusementPark amusementPark = entityPatchService.patch(AmusementPark.class, id, fields)
+                .orElseThrow(() -> new EntityNotFoundException(AmusementPark.class, id));
+        markModified(AmusementPark.class);
+
+        return amusementPark;
     }
 
 }
@@ -1,23 +1,77 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import net.bytebuddy.implementation.bytecode.Throw;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import edu.ucsb.cs156.example.models.BatchResult;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.ResponseCacheService;
+import edu.ucsb.cs156.example.services.ResponseCacheService.CachedResponse;
 import lombok.extern.slf4j.Slf4j;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Slf4j
 public abstract class ApiController {
+  public static final int MAX_PAGE_SIZE = 1000;
+  public static final String NDJSON = "application/x-ndjson";
+  public static final String CSV = "text/csv";
+  public static final int BATCH_SIZE = 50;
+  public static final int MAX_BULK_ROWS = 10000;
+  public static final int MAX_IDS_PER_QUERY = 1000;
+
+  private static final CsvMapper CSV_MAPPER = CsvMapper.builder().findAndAddModules().build();
+
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private ObjectProvider<EntityManager> entityManager;
+
+  @Autowired
+  private ResponseCacheService responseCache;
+
   protected CurrentUser getCurrentUser() {
     return currentUserService.getCurrentUser();
   }
@@ -26,6 +80,212 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * Clamp a client supplied page size to [1, MAX_PAGE_SIZE].
+   */
+  protected int pageSize(int limit) {
+    return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+  }
+
+  /**
+   * Pageable for a seek query; asks for one extra row so that we can tell
+   * whether another page follows without a separate count query.
+   */
+  protected Pageable keysetPageable(int limit) {
+    return PageRequest.of(0, pageSize(limit) + 1);
+  }
+
+  /**
+   * Turn the rows returned by a seek query issued with
+   * {@link #keysetPageable(int)} into a page plus the cursor for the next one.
+   */
+  protected <T, K> KeysetPage<T, K> keysetPage(List<T> rows, int limit, Function<T, K> keyOf) {
+    int size = pageSize(limit);
+    if (rows.size() <= size) {
+      return KeysetPage.<T, K>builder().items(rows).build();
+    }
+    List<T> items = rows.subList(0, size);
+    return KeysetPage.<T, K>builder()
+        .items(items)
+        .nextCursor(keyOf.apply(items.get(size - 1)))
+        .build();
+  }
+
+  /**
+   * Write each row of a (cursor backed) stream to the response as one line
+   * of newline delimited JSON.  Rows are detached from the persistence
+   * context once written so that the session does not grow with the table.
+   * Must be called inside a transaction, since the stream holds the
+   * JDBC result set open.
+   */
+  protected <T> void writeNdjson(String format, Supplier<Stream<T>> query, HttpServletResponse response)
+      throws IOException {
+    if (!"ndjson".equals(format)) {
+      throw new BadRequestException("Unsupported export format %s".formatted(format));
+    }
+    EntityManager em = entityManager.getIfAvailable();
+    ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    response.setContentType(NDJSON);
+    response.setCharacterEncoding("UTF-8");
+    try (Stream<T> rows = query.get();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+      generator.setRootValueSeparator(null);
+      Iterator<T> iterator = rows.iterator();
+      while (iterator.hasNext()) {
+        T row = iterator.next();
+        writer.writeValue(generator, row);
+        generator.writeRaw('\n');
+        if (em != null) {
+          em.detach(row);
+        }
+      }
+    }
+  }
+
+  /**
+   * Parse a CSV body whose header row names the entity properties.
+   */
+  protected <T> List<T> readCsv(String csv, Class<T> type) {
+    try {
+      return CSV_MAPPER.readerFor(type)
+          .with(CsvSchema.emptySchema().withHeader())
+          .<T>readValues(csv)
+          .readAll();
+    } catch (IOException e) {
+      throw new BadRequestException("Could not parse CSV: %s".formatted(e.getMessage()));
+    }
+  }
+
+  /**
+   * Save rows in one transaction (the caller must be {@code @Transactional}),
+   * flushing and clearing the persistence context every BATCH_SIZE rows so
+   * that Hibernate sends each chunk as a single JDBC batch and the session
+   * does not grow with the upload.
+   */
+  protected <T> List<T> saveInBatches(CrudRepository<T, ?> repository, List<T> rows) {
+    if (rows.size() > MAX_BULK_ROWS) {
+      throw new BadRequestException("At most %d rows may be created per request".formatted(MAX_BULK_ROWS));
+    }
+    EntityManager em = entityManager.getIfAvailable();
+    List<T> saved = new ArrayList<>(rows.size());
+    for (T row : rows) {
+      saved.add(repository.save(row));
+      if (em != null && saved.size() % BATCH_SIZE == 0) {
+        em.flush();
+        em.clear();
+      }
+    }
+    return saved;
+  }
+
+  /**
+   * Split client supplied ids (duplicates dropped, order kept) into chunks
+   * of at most MAX_IDS_PER_QUERY, so that each chunk can be bound as one IN
+   * list without running into the database's bind parameter limits.
+   */
+  protected <K> List<List<K>> chunks(List<K> ids) {
+    List<K> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+    if (distinct.size() > MAX_BULK_ROWS) {
+      throw new BadRequestException("At most %d ids may be given per request".formatted(MAX_BULK_ROWS));
+    }
+    List<List<K>> chunks = new ArrayList<>();
+    for (int from = 0; from < distinct.size(); from += MAX_IDS_PER_QUERY) {
+      chunks.add(distinct.subList(from, Math.min(distinct.size(), from + MAX_IDS_PER_QUERY)));
+    }
+    return chunks;
+  }
+
+  /**
+   * Look up a batch of ids with one IN query per chunk (see
+   * {@link #chunks(List)}) and put the rows back into the requested order.
+   */
+  protected <T, K> BatchResult<T, K> batch(List<K> ids, Function<List<K>, Iterable<T>> query, Function<T, K> keyOf) {
+    List<List<K>> chunks = chunks(ids);
+    Map<K, T> found = new HashMap<>();
+    for (List<K> chunk : chunks) {
+      query.apply(chunk).forEach(row -> found.put(keyOf.apply(row), row));
+    }
+    List<T> items = new ArrayList<>(found.size());
+    List<K> missing = new ArrayList<>();
+    for (List<K> chunk : chunks) {
+      for (K id : chunk) {
+        T row = found.get(id);
+        if (row != null) {
+          items.add(row);
+        } else {
+          missing.add(id);
+        }
+      }
+    }
+    return BatchResult.<T, K>builder().items(items).missing(missing).build();
+  }
+
+  /**
+   * Serve an entity listing from the response cache, gzipped if the client
+   * accepts it.  The query only runs when the entity has been written since
+   * the listing was last cached, and a conditional request for an unchanged
+   * listing is answered with 304 before even that.
+   */
+  protected ResponseEntity<byte[]> cachedListing(Class<?> entity, ServletWebRequest request, Supplier<?> query)
+      throws JsonProcessingException {
+    boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    request.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (notModified(entity, request, gzip ? "-gz" : "")) {
+      return null;
+    }
+    CachedResponse cached = responseCache.get(entity, query);
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+    if (gzip) {
+      return ok.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.getGzip());
+    }
+    return ok.body(cached.getJson());
+  }
+
+  /**
+   * Check a conditional GET against the entity's current ETag (which changes
+   * whenever the entity's table is written).  When this returns true the
+   * response is already a 304 and the handler should return null; otherwise
+   * the ETag has been set on the response.
+   */
+  protected boolean notModified(Class<?> entity, ServletWebRequest request) {
+    return notModified(entity, request, "");
+  }
+
+  private boolean notModified(Class<?> entity, ServletWebRequest request, String variant) {
+    request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+    return request.checkNotModified(responseCache.etag(entity) + variant);
+  }
+
+  /**
+   * Record that rows of an entity type were created, changed or deleted, so
+   * that cached listings are dropped (after commit, inside a transaction).
+   */
+  protected void markModified(Class<?> entity) {
+    responseCache.invalidate(entity);
+  }
+
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      if (parts[0].trim().equalsIgnoreCase("gzip")) {
+        return !(parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?"));
+      }
+    }
+    return false;
+  }
+
+  @ExceptionHandler({ BadRequestException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequest(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", Objects.toString(e.getMessage(), "Bad request")
+    );
+  }
+
   @ExceptionHandler({ EntityNotFoundException.class })
   @ResponseStatus(HttpStatus.NOT_FOUND)
   public Object handleGenericException(Throwable e) {
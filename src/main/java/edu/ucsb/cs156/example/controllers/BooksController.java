@@ -2,7 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Book;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.BookRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -12,18 +15,28 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
 
 @Api(description = "Books")
 @RequestMapping("/api/books")
@@ -34,19 +47,55 @@ public class BooksController extends ApiController {
     @Autowired
     BookRepository BookRepository;
 
-    @ApiOperation(value = "List all books")
+    @Autowired
+    EntityPatchService entityPatchService;
+
+    @ApiOperation(value = "List all books", response = Book.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Book> allBooks() {
-        Iterable<Book> books = BookRepository.findAll();
-        return books;
+    public ResponseEntity<byte[]> allBooks(ServletWebRequest request) throws JsonProcessingException {
+        return cachedListing(Book.class, request, () -> BookRepository.findAll());
+    }
+
+    @ApiOperation(value = "List books one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<Book, Long> pageOfBooks(
+            @ApiParam("only return books with an id greater than this cursor") @RequestParam(defaultValue = "0") long after,
+            @ApiParam("maximum number of books to return") @RequestParam int limit) {
+        List<Book> page = BookRepository.findByIdGreaterThanOrderByIdAsc(after, keysetPageable(limit));
+        return keysetPage(page, limit, Book::getId);
+    }
+
+    @ApiOperation(value = "Get many books in one query; results keep the order of the ids and list the ids that were not found")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/batch")
+    public BatchResult<Book, Long> batchOfBooks(
+            @ApiParam("comma separated ids") @RequestParam List<Long> ids) {
+        return batch(ids, BookRepository::findAllById, Book::getId);
+    }
+
+    @ApiOperation(value = "Export all books as newline delimited JSON, streamed from a database cursor")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/export")
+    public void exportBooks(
+            @ApiParam("export format (only ndjson is supported)") @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        writeNdjson(format, () -> BookRepository.streamAllByOrderByIdAsc(), response);
     }
     
     @ApiOperation(value = "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public Book getById(
-            @ApiParam("id") @RequestParam Long id) {
+            @ApiParam("id") @RequestParam Long id,
+            ServletWebRequest request) {
+        if (notModified(Book.class, request)) {
+            return null;
+        }
+
         Book book = BookRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Book.class, id));
 
@@ -72,22 +121,58 @@ public class BooksController extends ApiController {
         book.setPublicdate(publicdate);
 
         Book savedBook = BookRepository.save(book);
+        markModified(Book.class);
 
         return savedBook;
     }
+
+    @ApiOperation(value = "Create many books in one transaction from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<Book> bulkPostBooks(
+            @RequestBody List<Book> incoming) {
+        incoming.forEach(book -> book.setId(0));
+        List<Book> saved = saveInBatches(BookRepository, incoming);
+        markModified(Book.class);
+        return saved;
+    }
+
+    @ApiOperation(value = "Create many books in one transaction from CSV with a header row (title,author,publicdate)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = CSV)
+    public List<Book> bulkPostBooksCsv(
+            @RequestBody String csv) {
+        return bulkPostBooks(readCsv(csv, Book.class));
+    }
     
     @ApiOperation(value = "Delete a Book")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteBook(
             @ApiParam("id") @RequestParam Long id) {
-        Book book = BookRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Book.class, id));
-
-        BookRepository.delete(book);
+        if (BookRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(Book.class, id);
+        }
+        markModified(Book.class);
         return genericMessage("Book with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many books by id in one transaction")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @DeleteMapping("/bulk")
+    public Object bulkDeleteBooks(
+            @ApiParam("ids") @RequestParam List<Long> ids) {
+        int deleted = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            deleted += BookRepository.deleteRowsByIds(chunk);
+        }
+        markModified(Book.class);
+        return genericMessage("%d books deleted".formatted(deleted));
+    }
+
     @ApiOperation(value = "Update a single book")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -95,17 +180,27 @@ public class BooksController extends ApiController {
             @ApiParam("id") @RequestParam Long id,
             @RequestBody @Valid Book incoming) {
 
-        Book book = BookRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Book.class, id));
+        if (BookRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(Book.class, id);
+        }
+        markModified(Book.class);
+
+        incoming.setId(id);
+        return incoming;
+    }
 
-        book.setTitle(incoming.getTitle());
-        book.setAuthor(incoming.getAuthor());
-        book.setPublicdate(incoming.getPublicdate());
+    @ApiOperation(value = "Update only the supplied fields of a single book")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Book patchBook(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("the fields to change, keyed by name") @RequestBody Map<String, Object> fields) {
 
-        BookRepository.save(book);
+        Book book = entityPatchService.patch(Book.class, id, fields)
+                .orElseThrow(() -> new EntityNotFoundException(Book.class, id));
+        markModified(Book.class);
 
         return book;
-    
     }
     
 }
@@ -2,7 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Game;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.GameRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -11,18 +14,28 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
 @Api(description = "Games")
 @RequestMapping("/api/games")
 @RestController
@@ -32,19 +45,55 @@ public class GamesController extends ApiController {
     @Autowired
     GameRepository gameRepository;
 
-    @ApiOperation(value = "List all games")
+    @Autowired
+    EntityPatchService entityPatchService;
+
+    @ApiOperation(value = "List all games", response = Game.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Game> allGames() {
-        Iterable<Game> games = gameRepository.findAll();
-        return games;
+    public ResponseEntity<byte[]> allGames(ServletWebRequest request) throws JsonProcessingException {
+        return cachedListing(Game.class, request, () -> gameRepository.findAll());
+    }
+
+    @ApiOperation(value = "List games one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<Game, Long> pageOfGames(
+            @ApiParam("only return games with an id greater than this cursor") @RequestParam(defaultValue = "0") long after,
+            @ApiParam("maximum number of games to return") @RequestParam int limit) {
+        List<Game> page = gameRepository.findByIdGreaterThanOrderByIdAsc(after, keysetPageable(limit));
+        return keysetPage(page, limit, Game::getId);
+    }
+
+    @ApiOperation(value = "Get many games in one query; results keep the order of the ids and list the ids that were not found")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/batch")
+    public BatchResult<Game, Long> batchOfGames(
+            @ApiParam("comma separated ids") @RequestParam List<Long> ids) {
+        return batch(ids, gameRepository::findAllById, Game::getId);
+    }
+
+    @ApiOperation(value = "Export all games as newline delimited JSON, streamed from a database cursor")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/export")
+    public void exportGames(
+            @ApiParam("export format (only ndjson is supported)") @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        writeNdjson(format, () -> gameRepository.streamAllByOrderByIdAsc(), response);
     }
 
     @ApiOperation(value = "Get a single game")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public Game getById(
-            @ApiParam("id") @RequestParam Long id) {
+            @ApiParam("id") @RequestParam Long id,
+            ServletWebRequest request) {
+        if (notModified(Game.class, request)) {
+            return null;
+        }
+
         Game game = gameRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Game.class, id));
 
@@ -66,22 +115,58 @@ public class GamesController extends ApiController {
         game.setGenre(genre);
 
         Game savedGame = gameRepository.save(game);
+        markModified(Game.class);
 
         return savedGame;
     }
 
+    @ApiOperation(value = "Create many games in one transaction from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<Game> bulkPostGames(
+            @RequestBody List<Game> incoming) {
+        incoming.forEach(game -> game.setId(0));
+        List<Game> saved = saveInBatches(gameRepository, incoming);
+        markModified(Game.class);
+        return saved;
+    }
+
+    @ApiOperation(value = "Create many games in one transaction from CSV with a header row (name,creator,genre)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = CSV)
+    public List<Game> bulkPostGamesCsv(
+            @RequestBody String csv) {
+        return bulkPostGames(readCsv(csv, Game.class));
+    }
+
     @ApiOperation(value = "Delete a Game")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteGame(
             @ApiParam("id") @RequestParam Long id) {
-        Game game = gameRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Game.class, id));
-
-        gameRepository.delete(game);
+        if (gameRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(Game.class, id);
+        }
+        markModified(Game.class);
         return genericMessage("Game with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many games by id in one transaction")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @DeleteMapping("/bulk")
+    public Object bulkDeleteGames(
+            @ApiParam("ids") @RequestParam List<Long> ids) {
+        int deleted = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            deleted += gameRepository.deleteRowsByIds(chunk);
+        }
+        markModified(Game.class);
+        return genericMessage("%d games deleted".formatted(deleted));
+    }
+
     @ApiOperation(value = "Update a single game")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -89,14 +174,25 @@ public class GamesController extends ApiController {
             @ApiParam("id") @RequestParam Long id,
             @RequestBody @Valid Game incoming) {
 
-        Game game = gameRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Game.class, id));
+        if (gameRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(Game.class, id);
+        }
+        markModified(Game.class);
+
+        incoming.setId(id);
+        return incoming;
+    }
 
-        game.setName(incoming.getName());
-        game.setCreator(incoming.getCreator());
-        game.setGenre(incoming.getGenre());
+    @ApiOperation(value = "Update only the supplied fields of a single game")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Game patchGame(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("the fields to change, keyed by name") @RequestBody Map<String, Object> fields) {
 
-        gameRepository.save(game);
+        Game game = entityPatchService.patch(Game.class, id, fields)
+                .orElseThrow(() -> new EntityNotFoundException(Game.class, id));
+        markModified(Game.class);
 
         return game;
     }
@@ -2,25 +2,40 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.IceCreamShop;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.IceCreamShopRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
 
 @Api(description = "IceCreamShop")
 @RequestMapping("/api/icecreamshop")
@@ -31,19 +46,55 @@ public class IceCreamShopController extends ApiController {
     @Autowired
     IceCreamShopRepository iceCreamShopRepository;
 
-    @ApiOperation(value = "List all ice cream shops")
+    @Autowired
+    EntityPatchService entityPatchService;
+
+    @ApiOperation(value = "List all ice cream shops", response = IceCreamShop.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<IceCreamShop> allIceCreamShop() {
-        Iterable<IceCreamShop> iceCreamShop = iceCreamShopRepository.findAll();
-        return iceCreamShop;
+    public ResponseEntity<byte[]> allIceCreamShop(ServletWebRequest request) throws JsonProcessingException {
+        return cachedListing(IceCreamShop.class, request, () -> iceCreamShopRepository.findAll());
+    }
+
+    @ApiOperation(value = "List ice cream shops one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<IceCreamShop, Long> pageOfIceCreamShops(
+            @ApiParam("only return ice cream shops with an id greater than this cursor") @RequestParam(defaultValue = "0") long after,
+            @ApiParam("maximum number of ice cream shops to return") @RequestParam int limit) {
+        List<IceCreamShop> page = iceCreamShopRepository.findByIdGreaterThanOrderByIdAsc(after, keysetPageable(limit));
+        return keysetPage(page, limit, IceCreamShop::getId);
+    }
+
+    @ApiOperation(value = "Get many ice cream shops in one query; results keep the order of the ids and list the ids that were not found")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/batch")
+    public BatchResult<IceCreamShop, Long> batchOfIceCreamShops(
+            @ApiParam("comma separated ids") @RequestParam List<Long> ids) {
+        return batch(ids, iceCreamShopRepository::findAllById, IceCreamShop::getId);
+    }
+
+    @ApiOperation(value = "Export all ice cream shops as newline delimited JSON, streamed from a database cursor")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/export")
+    public void exportIceCreamShops(
+            @ApiParam("export format (only ndjson is supported)") @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        writeNdjson(format, () -> iceCreamShopRepository.streamAllByOrderByIdAsc(), response);
     }
 
     @ApiOperation(value = "Get a single iceCreamShop")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public IceCreamShop getById(
-            @ApiParam("id") @RequestParam Long id) {
+            @ApiParam("id") @RequestParam Long id,
+            ServletWebRequest request) {
+        if (notModified(IceCreamShop.class, request)) {
+            return null;
+        }
+
         IceCreamShop iceCreamShop = iceCreamShopRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(IceCreamShop.class, id));
 
@@ -66,22 +117,58 @@ public class IceCreamShopController extends ApiController {
         iceCreamShop.setDescription(description);
 
         IceCreamShop savedIceCreamShop = iceCreamShopRepository.save(iceCreamShop);
+        markModified(IceCreamShop.class);
 
         return savedIceCreamShop;
     }
 
+    @ApiOperation(value = "Create many ice cream shops in one transaction from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<IceCreamShop> bulkPostIceCreamShops(
+            @RequestBody List<IceCreamShop> incoming) {
+        incoming.forEach(shop -> shop.setId(0));
+        List<IceCreamShop> saved = saveInBatches(iceCreamShopRepository, incoming);
+        markModified(IceCreamShop.class);
+        return saved;
+    }
+
+    @ApiOperation(value = "Create many ice cream shops in one transaction from CSV with a header row (name,address,description)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = CSV)
+    public List<IceCreamShop> bulkPostIceCreamShopsCsv(
+            @RequestBody String csv) {
+        return bulkPostIceCreamShops(readCsv(csv, IceCreamShop.class));
+    }
+
     @ApiOperation(value = "Delete a IceCreamShop")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteIceCreamShop(
             @ApiParam("id") @RequestParam Long id) {
-        IceCreamShop iceCreamShop = iceCreamShopRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(IceCreamShop.class, id));
-
-        iceCreamShopRepository.delete(iceCreamShop);
+        if (iceCreamShopRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(IceCreamShop.class, id);
+        }
+        markModified(IceCreamShop.class);
         return genericMessage("IceCreamShop with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many ice cream shops by id in one transaction")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @DeleteMapping("/bulk")
+    public Object bulkDeleteIceCreamShops(
+            @ApiParam("ids") @RequestParam List<Long> ids) {
+        int deleted = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            deleted += iceCreamShopRepository.deleteRowsByIds(chunk);
+        }
+        markModified(IceCreamShop.class);
+        return genericMessage("%d ice cream shops deleted".formatted(deleted));
+    }
+
     @ApiOperation(value = "Update a single iceCreamShop")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -89,16 +176,25 @@ public class IceCreamShopController extends ApiController {
             @ApiParam("id") @RequestParam Long id,
             @RequestBody @Valid IceCreamShop incoming) {
 
-        IceCreamShop iceCreamShop = iceCreamShopRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(IceCreamShop.class, id));
-
+        if (iceCreamShopRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(IceCreamShop.class, id);
+        }
+        markModified(IceCreamShop.class);
 
-        iceCreamShop.setName(incoming.getName());  
-        iceCreamShop.setAddress(incoming.getAddress());
-        iceCreamShop.setDescription(incoming.getDescription());
+        incoming.setId(id);
+        return incoming;
+    }
 
+    @ApiOperation(value = "Update only the supplied fields of a single iceCreamShop")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public IceCreamShop patchIceCreamShop(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("the fields to change, keyed by name") @RequestBody Map<String, Object> fields) {
 
-        iceCreamShopRepository.save(iceCreamShop);
+        IceCreamShop iceCreamShop = entityPatchService.patch(IceCreamShop.class, id, fields)
+                .orElseThrow(() -> new EntityNotFoundException(IceCreamShop.class, id));
+        markModified(IceCreamShop.class);
 
         return iceCreamShop;
     }
@@ -2,25 +2,40 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RestaurantsRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
 
 @Api(description = "Restaurants")
 @RequestMapping("/api/restaurants")
@@ -31,19 +46,55 @@ public class RestaurantsController extends ApiController {
     @Autowired
     RestaurantsRepository restaurantsRepository;
 
-    @ApiOperation(value = "List all restaurants")
+    @Autowired
+    EntityPatchService entityPatchService;
+
+    @ApiOperation(value = "List all restaurants", response = Restaurant.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Restaurant> allRestaurants() {
-        Iterable<Restaurant> restaurants = restaurantsRepository.findAll();
-        return restaurants;
+    public ResponseEntity<byte[]> allRestaurants(ServletWebRequest request) throws JsonProcessingException {
+        return cachedListing(Restaurant.class, request, () -> restaurantsRepository.findAll());
+    }
+
+    @ApiOperation(value = "List restaurants one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<Restaurant, Long> pageOfRestaurants(
+            @ApiParam("only return restaurants with an id greater than this cursor") @RequestParam(defaultValue = "0") long after,
+            @ApiParam("maximum number of restaurants to return") @RequestParam int limit) {
+        List<Restaurant> page = restaurantsRepository.findByIdGreaterThanOrderByIdAsc(after, keysetPageable(limit));
+        return keysetPage(page, limit, Restaurant::getId);
+    }
+
+    @ApiOperation(value = "Get many restaurants in one query; results keep the order of the ids and list the ids that were not found")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/batch")
+    public BatchResult<Restaurant, Long> batchOfRestaurants(
+            @ApiParam("comma separated ids") @RequestParam List<Long> ids) {
+        return batch(ids, restaurantsRepository::findAllById, Restaurant::getId);
+    }
+
+    @ApiOperation(value = "Export all restaurants as newline delimited JSON, streamed from a database cursor")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/export")
+    public void exportRestaurants(
+            @ApiParam("export format (only ndjson is supported)") @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        writeNdjson(format, () -> restaurantsRepository.streamAllByOrderByIdAsc(), response);
     }
 
     @ApiOperation(value = "Get a single restaurant")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public Restaurant getById(
-            @ApiParam("id") @RequestParam Long id) {
+            @ApiParam("id") @RequestParam Long id,
+            ServletWebRequest request) {
+        if (notModified(Restaurant.class, request)) {
+            return null;
+        }
+
         Restaurant restaurants = restaurantsRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
@@ -66,22 +117,58 @@ public class RestaurantsController extends ApiController {
         restaurants.setSpecialty(specialty);
 
         Restaurant savedRestaurants = restaurantsRepository.save(restaurants);
+        markModified(Restaurant.class);
 
         return savedRestaurants;
     }
 
+    @ApiOperation(value = "Create many restaurants in one transaction from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<Restaurant> bulkPostRestaurants(
+            @RequestBody List<Restaurant> incoming) {
+        incoming.forEach(restaurant -> restaurant.setId(0));
+        List<Restaurant> saved = saveInBatches(restaurantsRepository, incoming);
+        markModified(Restaurant.class);
+        return saved;
+    }
+
+    @ApiOperation(value = "Create many restaurants in one transaction from CSV with a header row (name,address,specialty)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = CSV)
+    public List<Restaurant> bulkPostRestaurantsCsv(
+            @RequestBody String csv) {
+        return bulkPostRestaurants(readCsv(csv, Restaurant.class));
+    }
+
     @ApiOperation(value = "Delete a Restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteRestaurants(
             @ApiParam("id") @RequestParam Long id) {
-        Restaurant restaurants = restaurantsRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-        restaurantsRepository.delete(restaurants);
+        if (restaurantsRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(Restaurant.class, id);
+        }
+        markModified(Restaurant.class);
         return genericMessage("Restaurant with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many restaurants by id in one transaction")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @DeleteMapping("/bulk")
+    public Object bulkDeleteRestaurants(
+            @ApiParam("ids") @RequestParam List<Long> ids) {
+        int deleted = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            deleted += restaurantsRepository.deleteRowsByIds(chunk);
+        }
+        markModified(Restaurant.class);
+        return genericMessage("%d restaurants deleted".formatted(deleted));
+    }
+
     @ApiOperation(value = "Update a single restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -89,16 +176,26 @@ public class RestaurantsController extends ApiController {
             @ApiParam("id") @RequestParam Long id,
             @RequestBody @Valid Restaurant incoming) {
 
-        Restaurant restaurants = restaurantsRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        if (restaurantsRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(Restaurant.class, id);
+        }
+        markModified(Restaurant.class);
 
+        incoming.setId(id);
+        return incoming;
+    }
 
-        restaurants.setName(incoming.getName());
-        restaurants.setAddress(incoming.getAddress());
-        restaurants.setSpecialty(incoming.getSpecialty());
+    @ApiOperation(value = "Update only the supplied fields of a single restaurant")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public Restaurant patchRestaurant(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("the fields to change, keyed by name") @RequestBody Map<String, Object> fields) {
 
-        restaurantsRepository.save(restaurants);
+        Restaurant restaurant = entityPatchService.patch(Restaurant.class, id, fields)
+                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        markModified(Restaurant.class);
 
-        return restaurants;
+        return restaurant;
     }
 }
@@ -2,7 +2,10 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.School;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.SchoolRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -12,19 +15,28 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @Api(description = "School")
 @RequestMapping("/api/schools")
@@ -35,19 +47,55 @@ public class SchoolController extends ApiController {
     @Autowired
     SchoolRepository schoolRepository;
 
-    @ApiOperation(value = "List all schools")
+    @Autowired
+    EntityPatchService entityPatchService;
+
+    @ApiOperation(value = "List all schools", response = School.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<School> allSchools() {
-        Iterable<School> schools = schoolRepository.findAll();
-        return schools;
+    public ResponseEntity<byte[]> allSchools(ServletWebRequest request) throws JsonProcessingException {
+        return cachedListing(School.class, request, () -> schoolRepository.findAll());
+    }
+
+    @ApiOperation(value = "List schools one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<School, Long> pageOfSchools(
+            @ApiParam("only return schools with an id greater than this cursor") @RequestParam(defaultValue = "0") long after,
+            @ApiParam("maximum number of schools to return") @RequestParam int limit) {
+        List<School> page = schoolRepository.findByIdGreaterThanOrderByIdAsc(after, keysetPageable(limit));
+        return keysetPage(page, limit, School::getId);
+    }
+
+    @ApiOperation(value = "Get many schools in one query; results keep the order of the ids and list the ids that were not found")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/batch")
+    public BatchResult<School, Long> batchOfSchools(
+            @ApiParam("comma separated ids") @RequestParam List<Long> ids) {
+        return batch(ids, schoolRepository::findAllById, School::getId);
+    }
+
+    @ApiOperation(value = "Export all schools as newline delimited JSON, streamed from a database cursor")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/export")
+    public void exportSchools(
+            @ApiParam("export format (only ndjson is supported)") @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        writeNdjson(format, () -> schoolRepository.streamAllByOrderByIdAsc(), response);
     }
 
     @ApiOperation(value = "Get a single school")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public School getById(
-            @ApiParam("id") @RequestParam Long id) {
+            @ApiParam("id") @RequestParam Long id,
+            ServletWebRequest request) {
+        if (notModified(School.class, request)) {
+            return null;
+        }
+
         School school = schoolRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(School.class, id));
 
@@ -74,22 +122,58 @@ public class SchoolController extends ApiController {
         school.setDescription(description);
 
         School savedSchool = schoolRepository.save(school);
+        markModified(School.class);
 
         return savedSchool;
     }
 
+    @ApiOperation(value = "Create many schools in one transaction from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<School> bulkPostSchools(
+            @RequestBody List<School> incoming) {
+        incoming.forEach(school -> school.setId(0));
+        List<School> saved = saveInBatches(schoolRepository, incoming);
+        markModified(School.class);
+        return saved;
+    }
+
+    @ApiOperation(value = "Create many schools in one transaction from CSV with a header row (name,address,description)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = CSV)
+    public List<School> bulkPostSchoolsCsv(
+            @RequestBody String csv) {
+        return bulkPostSchools(readCsv(csv, School.class));
+    }
+
     @ApiOperation(value = "Delete a School")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteSchool(
             @ApiParam("id") @RequestParam Long id) {
-        School school = schoolRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(School.class, id));
-
-        schoolRepository.delete(school);
+        if (schoolRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(School.class, id);
+        }
+        markModified(School.class);
         return genericMessage("School with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many schools by id in one transaction")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @DeleteMapping("/bulk")
+    public Object bulkDeleteSchools(
+            @ApiParam("ids") @RequestParam List<Long> ids) {
+        int deleted = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            deleted += schoolRepository.deleteRowsByIds(chunk);
+        }
+        markModified(School.class);
+        return genericMessage("%d schools deleted".formatted(deleted));
+    }
+
     @ApiOperation(value = "Update a single school")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -97,14 +181,25 @@ public class SchoolController extends ApiController {
             @ApiParam("id") @RequestParam Long id,
             @RequestBody @Valid School incoming) {
 
-        School school = schoolRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(School.class, id));
+        if (schoolRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(School.class, id);
+        }
+        markModified(School.class);
+
+        incoming.setId(id);
+        return incoming;
+    }
 
-        school.setName(incoming.getName());
-        school.setAddress(incoming.getAddress());
-        school.setDescription(incoming.getDescription());
+    @ApiOperation(value = "Update only the supplied fields of a single school")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public School patchSchool(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("the fields to change, keyed by name") @RequestBody Map<String, Object> fields) {
 
-        schoolRepository.save(school);
+        School school = entityPatchService.patch(School.class, id, fields)
+                .orElseThrow(() -> new EntityNotFoundException(School.class, id));
+        markModified(School.class);
 
         return school;
     }
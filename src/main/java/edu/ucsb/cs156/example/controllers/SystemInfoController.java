@@ -1,10 +1,16 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.models.EntityCacheStatistics;
+import edu.ucsb.cs156.example.models.RuntimeStatistics;
 import edu.ucsb.cs156.example.models.SystemInfo;
+import edu.ucsb.cs156.example.services.EntityCacheStatisticsService;
+import edu.ucsb.cs156.example.services.RuntimeStatisticsService;
 import edu.ucsb.cs156.example.services.SystemInfoService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,6 +25,12 @@ public class SystemInfoController extends ApiController {
     @Autowired
     private SystemInfoService systemInfoService;
 
+    @Autowired
+    private EntityCacheStatisticsService entityCacheStatisticsService;
+
+    @Autowired
+    private RuntimeStatisticsService runtimeStatisticsService;
+
     @ApiOperation(value = "Get global information about the application")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @GetMapping("")
@@ -26,4 +38,18 @@ public class SystemInfoController extends ApiController {
         return systemInfoService.getSystemInfo();
     }
 
+    @ApiOperation(value = "Get hit/miss/eviction counts for each second-level entity cache region")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/entityCache")
+    public List<EntityCacheStatistics> getEntityCacheStatistics() {
+        return entityCacheStatisticsService.getEntityCacheStatistics();
+    }
+
+    @ApiOperation(value = "Get memory, GC, thread, connection pool, entity cache and per-endpoint request statistics")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/runtime")
+    public RuntimeStatistics getRuntimeStatistics() {
+        return runtimeStatisticsService.getRuntimeStatistics();
+    }
+
 }
\ No newline at end of file
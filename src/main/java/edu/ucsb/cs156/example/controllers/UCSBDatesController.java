@@ -1,8 +1,16 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.QuarterSummary;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
+import edu.ucsb.cs156.example.services.UCSBDateCalendar;
+import edu.ucsb.cs156.example.services.UCSBDateQuarterCache;
+import edu.ucsb.cs156.example.services.UCSBDateTimeline;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -12,19 +20,33 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Api(description = "UCSBDates")
 @RequestMapping("/api/ucsbdates")
@@ -32,22 +54,131 @@ import java.time.LocalDateTime;
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
+    private static final Pattern YYYYQ = Pattern.compile("\\d{4}[1-4]");
+
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
-    @ApiOperation(value = "List all ucsb dates")
+    @Autowired
+    EntityPatchService entityPatchService;
+
+    @Autowired
+    UCSBDateTimeline ucsbDateTimeline;
+
+    @Autowired
+    UCSBDateQuarterCache ucsbDateQuarterCache;
+
+    @Autowired
+    UCSBDateCalendar ucsbDateCalendar;
+
+    @ApiOperation(value = "List all ucsb dates", response = UCSBDate.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-        return dates;
+    public ResponseEntity<byte[]> allUCSBDates(ServletWebRequest request) throws JsonProcessingException {
+        return cachedListing(UCSBDate.class, request, () -> ucsbDateRepository.findAll());
+    }
+
+    @ApiOperation(value = "List ucsb dates one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<UCSBDate, Long> pageOfUCSBDates(
+            @ApiParam("only return ucsb dates with an id greater than this cursor") @RequestParam(defaultValue = "0") long after,
+            @ApiParam("maximum number of ucsb dates to return") @RequestParam int limit) {
+        List<UCSBDate> page = ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(after, keysetPageable(limit));
+        return keysetPage(page, limit, UCSBDate::getId);
+    }
+
+    @ApiOperation(value = "Get many ucsb dates in one query; results keep the order of the ids and list the ids that were not found")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/batch")
+    public BatchResult<UCSBDate, Long> batchOfUCSBDates(
+            @ApiParam("comma separated ids") @RequestParam List<Long> ids) {
+        return batch(ids, ucsbDateRepository::findAllById, UCSBDate::getId);
+    }
+
+    @ApiOperation(value = "Export all ucsb dates as newline delimited JSON, streamed from a database cursor")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/export")
+    public void exportUCSBDates(
+            @ApiParam("export format (only ndjson is supported)") @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        writeNdjson(format, () -> ucsbDateRepository.streamAllByOrderByIdAsc(), response);
+    }
+
+    @ApiOperation(value = "List the ucsb dates at or after from and before to, in time order, one page at a time;"
+            + " for the next page pass the last date's localDateTime as from and nextCursor as after")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/range")
+    public KeysetPage<UCSBDate, Long> rangeOfUCSBDates(
+            @ApiParam("start of the range, inclusive (in iso format, e.g. YYYY-mm-ddTHH:MM:SS)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @ApiParam("end of the range, exclusive (in iso format, e.g. YYYY-mm-ddTHH:MM:SS)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @ApiParam("only return ucsb dates at from with an id greater than this cursor") @RequestParam(defaultValue = "0") long after,
+            @ApiParam("maximum number of ucsb dates to return") @RequestParam(defaultValue = "100") int limit) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("from must be before to");
+        }
+        List<UCSBDate> page = ucsbDateRepository.findRangeAfter(from, after, to, keysetPageable(limit));
+        return keysetPage(page, limit, UCSBDate::getId);
+    }
+
+    @ApiOperation(value = "List the next ucsb dates that have not yet passed, soonest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/upcoming")
+    public List<UCSBDate> upcomingUCSBDates(
+            @ApiParam("maximum number of ucsb dates to return") @RequestParam(defaultValue = "5") int limit) {
+        return ucsbDateTimeline.upcoming(LocalDateTime.now(), pageSize(limit));
+    }
+
+    @ApiOperation(value = "List the ucsb dates of one quarter, in time order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarter")
+    public List<UCSBDate> quarterOfUCSBDates(
+            @ApiParam("quarter, as YYYYQ (e.g. 20231 for Winter 2023)") @RequestParam String yyyyq) {
+        checkQuarter(yyyyq);
+        return ucsbDateQuarterCache.get(yyyyq, () -> ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(yyyyq));
+    }
+
+    @ApiOperation(value = "Count the ucsb dates of every quarter, with the first and last of each")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarters")
+    public List<QuarterSummary> summarizeQuarters() {
+        return ucsbDateRepository.summarizeQuarters();
+    }
+
+    // No login: calendar apps subscribe to this URL and poll it on their own
+    @ApiOperation(value = "iCalendar feed of the ucsb dates of one quarter, or of every quarter if none is given")
+    @GetMapping(value = "/calendar.ics")
+    public ResponseEntity<byte[]> calendarOfUCSBDates(
+            @ApiParam("quarter, as YYYYQ (e.g. 20231 for Winter 2023)") @RequestParam(required = false) String yyyyq,
+            ServletWebRequest request) {
+        UCSBDateCalendar.Feed feed;
+        if (yyyyq == null) {
+            feed = ucsbDateCalendar.all();
+        } else {
+            checkQuarter(yyyyq);
+            feed = ucsbDateCalendar.quarter(yyyyq);
+        }
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePublic().getHeaderValue());
+        if (request.checkNotModified(feed.getEtag(), feed.getLastModified())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(UCSBDateCalendar.CONTENT_TYPE))
+                .body(feed.getIcs());
     }
 
     @ApiOperation(value = "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDate getById(
-            @ApiParam("id") @RequestParam Long id) {
+            @ApiParam("id") @RequestParam Long id,
+            ServletWebRequest request) {
+        if (notModified(UCSBDate.class, request)) {
+            return null;
+        }
+
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
@@ -66,7 +197,7 @@ public class UCSBDatesController extends ApiController {
         // For an explanation of @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
         // See: https://www.baeldung.com/spring-date-parameters
 
-        log.info("localDateTime={}", localDateTime);
+        log.debug("localDateTime={}", localDateTime);
 
         UCSBDate ucsbDate = new UCSBDate();
         ucsbDate.setQuarterYYYYQ(quarterYYYYQ);
@@ -74,22 +205,62 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        markModified(UCSBDate.class);
+        ucsbDateQuarterCache.invalidateQuarters(Collections.singleton(quarterYYYYQ));
 
         return savedUcsbDate;
     }
 
+    @ApiOperation(value = "Create many UCSB dates in one transaction from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<UCSBDate> bulkPostUCSBDates(
+            @RequestBody List<UCSBDate> incoming) {
+        incoming.forEach(ucsbDate -> ucsbDate.setId(0));
+        List<UCSBDate> saved = saveInBatches(ucsbDateRepository, incoming);
+        markModified(UCSBDate.class);
+        ucsbDateQuarterCache.invalidateQuarters(saved.stream().map(UCSBDate::getQuarterYYYYQ).collect(Collectors.toSet()));
+        return saved;
+    }
+
+    @ApiOperation(value = "Create many UCSB dates in one transaction from CSV with a header row (quarterYYYYQ,name,localDateTime)")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @PostMapping(value = "/bulk", consumes = CSV)
+    public List<UCSBDate> bulkPostUCSBDatesCsv(
+            @RequestBody String csv) {
+        return bulkPostUCSBDates(readCsv(csv, UCSBDate.class));
+    }
+
     @ApiOperation(value = "Delete a UCSBDate")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @ApiParam("id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+        if (ucsbDateRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+        }
+        markModified(UCSBDate.class);
+        ucsbDateQuarterCache.invalidateIds(List.of(id));
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many UCSB dates by id in one transaction")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @DeleteMapping("/bulk")
+    public Object bulkDeleteUCSBDates(
+            @ApiParam("ids") @RequestParam List<Long> ids) {
+        int deleted = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            deleted += ucsbDateRepository.deleteRowsByIds(chunk);
+        }
+        markModified(UCSBDate.class);
+        ucsbDateQuarterCache.invalidateIds(ids);
+        return genericMessage("%d UCSB dates deleted".formatted(deleted));
+    }
+
     @ApiOperation(value = "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -97,15 +268,36 @@ public class UCSBDatesController extends ApiController {
             @ApiParam("id") @RequestParam Long id,
             @RequestBody @Valid UCSBDate incoming) {
 
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        if (ucsbDateRepository.updateById(id, incoming) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+        }
+        markModified(UCSBDate.class);
+        ucsbDateQuarterCache.invalidateIds(List.of(id));
+        ucsbDateQuarterCache.invalidateQuarters(Collections.singleton(incoming.getQuarterYYYYQ()));
+
+        incoming.setId(id);
+        return incoming;
+    }
 
-        ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-        ucsbDate.setName(incoming.getName());
-        ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
+    @ApiOperation(value = "Update only the supplied fields of a single date")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public UCSBDate patchUCSBDate(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("the fields to change, keyed by name") @RequestBody Map<String, Object> fields) {
 
-        ucsbDateRepository.save(ucsbDate);
+        UCSBDate uCSBDate = entityPatchService.patch(UCSBDate.class, id, fields)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        markModified(UCSBDate.class);
+        ucsbDateQuarterCache.invalidateIds(List.of(id));
+        ucsbDateQuarterCache.invalidateQuarters(Collections.singleton(uCSBDate.getQuarterYYYYQ()));
 
-        return ucsbDate;
+        return uCSBDate;
+    }
+
+    private static void checkQuarter(String yyyyq) {
+        if (!YYYYQ.matcher(yyyyq).matches()) {
+            throw new BadRequestException("yyyyq must be a year and a quarter 1-4, e.g. 20231");
+        }
     }
 }
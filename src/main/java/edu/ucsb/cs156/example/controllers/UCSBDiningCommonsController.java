@@ -2,25 +2,41 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
+import edu.ucsb.cs156.example.services.UCSBDiningCommonsIndex;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
 
 @Api(description = "UCSBDiningCommons")
 @RequestMapping("/api/ucsbdiningcommons")
@@ -31,19 +47,89 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
-    @ApiOperation(value = "List all ucsb dining commons")
+    @Autowired
+    EntityPatchService entityPatchService;
+
+    @Autowired
+    UCSBDiningCommonsIndex ucsbDiningCommonsIndex;
+
+    @ApiOperation(value = "List all ucsb dining commons", response = UCSBDiningCommons.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    public ResponseEntity<byte[]> allCommonss(ServletWebRequest request) throws JsonProcessingException {
+        return cachedListing(UCSBDiningCommons.class, request, () -> ucsbDiningCommonsRepository.findAll());
+    }
+
+    @ApiOperation(value = "List ucsb dining commons one page at a time, ordered by code")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<UCSBDiningCommons, String> pageOfCommons(
+            @ApiParam("only return commons whose code sorts after this cursor") @RequestParam(defaultValue = "") String after,
+            @ApiParam("maximum number of commons to return") @RequestParam int limit) {
+        List<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(after, keysetPageable(limit));
+        return keysetPage(commons, limit, UCSBDiningCommons::getCode);
+    }
+
+    @ApiOperation(value = "Get many commons in one query; results keep the order of the codes and list the codes that were not found")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/batch")
+    public BatchResult<UCSBDiningCommons, String> batchOfCommons(
+            @ApiParam("comma separated codes") @RequestParam List<String> codes) {
+        return batch(codes, ucsbDiningCommonsRepository::findAllById, UCSBDiningCommons::getCode);
+    }
+
+    @ApiOperation(value = "Export all ucsb dining commons as newline delimited JSON, streamed from a database cursor")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/export")
+    public void exportCommons(
+            @ApiParam("export format (only ndjson is supported)") @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        writeNdjson(format, () -> ucsbDiningCommonsRepository.streamAllByOrderByCodeAsc(), response);
+    }
+
+    @ApiOperation(value = "List the k commons nearest a point, nearest first, with their distance in meters")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearest")
+    public List<NearbyDiningCommons> nearestCommons(
+            @ApiParam("latitude") @RequestParam double lat,
+            @ApiParam("longitude") @RequestParam double lon,
+            @ApiParam("number of commons to return") @RequestParam(defaultValue = "5") int k) {
+        return ucsbDiningCommonsIndex.nearest(lat, lon, pageSize(k));
+    }
+
+    @ApiOperation(value = "List the commons inside a latitude/longitude box, ordered by code")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/within")
+    public List<UCSBDiningCommons> commonsWithin(
+            @ApiParam("southern edge (latitude)") @RequestParam double south,
+            @ApiParam("western edge (longitude)") @RequestParam double west,
+            @ApiParam("northern edge (latitude)") @RequestParam double north,
+            @ApiParam("eastern edge (longitude)") @RequestParam double east) {
+        return ucsbDiningCommonsIndex.within(south, west, north, east);
+    }
+
+    @ApiOperation(value = "List the commons with the given amenities, ordered by code; omitted flags match either value")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/filter")
+    public List<UCSBDiningCommons> filterCommons(
+            @ApiParam("hasSackMeal") @RequestParam(required = false) Boolean hasSackMeal,
+            @ApiParam("hasTakeOutMeal") @RequestParam(required = false) Boolean hasTakeOutMeal,
+            @ApiParam("hasDiningCam") @RequestParam(required = false) Boolean hasDiningCam) {
+        return ucsbDiningCommonsIndex.withAmenities(hasSackMeal, hasTakeOutMeal, hasDiningCam);
     }
 
     @ApiOperation(value = "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDiningCommons getById(
-            @ApiParam("code") @RequestParam String code) {
+            @ApiParam("code") @RequestParam String code,
+            ServletWebRequest request) {
+        if (notModified(UCSBDiningCommons.class, request)) {
+            return null;
+        }
+
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
@@ -74,6 +160,8 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(longitude);
 
         UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        markModified(UCSBDiningCommons.class);
+        ucsbDiningCommonsIndex.put(savedCommons);
 
         return savedCommons;
     }
@@ -83,13 +171,29 @@ public class UCSBDiningCommonsController extends ApiController {
     @DeleteMapping("")
     public Object deleteCommons(
             @ApiParam("code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-        ucsbDiningCommonsRepository.delete(commons);
+        if (ucsbDiningCommonsRepository.deleteRowById(code) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+        }
+        markModified(UCSBDiningCommons.class);
+        ucsbDiningCommonsIndex.remove(List.of(code));
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
+    @ApiOperation(value = "Delete many commons by code in one transaction")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
+    @DeleteMapping("/bulk")
+    public Object bulkDeleteCommons(
+            @ApiParam("codes") @RequestParam List<String> codes) {
+        int deleted = 0;
+        for (List<String> chunk : chunks(codes)) {
+            deleted += ucsbDiningCommonsRepository.deleteRowsByIds(chunk);
+        }
+        markModified(UCSBDiningCommons.class);
+        ucsbDiningCommonsIndex.remove(codes);
+        return genericMessage("%d commons deleted".formatted(deleted));
+    }
+
     @ApiOperation(value = "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -97,18 +201,27 @@ public class UCSBDiningCommonsController extends ApiController {
             @ApiParam("code") @RequestParam String code,
             @RequestBody @Valid UCSBDiningCommons incoming) {
 
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        if (ucsbDiningCommonsRepository.updateById(code, incoming) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+        }
+        markModified(UCSBDiningCommons.class);
 
+        incoming.setCode(code);
+        ucsbDiningCommonsIndex.put(incoming);
+        return incoming;
+    }
 
-        commons.setName(incoming.getName());  
-        commons.setHasSackMeal(incoming.getHasSackMeal());
-        commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
-        commons.setHasDiningCam(incoming.getHasDiningCam());
-        commons.setLatitude(incoming.getLatitude());
-        commons.setLongitude(incoming.getLongitude());
+    @ApiOperation(value = "Update only the supplied fields of a single commons")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public UCSBDiningCommons patchCommons(
+            @ApiParam("code") @RequestParam String code,
+            @ApiParam("the fields to change, keyed by name") @RequestBody Map<String, Object> fields) {
 
-        ucsbDiningCommonsRepository.save(commons);
+        UCSBDiningCommons commons = entityPatchService.patch(UCSBDiningCommons.class, code, fields)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        markModified(UCSBDiningCommons.class);
+        ucsbDiningCommonsIndex.put(commons);
 
         return commons;
     }
@@ -1,10 +1,15 @@
 package edu.ucsb.cs156.example.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Id;
 import javax.persistence.GeneratedValue;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -15,9 +20,12 @@ import lombok.Builder;
 @NoArgsConstructor
 @Builder
 @Entity(name = "games")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "games")
 public class Game {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "games_seq")
+  @SequenceGenerator(name = "games_seq", sequenceName = "games_seq", allocationSize = 50)
   private long id;
 
   private String name;  
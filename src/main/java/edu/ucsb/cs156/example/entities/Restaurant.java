@@ -1,11 +1,16 @@
 package edu.ucsb.cs156.example.entities;
 
 import javax.annotation.Generated;
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Id;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -16,9 +21,12 @@ import lombok.Builder;
 @NoArgsConstructor
 @Builder
 @Entity(name = "restaurant")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "restaurant")
 public class Restaurant {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "restaurant_seq")
+    @SequenceGenerator(name = "restaurant_seq", sequenceName = "restaurant_seq", allocationSize = 50)
     private long id;
     
     private String name;
@@ -1,12 +1,21 @@
 package edu.ucsb.cs156.example.entities;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import javax.persistence.GeneratedValue;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
+
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -17,12 +26,20 @@ import lombok.Builder;
 @NoArgsConstructor
 @Builder
 @Entity(name = "ucsbdates")
+@Table(indexes = @Index(name = "ucsbdates_local_date_time_idx", columnList = "localDateTime"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ucsbdates")
 public class UCSBDate {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ucsbdates_seq")
+  @SequenceGenerator(name = "ucsbdates_seq", sequenceName = "ucsbdates_seq", allocationSize = 50)
   private long id;
 
   private String quarterYYYYQ;
   private String name;  
   private LocalDateTime localDateTime;
+
+  // when the row was last written; set by Hibernate on every insert and update
+  @UpdateTimestamp
+  private Instant updatedAt;
 }
\ No newline at end of file
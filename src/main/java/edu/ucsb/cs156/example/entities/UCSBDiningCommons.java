@@ -1,8 +1,12 @@
 package edu.ucsb.cs156.example.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -13,6 +17,8 @@ import lombok.Builder;
 @NoArgsConstructor
 @Builder
 @Entity(name = "ucsbdiningcommons")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ucsbdiningcommons")
 public class UCSBDiningCommons {
   @Id
   private String code;
@@ -7,17 +7,25 @@ import lombok.Builder;
 import lombok.AccessLevel;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
+import javax.persistence.SequenceGenerator;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Builder
 @Entity(name = "users")
+@Table(indexes = {
+    @Index(name = "users_email_idx", columnList = "email", unique = true),
+    @Index(name = "users_google_sub_idx", columnList = "googleSub", unique = true)
+})
 public class User {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+  @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
   private long id;
   private String email;
   private String googleSub;
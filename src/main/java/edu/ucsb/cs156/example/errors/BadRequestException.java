@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * Thrown when a request's parameters or body cannot be used; answered with
+ * 400 by ApiController.  Other IllegalArgumentExceptions are bugs, and are
+ * left to surface as 500s.
+ */
+public class BadRequestException extends RuntimeException {
+  public BadRequestException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * The rows found for a batch of ids, in the order the ids were requested.
+ *
+ * {@code missing} lists the requested ids that have no row, also in
+ * request order.  Repeated ids appear only once in either list.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BatchResult<T, K> {
+  private List<T> items;
+  private List<K> missing;
+}
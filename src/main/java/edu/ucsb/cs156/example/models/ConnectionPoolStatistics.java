@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Usage of the JDBC connection pool.  {@code pending} is the number of
+ * threads waiting for a connection right now; the acquire times are how long
+ * getting a connection has taken, over the life of the pool.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ConnectionPoolStatistics {
+  private String pool;
+  private int active;
+  private int idle;
+  private int pending;
+  private int max;
+  private long acquired;
+  private double acquireMeanMillis;
+  private double acquireMaxMillis;
+  private long timeouts;
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Calls to one controller handler since the application started, as
+ * recorded by LoggingAspect.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class EndpointStatistics {
+  private String controller;
+  private String handler;
+  private long requests;
+  private double requestsPerMinute;
+  private long errors;
+  private double meanMillis;
+  private double maxMillis;
+}
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class EntityCacheStatistics {
+  private String region;
+  private long hits;
+  private long misses;
+  private float hitPercentage;
+  private long puts;
+  private long removals;
+  private long evictions;
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) paginated listing.
+ *
+ * {@code nextCursor} is the primary key of the last row in {@code items};
+ * pass it back as {@code after} to fetch the next page.  It is null when
+ * there are no more rows.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class KeysetPage<T, K> {
+  private List<T> items;
+  private K nextCursor;
+}
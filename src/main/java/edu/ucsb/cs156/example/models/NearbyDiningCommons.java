@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * A dining commons and its great-circle distance, in meters, from the point
+ * that was searched around.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class NearbyDiningCommons {
+  private UCSBDiningCommons commons;
+  private double distanceMeters;
+}
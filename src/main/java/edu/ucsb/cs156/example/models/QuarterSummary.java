@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.time.LocalDateTime;
+
+/**
+ * How many UCSB dates a quarter has, and when the first and last of them
+ * are.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class QuarterSummary {
+  private String quarterYYYYQ;
+  private long count;
+  private LocalDateTime first;
+  private LocalDateTime last;
+}
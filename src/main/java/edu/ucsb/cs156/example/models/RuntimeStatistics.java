@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * A snapshot of the running application, for the admin dashboard: JVM
+ * memory, garbage collection and threads, the connection pool, the
+ * second-level entity caches and the controller endpoints.  Memory is in
+ * bytes; times are in milliseconds.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class RuntimeStatistics {
+  private long uptimeMillis;
+  private long heapUsed;
+  private long heapCommitted;
+  private long heapMax;
+  private long nonHeapUsed;
+  private int liveThreads;
+  private int daemonThreads;
+  private int peakThreads;
+  private List<GarbageCollectorStatistics> garbageCollectors;
+  private ConnectionPoolStatistics connectionPool;
+  private List<EntityCacheStatistics> entityCaches;
+  private List<EndpointStatistics> endpoints;
+}
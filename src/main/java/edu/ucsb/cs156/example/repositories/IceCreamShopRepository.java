@@ -1,13 +1,77 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 import edu.ucsb.cs156.example.entities.IceCreamShop;
 
 
 @Repository
 public interface IceCreamShopRepository extends CrudRepository<IceCreamShop, Long> {
- 
-}
\ No newline at end of file
+  List<IceCreamShop> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true"),
+      @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE") })
+  Stream<IceCreamShop> streamAllByOrderByIdAsc();
+
+  /**
+   * Overwrite the updatable fields of one row.  The row is read through
+   * the second-level cache and written back by dirty checking, which
+   * replaces only its own cache entry.
+   *
+   * @return the number of rows changed (0 if there is no such id)
+   */
+  @Transactional
+  default int updateById(long id, IceCreamShop iceCreamShop) {
+    return findById(id).map(row -> {
+      row.setName(iceCreamShop.getName());
+      row.setAddress(iceCreamShop.getAddress());
+      row.setDescription(iceCreamShop.getDescription());
+      return 1;
+    }).orElse(0);
+  }
+
+  /**
+   * Delete one row, read through the second-level cache, evicting only
+   * its own cache entry.
+   *
+   * @return the number of rows deleted (0 if there is no such id)
+   */
+  @Transactional
+  default int deleteRowById(long id) {
+    return findById(id).map(row -> {
+      delete(row);
+      return 1;
+    }).orElse(0);
+  }
+
+  /**
+   * Delete every row whose id is in the list (callers keep the list short
+   * enough for one IN clause).
+   *
+   * @return the number of rows deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from icecreamshop e where e.id in :ids")
+  int deleteRowsByIds(@Param("ids") Collection<Long> ids);
+}
@@ -1,12 +1,107 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.QuarterSummary;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 
 @Repository
 public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
-  Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+  List<UCSBDate> findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(String quarterYYYYQ);
+
+  /**
+   * The dates of several quarters at once, grouped by quarter and in date
+   * order within each.
+   */
+  List<UCSBDate> findAllByQuarterYYYYQInOrderByQuarterYYYYQAscLocalDateTimeAscIdAsc(Collection<String> quarterYYYYQs);
+
+  List<UCSBDate> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  /**
+   * One page of the dates before {@code to}, in time then id order, that
+   * come after the date at {@code from} with id {@code after}: those later
+   * than {@code from}, and those at {@code from} with a greater id.  With
+   * {@code after} 0 that is every date at or after {@code from}.  The
+   * bounds on local_date_time keep the seek on its index.
+   */
+  @Query("select e from ucsbdates e where e.localDateTime >= :from and e.localDateTime < :to"
+      + " and (e.localDateTime > :from or e.id > :after) order by e.localDateTime, e.id")
+  List<UCSBDate> findRangeAfter(@Param("from") LocalDateTime from, @Param("after") long after,
+      @Param("to") LocalDateTime to, Pageable pageable);
+
+  List<UCSBDate> findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(LocalDateTime from);
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true"),
+      @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE") })
+  Stream<UCSBDate> streamAllByOrderByIdAsc();
+
+  /**
+   * The number of dates and the first and last of them for every quarter,
+   * in quarter order, in one grouped query.
+   */
+  @Query("select new edu.ucsb.cs156.example.models.QuarterSummary(e.quarterYYYYQ, count(e), min(e.localDateTime), max(e.localDateTime)) from ucsbdates e group by e.quarterYYYYQ order by e.quarterYYYYQ")
+  List<QuarterSummary> summarizeQuarters();
+
+  /**
+   * Overwrite the updatable fields of one row.  The row is read through
+   * the second-level cache and written back by dirty checking, which
+   * replaces only its own cache entry.
+   *
+   * @return the number of rows changed (0 if there is no such id)
+   */
+  @Transactional
+  default int updateById(long id, UCSBDate ucsbDate) {
+    return findById(id).map(row -> {
+      row.setQuarterYYYYQ(ucsbDate.getQuarterYYYYQ());
+      row.setName(ucsbDate.getName());
+      row.setLocalDateTime(ucsbDate.getLocalDateTime());
+      return 1;
+    }).orElse(0);
+  }
+
+  /**
+   * Delete one row, read through the second-level cache, evicting only
+   * its own cache entry.
+   *
+   * @return the number of rows deleted (0 if there is no such id)
+   */
+  @Transactional
+  default int deleteRowById(long id) {
+    return findById(id).map(row -> {
+      delete(row);
+      return 1;
+    }).orElse(0);
+  }
+
+  /**
+   * Delete every row whose id is in the list (callers keep the list short
+   * enough for one IN clause).
+   *
+   * @return the number of rows deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from ucsbdates e where e.id in :ids")
+  int deleteRowsByIds(@Param("ids") Collection<Long> ids);
+}
@@ -1,13 +1,80 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 
 @Repository
 public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
-}
\ No newline at end of file
+  List<UCSBDiningCommons> findByCodeGreaterThanOrderByCodeAsc(String code, Pageable pageable);
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READONLY, value = "true"),
+      @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE") })
+  Stream<UCSBDiningCommons> streamAllByOrderByCodeAsc();
+
+  /**
+   * Overwrite the updatable fields of one row.  The row is read through
+   * the second-level cache and written back by dirty checking, which
+   * replaces only its own cache entry.
+   *
+   * @return the number of rows changed (0 if there is no such code)
+   */
+  @Transactional
+  default int updateById(String code, UCSBDiningCommons commons) {
+    return findById(code).map(row -> {
+      row.setName(commons.getName());
+      row.setHasSackMeal(commons.getHasSackMeal());
+      row.setHasTakeOutMeal(commons.getHasTakeOutMeal());
+      row.setHasDiningCam(commons.getHasDiningCam());
+      row.setLatitude(commons.getLatitude());
+      row.setLongitude(commons.getLongitude());
+      return 1;
+    }).orElse(0);
+  }
+
+  /**
+   * Delete one row, read through the second-level cache, evicting only
+   * its own cache entry.
+   *
+   * @return the number of rows deleted (0 if there is no such code)
+   */
+  @Transactional
+  default int deleteRowById(String code) {
+    return findById(code).map(row -> {
+      delete(row);
+      return 1;
+    }).orElse(0);
+  }
+
+  /**
+   * Delete every row whose code is in the list (callers keep the list short
+   * enough for one IN clause).
+   *
+   * @return the number of rows deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from ucsbdiningcommons e where e.code in :codes")
+  int deleteRowsByIds(@Param("codes") Collection<String> codes);
+}
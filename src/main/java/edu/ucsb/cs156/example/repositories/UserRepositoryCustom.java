@@ -0,0 +1,14 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.User;
+
+public interface UserRepositoryCustom {
+  /**
+   * Insert this user, or if a row with the same Google sub already exists,
+   * update that row's email and profile from {@code user} and raise (never
+   * lower) its admin flag when {@code user} is an admin.  A row that already
+   * has the email under no sub is taken over, and the email is taken off a
+   * row under any other sub.  Either way the stored row is returned.
+   */
+  User upsertByGoogleSub(User user);
+}
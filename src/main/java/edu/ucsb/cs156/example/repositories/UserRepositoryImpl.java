@@ -0,0 +1,159 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.User;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.TypedParameterValue;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.BooleanType;
+import org.hibernate.type.StringType;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+/**
+ * Race free user provisioning.  PostgreSQL and H2 have no common upsert
+ * syntax, so the statement is picked from the Hibernate dialect: on
+ * PostgreSQL an {@code UPDATE} that falls through to an
+ * {@code INSERT ... ON CONFLICT}, in one statement, so that a returning user
+ * does not draw an id from users_seq; on H2 (in-process, so an extra
+ * statement costs no round trip) a {@code MERGE} followed by a read of the
+ * row.  Both rely on the unique index on users.google_sub from V6: the
+ * Google "sub" claim identifies an account for good, while its email may
+ * change.
+ *
+ * <p>The email is unique too, and may already be on another row.  That
+ * conflict is settled first, by {@link #CLAIM_EMAIL}, so that the upsert
+ * itself can only ever conflict on google_sub.
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+  // the order of the columns in every row read back below
+  private static final String COLUMNS =
+      "email, google_sub, picture_url, full_name, given_name, family_name, email_verified, locale, hosted_domain, admin";
+
+  /**
+   * Settles a row already holding this email (?1) under another sub (?2).
+   * A row with no sub at all was made before this sub ever logged in (by
+   * hand, or before subs were stored), so unless the sub has a row of its
+   * own it takes that row over, admin flag included.  Any other holder
+   * belongs to a different Google account; Google now gives the email to
+   * this one, so the old row only loses the email and keeps the rest.
+   * Every SET expression sees the row as it was before the update.
+   */
+  static final String CLAIM_EMAIL =
+      "UPDATE users SET "
+      + "google_sub = CASE WHEN google_sub IS NULL "
+      + "AND NOT EXISTS (SELECT 1 FROM users s WHERE s.google_sub = ?2) THEN ?2 ELSE google_sub END, "
+      + "email = CASE WHEN google_sub IS NULL "
+      + "AND NOT EXISTS (SELECT 1 FROM users s WHERE s.google_sub = ?2) THEN email END "
+      + "WHERE email = ?1 AND google_sub IS DISTINCT FROM ?2";
+
+  // the ON CONFLICT is only reached when a first login of the same sub
+  // inserts concurrently
+  static final String POSTGRES_UPSERT =
+      "WITH updated AS (UPDATE users SET email = ?1, picture_url = ?3, full_name = ?4, given_name = ?5, "
+      + "family_name = ?6, email_verified = ?7, locale = ?8, hosted_domain = ?9, admin = admin OR ?10 "
+      + "WHERE google_sub = ?2 RETURNING id, " + COLUMNS + "), "
+      + "inserted AS (INSERT INTO users (id, " + COLUMNS + ") "
+      + "SELECT nextval('users_seq'), ?1, ?2, ?3, ?4, ?5, ?6, ?7, ?8, ?9, ?10 "
+      + "WHERE NOT EXISTS (SELECT 1 FROM updated) "
+      + "ON CONFLICT (google_sub) DO UPDATE SET email = EXCLUDED.email, picture_url = EXCLUDED.picture_url, "
+      + "full_name = EXCLUDED.full_name, given_name = EXCLUDED.given_name, family_name = EXCLUDED.family_name, "
+      + "email_verified = EXCLUDED.email_verified, locale = EXCLUDED.locale, hosted_domain = EXCLUDED.hosted_domain, "
+      + "admin = users.admin OR EXCLUDED.admin "
+      + "RETURNING id, " + COLUMNS + ") "
+      + "SELECT * FROM updated UNION ALL SELECT * FROM inserted";
+
+  static final String H2_MERGE =
+      "MERGE INTO users u USING (SELECT "
+      + "CAST(?1 AS VARCHAR) email, CAST(?2 AS VARCHAR) google_sub, CAST(?3 AS VARCHAR) picture_url, "
+      + "CAST(?4 AS VARCHAR) full_name, CAST(?5 AS VARCHAR) given_name, CAST(?6 AS VARCHAR) family_name, "
+      + "CAST(?7 AS BOOLEAN) email_verified, CAST(?8 AS VARCHAR) locale, CAST(?9 AS VARCHAR) hosted_domain, "
+      + "CAST(?10 AS BOOLEAN) admin) s ON u.google_sub = s.google_sub "
+      + "WHEN MATCHED THEN UPDATE SET u.email = s.email, u.picture_url = s.picture_url, "
+      + "u.full_name = s.full_name, u.given_name = s.given_name, u.family_name = s.family_name, "
+      + "u.email_verified = s.email_verified, u.locale = s.locale, u.hosted_domain = s.hosted_domain, "
+      + "u.admin = u.admin OR s.admin "
+      + "WHEN NOT MATCHED THEN INSERT (id, " + COLUMNS + ") "
+      + "VALUES (NEXT VALUE FOR users_seq, s.email, s.google_sub, s.picture_url, s.full_name, s.given_name, "
+      + "s.family_name, s.email_verified, s.locale, s.hosted_domain, s.admin)";
+
+  static final String SELECT_BY_GOOGLE_SUB =
+      "SELECT id, " + COLUMNS + " FROM users WHERE google_sub = ?1";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  @Transactional
+  public User upsertByGoogleSub(User user) {
+    usersOnly(entityManager.createNativeQuery(CLAIM_EMAIL))
+        .setParameter(1, string(user.getEmail()))
+        .setParameter(2, string(user.getGoogleSub()))
+        .executeUpdate();
+    Object[] row;
+    if (isPostgres()) {
+      row = (Object[]) bind(entityManager.createNativeQuery(POSTGRES_UPSERT), user).getSingleResult();
+    } else {
+      bind(usersOnly(entityManager.createNativeQuery(H2_MERGE)), user).executeUpdate();
+      row = (Object[]) entityManager.createNativeQuery(SELECT_BY_GOOGLE_SUB)
+          .setParameter(1, user.getGoogleSub())
+          .getSingleResult();
+    }
+    // built from the columns rather than read as an entity: a User already
+    // in the persistence context would come back as it was, without the
+    // admin flag the statement may just have set
+    return User.builder()
+        .id(((Number) row[0]).longValue())
+        .email((String) row[1])
+        .googleSub((String) row[2])
+        .pictureUrl((String) row[3])
+        .fullName((String) row[4])
+        .givenName((String) row[5])
+        .familyName((String) row[6])
+        .emailVerified((Boolean) row[7])
+        .locale((String) row[8])
+        .hostedDomain((String) row[9])
+        .admin((Boolean) row[10])
+        .build();
+  }
+
+  // typed so that a null is bound as a string rather than as binary, which
+  // PostgreSQL will not put into a varchar column
+  private static Query bind(Query query, User user) {
+    return query
+        .setParameter(1, string(user.getEmail()))
+        .setParameter(2, string(user.getGoogleSub()))
+        .setParameter(3, string(user.getPictureUrl()))
+        .setParameter(4, string(user.getFullName()))
+        .setParameter(5, string(user.getGivenName()))
+        .setParameter(6, string(user.getFamilyName()))
+        .setParameter(7, new TypedParameterValue(BooleanType.INSTANCE, user.getEmailVerified()))
+        .setParameter(8, string(user.getLocale()))
+        .setParameter(9, string(user.getHostedDomain()))
+        .setParameter(10, new TypedParameterValue(BooleanType.INSTANCE, user.getAdmin()));
+  }
+
+  // a native write that names no table makes Hibernate evict every
+  // second-level cache region; these only touch users
+  private static Query usersOnly(Query query) {
+    return query.unwrap(NativeQuery.class).addSynchronizedEntityClass(User.class);
+  }
+
+  private static TypedParameterValue string(String value) {
+    return new TypedParameterValue(StringType.INSTANCE, value);
+  }
+
+  private boolean isPostgres() {
+    Dialect dialect = entityManager.getEntityManagerFactory()
+        .unwrap(SessionFactoryImplementor.class)
+        .getJdbcServices()
+        .getDialect();
+    return dialect instanceof PostgreSQL81Dialect;
+  }
+}
@@ -4,6 +4,7 @@ import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 
 import java.util.Collection;
+import java.util.Map;
 
 import org.springframework.security.core.GrantedAuthority;
 
@@ -11,6 +12,7 @@ public abstract class CurrentUserService {
   public abstract User getUser();
   public abstract CurrentUser getCurrentUser();
   public abstract Collection<? extends GrantedAuthority> getRoles();
+  public abstract User login(Map<String, Object> attributes);
 
   public final boolean isLoggedIn() {
     return getUser() != null;
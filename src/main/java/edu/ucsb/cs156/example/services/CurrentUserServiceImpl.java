@@ -5,10 +5,16 @@ import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import javax.annotation.PostConstruct;
+
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -33,41 +39,68 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   @Value("${app.admin.emails}")
   final private List<String> adminEmails = new ArrayList<String>();
 
+  // How long a resolved user is reused before the users table is read again.
+  // Every login writes the row and refreshes the entry (see login()); any
+  // other change, e.g. an admin flag set in the database, shows up once the
+  // entry expires.  Only login() writes: an expired entry is read back.
+  @Value("${app.currentUser.cache.ttlSeconds:300}")
+  private long userCacheTtlSeconds = 300;
+
+  // keyed by the Google "sub" claim, which (unlike the email) never changes
+  private Cache<String, User> usersBySub;
+
+  @PostConstruct
+  void buildUserCache() {
+    usersBySub = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofSeconds(userCacheTtlSeconds))
+        .maximumSize(10_000)
+        .build();
+  }
+
   public CurrentUser getCurrentUser() {
     CurrentUser cu = CurrentUser.builder()
       .user(this.getUser())
       .roles(this.getRoles())
       .build();
-    log.info("getCurrentUser returns {}",cu);
+    log.debug("getCurrentUser returns {}",cu);
     return cu;
   }
 
   
   public User getOAuth2AuthenticatedUser(SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
-    String email = oAuthUser.getAttribute("email");
     String googleSub = oAuthUser.getAttribute("sub");
-    String pictureUrl = oAuthUser.getAttribute("picture");
-    String fullName = oAuthUser.getAttribute("name");
-    String givenName = oAuthUser.getAttribute("given_name");
-    String familyName = oAuthUser.getAttribute("family_name");
-    boolean emailVerified = oAuthUser.getAttribute("email_verified");
-    String locale = oAuthUser.getAttribute("locale");
-    String hostedDomain = oAuthUser.getAttribute("hd");
-
-    java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}",attrs);
-
-    Optional<User> ou = userRepository.findByEmail(email);
-    if (ou.isPresent()) {
-      User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
-        u.setAdmin(true);
-        userRepository.save(u);
-      }
-      return u;
-    }
+    // null (and not cached) if the row has been deleted since the login,
+    // which makes the session count as logged out
+    return usersBySub.get(googleSub, sub -> userRepository.findByGoogleSub(sub).orElse(null));
+  }
+
+  /**
+   * Write the user from the claims of a fresh login and cache the stored
+   * row, replacing whatever was cached for them before.
+   */
+  public User login(Map<String, Object> attributes) {
+    User user = provision(attributes);
+    usersBySub.put(user.getGoogleSub(), user);
+    return user;
+  }
+
+  private User provision(Map<String, Object> attrs) {
+    String email = (String) attrs.get("email");
+    String googleSub = (String) attrs.get("sub");
+    String pictureUrl = (String) attrs.get("picture");
+    String fullName = (String) attrs.get("name");
+    String givenName = (String) attrs.get("given_name");
+    String familyName = (String) attrs.get("family_name");
+    boolean emailVerified = Boolean.TRUE.equals(attrs.get("email_verified"));
+    String locale = (String) attrs.get("locale");
+    String hostedDomain = (String) attrs.get("hd");
 
+    log.debug("attrs={}",attrs);
+
+    // one round trip: inserts a first time user, updates a returning one
+    // (whose email may have changed), promotes a configured admin, and
+    // returns the stored row in every case
     User u = User.builder()
         .googleSub(googleSub)
         .email(email)
@@ -80,8 +113,12 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .hostedDomain(hostedDomain)
         .admin(adminEmails.contains(email))
         .build();
-    userRepository.save(u);
-    return u;
+    return userRepository.upsertByGoogleSub(u);
+  }
+
+  // for benchmarks and tests that need to start from a cold cache
+  public void invalidateAllUsers() {
+    usersBySub.invalidateAll();
   }
 
   public User getUser() {
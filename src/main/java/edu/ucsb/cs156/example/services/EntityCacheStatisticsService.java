@@ -0,0 +1,9 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.List;
+
+import edu.ucsb.cs156.example.models.EntityCacheStatistics;
+
+public abstract class EntityCacheStatisticsService {
+  public abstract List<EntityCacheStatistics> getEntityCacheStatistics();
+}
@@ -0,0 +1,53 @@
+package edu.ucsb.cs156.example.services;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.cache.management.CacheStatisticsMXBean;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import edu.ucsb.cs156.example.models.EntityCacheStatistics;
+import org.springframework.stereotype.Service;
+
+// Reads the standard JCache (JSR-107) statistics MBeans, which the Caffeine
+// provider registers for every region with monitoring.statistics enabled
+// (see application.conf).
+
+@Service("entityCacheStatistics")
+public class EntityCacheStatisticsServiceImpl extends EntityCacheStatisticsService {
+
+  private static final ObjectName CACHE_STATISTICS = objectName("javax.cache:type=CacheStatistics,*");
+
+  private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+  public List<EntityCacheStatistics> getEntityCacheStatistics() {
+    return mBeanServer.queryNames(CACHE_STATISTICS, null).stream()
+        .sorted(Comparator.comparing(name -> name.getKeyProperty("Cache")))
+        .map(name -> {
+          CacheStatisticsMXBean stats = JMX.newMXBeanProxy(mBeanServer, name, CacheStatisticsMXBean.class);
+          return EntityCacheStatistics.builder()
+              .region(name.getKeyProperty("Cache"))
+              .hits(stats.getCacheHits())
+              .misses(stats.getCacheMisses())
+              .hitPercentage(stats.getCacheHitPercentage())
+              .puts(stats.getCachePuts())
+              .removals(stats.getCacheRemovals())
+              .evictions(stats.getCacheEvictions())
+              .build();
+        })
+        .collect(Collectors.toList());
+  }
+
+  private static ObjectName objectName(String name) {
+    try {
+      return new ObjectName(name);
+    } catch (MalformedObjectNameException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+}
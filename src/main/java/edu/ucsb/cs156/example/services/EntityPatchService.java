@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Applies the fields of a PATCH body to one row.  The entity is read through
+ * the second-level cache and written back by dirty checking, so only its own
+ * cache entry is replaced; a bulk {@code UPDATE ... WHERE id = ?} would
+ * empty the entity's whole cache region.
+ */
+@Service("entityPatch")
+public class EntityPatchService {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /**
+   * Set the given properties of the row with this id.
+   * Values are converted to the property types the same way Jackson converts
+   * a request body.
+   *
+   * @return the updated entity, or empty if no row has this id
+   * @throws BadRequestException if a property does not exist, is the id,
+   *                             or cannot hold the value given
+   */
+  @Transactional
+  public <T> Optional<T> patch(Class<T> type, Object id, Map<String, ?> fields) {
+    EntityType<T> entity = entityManager.getMetamodel().entity(type);
+    SingularAttribute<? super T, ?> idAttribute = entity.getId(entity.getIdType().getJavaType());
+
+    Map<String, Object> values = new LinkedHashMap<>();
+    fields.forEach((name, value) -> {
+      Attribute<? super T, ?> attribute = entity.getAttributes().stream()
+          .filter(a -> a.getName().equals(name) && !a.getName().equals(idAttribute.getName()))
+          .findFirst()
+          .orElseThrow(() -> new BadRequestException("%s has no updatable field %s".formatted(type.getSimpleName(), name)));
+      if (value == null && attribute.getJavaType().isPrimitive()) {
+        throw new BadRequestException("%s may not be null".formatted(name));
+      }
+      values.put(name, convert(name, value, attribute.getJavaType()));
+    });
+
+    T row = entityManager.find(type, id);
+    if (row != null) {
+      // the entities map their fields, not their getters
+      PropertyAccessorFactory.forDirectFieldAccess(row).setPropertyValues(values);
+    }
+    return Optional.ofNullable(row);
+  }
+
+  private Object convert(String name, Object value, Class<?> type) {
+    try {
+      return objectMapper.convertValue(value, type);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("%s cannot be set to %s".formatted(name, value));
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.annotation.PostConstruct;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized JSON of each entity listing (and a gzipped copy), so
+ * that repeating a request costs a buffer write rather than a query and a
+ * Jackson pass.
+ *
+ * Each entity type has a version which {@link #invalidate(Class)} bumps once
+ * the writing transaction has committed.  Cached bodies are tagged with the
+ * version that was current before their query ran, so a listing read while
+ * a write was in flight is never served after that write.
+ *
+ * The versions also make cheap validators: {@link #etag(Class)} changes
+ * whenever the entity's table is written, so a conditional GET can be
+ * answered without touching the database.
+ *
+ * Only writes made through this instance bump a version.  A change made
+ * anywhere else (another instance, psql) is picked up when the version
+ * expires: a version is replaced by the next one once it is older than
+ * app.responseCache.ttlSeconds, the same bound as the entity regions in
+ * application.conf.
+ */
+@Service("responseCache")
+public class ResponseCacheService {
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${app.responseCache.ttlSeconds:600}")
+  private long ttlSeconds = 600;
+
+  // read through a lambda below, so that tests can swap it
+  Ticker ticker = Ticker.systemTicker();
+
+  // versions restart at zero with the process; the epoch keeps ETags handed
+  // out before a restart from matching afterwards
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+  private final Map<Class<?>, Version> versions = new ConcurrentHashMap<>();
+
+  private Cache<Class<?>, CachedResponse> responses;
+
+  @AllArgsConstructor
+  private static class Version {
+    private final long number;
+    private final long since;
+  }
+
+  @PostConstruct
+  void buildResponseCache() {
+    responses = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .ticker(() -> ticker.read())
+        .build();
+  }
+
+  @Getter
+  @AllArgsConstructor(access = AccessLevel.PRIVATE)
+  public static class CachedResponse {
+    private final long version;
+    private final byte[] json;
+    private final byte[] gzip;
+  }
+
+  /**
+   * The cached listing for an entity type, running and serializing the
+   * query first if the cached copy is missing or out of date.
+   */
+  public CachedResponse get(Class<?> entity, Supplier<?> query) throws JsonProcessingException {
+    long version = version(entity);
+    CachedResponse cached = responses.getIfPresent(entity);
+    if (cached != null && cached.getVersion() == version) {
+      return cached;
+    }
+    byte[] json = objectMapper.writeValueAsBytes(query.get());
+    CachedResponse fresh = new CachedResponse(version, json, gzip(json));
+    responses.asMap().merge(entity, fresh, (old, latest) -> latest.getVersion() >= old.getVersion() ? latest : old);
+    return fresh;
+  }
+
+  public long version(Class<?> entity) {
+    Version version = versions.get(entity);
+    if (version == null || expired(version)) {
+      version = versions.compute(entity, (e, v) -> v == null ? new Version(0, ticker.read())
+          : expired(v) ? new Version(v.number + 1, ticker.read()) : v);
+    }
+    return version.number;
+  }
+
+  public String etag(Class<?> entity) {
+    return "%s-%d".formatted(epoch, version(entity));
+  }
+
+  /**
+   * Mark the listings of an entity type stale.  Inside a transaction this
+   * waits for the commit, so that no reader can cache the old rows under the
+   * new version; outside one the write has already been committed.
+   */
+  public void invalidate(Class<?> entity) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          bump(entity);
+        }
+      });
+    } else {
+      bump(entity);
+    }
+  }
+
+  public void clear() {
+    responses.invalidateAll();
+  }
+
+  private void bump(Class<?> entity) {
+    versions.compute(entity, (e, v) -> new Version(v == null ? 1 : v.number + 1, ticker.read()));
+    responses.invalidate(entity);
+  }
+
+  private boolean expired(Version version) {
+    return ticker.read() - version.since >= TimeUnit.SECONDS.toNanos(ttlSeconds);
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+}
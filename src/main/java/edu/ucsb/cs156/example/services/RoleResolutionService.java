@@ -0,0 +1,103 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which roles a user gets when they log in.  Admins come from
+ * app.admin.emails (held in a hash set) or from the admin column of the
+ * users row that the login writes through CurrentUserService, which also
+ * caches that row for the rest of the session; there is no second cache
+ * of admin flags to fall out of step with it.
+ *
+ * The time spent mapping authorities at login is recorded as the
+ * {@code app.login.roles} timer.
+ */
+@Slf4j
+@Service("roleResolution")
+public class RoleResolutionService {
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private CurrentUserService currentUserService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.admin.emails}")
+  private List<String> adminEmailList = new ArrayList<>();
+
+  private Set<String> adminEmails;
+
+  private Timer loginTimer;
+
+  @PostConstruct
+  void init() {
+    adminEmails = new HashSet<>(adminEmailList);
+    loginTimer = Timer.builder("app.login.roles")
+        .description("Time taken to map OAuth authorities to application roles at login")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+  }
+
+  /**
+   * The authorities granted at login: those from the OAuth provider plus
+   * ROLE_ADMIN and ROLE_MEMBER where they apply.
+   */
+  public Set<GrantedAuthority> mapAuthorities(Collection<? extends GrantedAuthority> authorities) {
+    return loginTimer.record(() -> {
+      Set<GrantedAuthority> mappedAuthorities = new HashSet<>(authorities);
+      for (GrantedAuthority authority : authorities) {
+        if (authority instanceof OAuth2UserAuthority) {
+          Map<String, Object> attributes = ((OAuth2UserAuthority) authority).getAttributes();
+          String email = (String) attributes.get("email");
+          log.debug("mapping authorities for {}: {}", email, authorities);
+          // write the row now, so that a changed email or profile is stored
+          // and the cached user is fresh from the start of the session; the
+          // row also carries the admin flag
+          User user = currentUserService.login(attributes);
+          if (adminEmails.contains(email) || Boolean.TRUE.equals(user.getAdmin())) {
+            mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+          }
+          if (email.endsWith("@ucsb.edu")) {
+            mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_MEMBER"));
+          }
+        }
+      }
+      return mappedAuthorities;
+    });
+  }
+
+  /**
+   * Whether this email belongs to an admin.  Reads the users table unless
+   * the email is configured; logins get the flag from their own row instead.
+   */
+  public boolean isAdmin(String email) {
+    if (adminEmails.contains(email)) {
+      return true;
+    }
+    return userRepository.findByEmail(email).map(User::getAdmin).orElse(false);
+  }
+}
@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.models.RuntimeStatistics;
+
+public abstract class RuntimeStatisticsService {
+  public abstract RuntimeStatistics getRuntimeStatistics();
+}
@@ -0,0 +1,127 @@
+package edu.ucsb.cs156.example.services;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.models.ConnectionPoolStatistics;
+import edu.ucsb.cs156.example.models.EndpointStatistics;
+import edu.ucsb.cs156.example.models.GarbageCollectorStatistics;
+import edu.ucsb.cs156.example.models.RuntimeStatistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+
+// JVM figures come straight from the platform MXBeans.  Connection pool and
+// endpoint figures are read back from Micrometer: HikariCP registers its
+// hikaricp.* meters there (with actuator on the classpath), and
+// LoggingAspect registers the app.controller.* ones.
+
+@Service("runtimeStatistics")
+public class RuntimeStatisticsServiceImpl extends RuntimeStatisticsService {
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private EntityCacheStatisticsService entityCacheStatisticsService;
+
+  public RuntimeStatistics getRuntimeStatistics() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    return RuntimeStatistics.builder()
+        .uptimeMillis(uptimeMillis)
+        .heapUsed(memory.getHeapMemoryUsage().getUsed())
+        .heapCommitted(memory.getHeapMemoryUsage().getCommitted())
+        .heapMax(memory.getHeapMemoryUsage().getMax())
+        .nonHeapUsed(memory.getNonHeapMemoryUsage().getUsed())
+        .liveThreads(threads.getThreadCount())
+        .daemonThreads(threads.getDaemonThreadCount())
+        .peakThreads(threads.getPeakThreadCount())
+        .garbageCollectors(garbageCollectors())
+        .connectionPool(connectionPool())
+        .entityCaches(entityCacheStatisticsService.getEntityCacheStatistics())
+        .endpoints(endpoints(uptimeMillis))
+        .build();
+  }
+
+  private static List<GarbageCollectorStatistics> garbageCollectors() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .map((GarbageCollectorMXBean gc) -> GarbageCollectorStatistics.builder()
+            .name(gc.getName())
+            .collections(gc.getCollectionCount())
+            .collectionMillis(gc.getCollectionTime())
+            .build())
+        .collect(Collectors.toList());
+  }
+
+  /** The pool's figures, or null if no HikariCP pool has registered meters. */
+  ConnectionPoolStatistics connectionPool() {
+    Gauge active = meterRegistry.find("hikaricp.connections.active").gauge();
+    if (active == null) {
+      return null;
+    }
+    String pool = active.getId().getTag("pool");
+    Optional<Timer> acquire = Optional.ofNullable(
+        meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer());
+    return ConnectionPoolStatistics.builder()
+        .pool(pool)
+        .active((int) active.value())
+        .idle((int) gaugeValue("hikaricp.connections.idle", pool))
+        .pending((int) gaugeValue("hikaricp.connections.pending", pool))
+        .max((int) gaugeValue("hikaricp.connections.max", pool))
+        .acquired(acquire.map(Timer::count).orElse(0L))
+        .acquireMeanMillis(acquire.map(t -> t.mean(TimeUnit.MILLISECONDS)).orElse(0.0))
+        .acquireMaxMillis(acquire.map(t -> t.max(TimeUnit.MILLISECONDS)).orElse(0.0))
+        .timeouts(Optional.ofNullable(
+            meterRegistry.find("hikaricp.connections.timeout").tag("pool", pool).counter())
+            .map(c -> (long) c.count()).orElse(0L))
+        .build();
+  }
+
+  private double gaugeValue(String name, String pool) {
+    return Optional.ofNullable(meterRegistry.find(name).tag("pool", pool).gauge())
+        .map(Gauge::value)
+        .orElse(0.0);
+  }
+
+  /** One entry per handler that has been called, busiest first. */
+  List<EndpointStatistics> endpoints(long uptimeMillis) {
+    double minutes = Math.max(uptimeMillis, 1) / 60_000.0;
+    return meterRegistry.find("app.controller.requests").timers().stream()
+        .map(timer -> {
+          String controller = timer.getId().getTag("controller");
+          String handler = timer.getId().getTag("handler");
+          double errors = meterRegistry.find("app.controller.errors")
+              .tags(List.of(Tag.of("controller", controller), Tag.of("handler", handler)))
+              .counters().stream()
+              .mapToDouble(Counter::count)
+              .sum();
+          return EndpointStatistics.builder()
+              .controller(controller)
+              .handler(handler)
+              .requests(timer.count())
+              .requestsPerMinute(timer.count() / minutes)
+              .errors((long) errors)
+              .meanMillis(timer.mean(TimeUnit.MILLISECONDS))
+              .maxMillis(timer.max(TimeUnit.MILLISECONDS))
+              .build();
+        })
+        .sorted(Comparator.comparingLong(EndpointStatistics::getRequests).reversed()
+            .thenComparing(EndpointStatistics::getController)
+            .thenComparing(EndpointStatistics::getHandler))
+        .collect(Collectors.toList());
+  }
+}
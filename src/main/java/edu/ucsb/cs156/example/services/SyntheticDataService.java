@@ -0,0 +1,276 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.AmusementPark;
+import edu.ucsb.cs156.example.entities.Book;
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.entities.IceCreamShop;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.School;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.User;
+import lombok.extern.slf4j.Slf4j;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fills every entity table with made up but plausible rows, so that
+ * benchmarks, load tests and a development database can run against
+ * production sized tables.
+ *
+ * Rows are written with plain JDBC batches of {@link #BATCH_SIZE}, each
+ * committed on its own.  Ids are taken from the same sequences (and in the
+ * same blocks of 50) that Hibernate's pooled-lo generators use, so the
+ * application keeps creating rows normally afterwards.
+ *
+ * The same seed always produces the same rows.  Users and dining commons
+ * get keys derived from the seed (their email, Google sub and code must be
+ * unique), so generating twice with one seed is refused; use another seed
+ * to add more rows.
+ */
+@Slf4j
+@Service("syntheticData")
+public class SyntheticDataService {
+
+  // keep a multiple of ID_BLOCK, so each batch takes whole blocks of ids
+  static final int BATCH_SIZE = 1000;
+
+  // the allocationSize of the entities' @SequenceGenerator
+  static final int ID_BLOCK = 50;
+
+  private static final String[] FIRST_NAMES = { "Chris", "Alex", "Jordan", "Taylor", "Morgan", "Casey", "Jamie",
+      "Riley", "Avery", "Quinn", "Sam", "Drew", "Reese", "Skyler", "Dakota", "Rowan" };
+  private static final String[] LAST_NAMES = { "Gaucho", "Nguyen", "Garcia", "Smith", "Kim", "Patel", "Lopez",
+      "Chen", "Johnson", "Martinez", "Brown", "Lee", "Wilson", "Davis", "Clark", "Lewis" };
+  private static final String[] WORDS = { "Golden", "Pacific", "Coastal", "Island", "Sunset", "Harbor", "Canyon",
+      "Mesa", "Ocean", "Lagoon", "Mission", "Channel", "Valley", "Summit", "Cypress", "Sycamore" };
+  private static final String[] STREETS = { "State St", "Cabrillo Blvd", "Hollister Ave", "Storke Rd",
+      "El Colegio Rd", "Embarcadero del Norte", "Milpas St", "Anacapa St" };
+  private static final String[] CITIES = { "Santa Barbara, CA", "Goleta, CA", "Isla Vista, CA", "Ventura, CA",
+      "Carpinteria, CA", "Los Angeles, CA", "San Luis Obispo, CA", "Anaheim, CA" };
+  private static final String[] GENRES = { "Puzzle", "Strategy", "Platformer", "Role Playing", "Racing", "Sports",
+      "Simulation", "Party" };
+  private static final String[] SPECIALTIES = { "Tacos", "Sushi", "Pizza", "Burgers", "Pho", "Burritos", "Ramen",
+      "Seafood" };
+  private static final String[] DESCRIPTIONS = { "Open late", "Family friendly", "Student discount",
+      "Ocean views", "Locally owned", "Award winning", "Dog friendly", "Cash only" };
+  private static final String[] DATE_NAMES = { "First day of instruction", "Last day of instruction",
+      "Finals week", "Registration pass 1", "Registration pass 2", "Add/drop deadline", "Holiday",
+      "Commencement" };
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private ResponseCacheService responseCacheService;
+
+  @Autowired
+  private UCSBDiningCommonsIndex ucsbDiningCommonsIndex;
+
+  @Autowired
+  private UCSBDateQuarterCache ucsbDateQuarterCache;
+
+  @FunctionalInterface
+  private interface RowWriter {
+    void write(PreparedStatement ps, Random random, long n) throws SQLException;
+  }
+
+  /**
+   * Add {@code rows} generated rows to every entity table.
+   *
+   * @return the number of rows added, by table name
+   * @throws IllegalArgumentException if rows is negative
+   * @throws IllegalStateException    if rows for this seed already exist
+   */
+  public Map<String, Long> generate(long rows, long seed) {
+    if (rows < 0) {
+      throw new IllegalArgumentException("rows may not be negative");
+    }
+    Integer existing = jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM users WHERE google_sub = ?", Integer.class, googleSub(seed, 1));
+    if (existing != null && existing > 0) {
+      throw new IllegalStateException("Rows for seed %d have already been generated".formatted(seed));
+    }
+
+    Map<String, Long> counts = new LinkedHashMap<>();
+    counts.put("users", insert("users", "users_seq",
+        List.of("email", "google_sub", "picture_url", "full_name", "given_name", "family_name", "email_verified",
+            "locale", "hosted_domain", "admin"),
+        rows, seed, (ps, random, n) -> {
+          String given = pick(random, FIRST_NAMES);
+          String family = pick(random, LAST_NAMES);
+          ps.setString(1, "%s.%s.%d.%d@example.org".formatted(given, family, seed, n).toLowerCase());
+          ps.setString(2, googleSub(seed, n));
+          ps.setString(3, "https://example.org/photos/%d/%d.jpg".formatted(seed, n));
+          ps.setString(4, given + " " + family);
+          ps.setString(5, given);
+          ps.setString(6, family);
+          ps.setBoolean(7, random.nextInt(10) > 0);
+          ps.setString(8, "en");
+          ps.setString(9, "example.org");
+          ps.setBoolean(10, random.nextInt(1000) == 0);
+        }));
+    counts.put("amusement_parks", insert("amusement_parks", "amusement_parks_seq",
+        List.of("name", "address", "description"), rows, seed, (ps, random, n) -> {
+          ps.setString(1, pick(random, WORDS) + " " + pick(random, WORDS) + " Park");
+          ps.setString(2, address(random));
+          ps.setString(3, pick(random, DESCRIPTIONS));
+        }));
+    counts.put("books", insert("books", "books_seq",
+        List.of("title", "author", "publicdate"), rows, seed, (ps, random, n) -> {
+          ps.setString(1, "The " + pick(random, WORDS) + " " + pick(random, WORDS));
+          ps.setString(2, pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES));
+          ps.setString(3, "%d/%02d/%02d".formatted(1950 + random.nextInt(74), 1 + random.nextInt(12),
+              1 + random.nextInt(28)));
+        }));
+    counts.put("games", insert("games", "games_seq",
+        List.of("name", "creator", "genre"), rows, seed, (ps, random, n) -> {
+          ps.setString(1, pick(random, WORDS) + " " + pick(random, WORDS) + " " + (1 + random.nextInt(5)));
+          ps.setString(2, pick(random, LAST_NAMES) + " Games");
+          ps.setString(3, pick(random, GENRES));
+        }));
+    counts.put("icecreamshop", insert("icecreamshop", "icecreamshop_seq",
+        List.of("name", "address", "description"), rows, seed, (ps, random, n) -> {
+          ps.setString(1, pick(random, WORDS) + " Creamery");
+          ps.setString(2, address(random));
+          ps.setString(3, pick(random, DESCRIPTIONS));
+        }));
+    counts.put("restaurant", insert("restaurant", "restaurant_seq",
+        List.of("name", "address", "specialty"), rows, seed, (ps, random, n) -> {
+          ps.setString(1, pick(random, LAST_NAMES) + "'s " + pick(random, SPECIALTIES));
+          ps.setString(2, address(random));
+          ps.setString(3, pick(random, SPECIALTIES));
+        }));
+    counts.put("schools", insert("schools", "schools_seq",
+        List.of("name", "address", "description"), rows, seed, (ps, random, n) -> {
+          ps.setString(1, pick(random, WORDS) + " " + pick(random, new String[] { "High School", "College",
+              "University", "Elementary School" }));
+          ps.setString(2, address(random));
+          ps.setString(3, pick(random, DESCRIPTIONS));
+        }));
+    counts.put("ucsbdates", insert("ucsbdates", "ucsbdates_seq",
+        List.of("quarteryyyyq", "name", "local_date_time"), rows, seed, (ps, random, n) -> {
+          // quarters from Winter 1990 through Fall 2039, dated inside the quarter
+          int year = 1990 + random.nextInt(50);
+          int quarter = 1 + random.nextInt(4);
+          LocalDateTime start = LocalDateTime.of(year, 1 + (quarter - 1) * 3, 1, 8, 0);
+          ps.setString(1, "%d%d".formatted(year, quarter));
+          ps.setString(2, pick(random, DATE_NAMES));
+          ps.setTimestamp(3, Timestamp.valueOf(start.plusDays(random.nextInt(90)).plusHours(random.nextInt(12))));
+        }));
+    counts.put("ucsbdiningcommons", insert("ucsbdiningcommons", null,
+        List.of("code", "name", "has_sack_meal", "has_take_out_meal", "has_dining_cam", "latitude", "longitude"),
+        rows, seed, (ps, random, n) -> {
+          ps.setString(1, "commons-%d-%d".formatted(seed, n));
+          ps.setString(2, pick(random, WORDS) + " Commons");
+          ps.setBoolean(3, random.nextBoolean());
+          ps.setBoolean(4, random.nextBoolean());
+          ps.setBoolean(5, random.nextBoolean());
+          // within about 10km of campus
+          ps.setDouble(6, 34.4140 + (random.nextDouble() - 0.5) * 0.2);
+          ps.setDouble(7, -119.8489 + (random.nextDouble() - 0.5) * 0.2);
+        }));
+
+    // the rows went around Hibernate, so nothing cached can be trusted
+    entityManagerFactory.getCache().evictAll();
+    List.of(User.class, AmusementPark.class, Book.class, Game.class, IceCreamShop.class, Restaurant.class,
+        School.class, UCSBDate.class, UCSBDiningCommons.class).forEach(responseCacheService::invalidate);
+    ucsbDiningCommonsIndex.clear();
+    ucsbDateQuarterCache.clear();
+    return counts;
+  }
+
+  /**
+   * Insert {@code rows} rows into one table.  The writer fills in the given
+   * columns; with a sequence, an id column is added after them.
+   */
+  private long insert(String table, String sequence, List<String> columns, long rows, long seed, RowWriter writer) {
+    List<String> allColumns = new ArrayList<>(columns);
+    if (sequence != null) {
+      allColumns.add("id");
+    }
+    String sql = "INSERT INTO %s (%s) VALUES (%s)".formatted(table, String.join(", ", allColumns),
+        String.join(", ", Collections.nCopies(allColumns.size(), "?")));
+    String nextIdBlock = sequence == null ? null : nextValueSql(sequence);
+
+    // one generator per table, so adding a table never changes another's rows
+    Random random = new Random(seed * 31 + table.hashCode());
+    long started = System.nanoTime();
+    for (long first = 1; first <= rows; first += BATCH_SIZE) {
+      int size = (int) Math.min(BATCH_SIZE, rows - first + 1);
+      long[] ids = nextIdBlock == null ? null : reserveIds(nextIdBlock, size);
+      long batchStart = first;
+      jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+        @Override
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+          writer.write(ps, random, batchStart + i);
+          if (ids != null) {
+            ps.setLong(columns.size() + 1, ids[i]);
+          }
+        }
+
+        @Override
+        public int getBatchSize() {
+          return size;
+        }
+      });
+    }
+    log.info("generated {} rows in {} in {} ms", rows, table, (System.nanoTime() - started) / 1_000_000);
+    return rows;
+  }
+
+  /**
+   * Take enough blocks of ids from a pooled-lo sequence for {@code count}
+   * rows: each value the sequence hands out is the first of ID_BLOCK ids.
+   */
+  private long[] reserveIds(String nextValueSql, int count) {
+    long[] ids = new long[count];
+    for (int i = 0; i < count; i += ID_BLOCK) {
+      Long low = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+      for (int j = i; j < Math.min(count, i + ID_BLOCK); j++) {
+        ids[j] = low + (j - i);
+      }
+    }
+    return ids;
+  }
+
+  // H2 and PostgreSQL spell "next value of a sequence" differently
+  private String nextValueSql(String sequence) {
+    return entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+        .getJdbcServices()
+        .getDialect()
+        .getSequenceNextValString(sequence);
+  }
+
+  private static String googleSub(long seed, long n) {
+    return "synthetic-%d-%d".formatted(seed, n);
+  }
+
+  private static String address(Random random) {
+    return "%d %s, %s".formatted(1 + random.nextInt(9999), pick(random, STREETS), pick(random, CITIES));
+  }
+
+  private static String pick(Random random, String[] choices) {
+    return choices[random.nextInt(choices.length)];
+  }
+}
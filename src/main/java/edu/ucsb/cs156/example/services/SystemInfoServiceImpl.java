@@ -26,7 +26,7 @@ public class SystemInfoServiceImpl extends SystemInfoService {
     .springH2ConsoleEnabled(this.springH2ConsoleEnabled)
     .showSwaggerUILink(this.showSwaggerUILink)
     .build();
-  log.info("getSystemInfo returns {}",si);
+  log.debug("getSystemInfo returns {}",si);
   return si;
   }
 
@@ -0,0 +1,233 @@
+package edu.ucsb.cs156.example.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.QuarterSummary;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * iCalendar (RFC 5545) feeds of the UCSB dates, one per quarter and one for
+ * every quarter, kept as ready-to-send bytes so that a calendar app polling
+ * for changes costs a map lookup.
+ *
+ * A quarter's events are rendered from the list {@link UCSBDateQuarterCache}
+ * holds for it, and rendered again only when that cache hands back a
+ * different list, that is after the quarter was written.  The feed of every
+ * quarter is put together from the per-quarter events, so a write to one
+ * quarter re-renders only that quarter.
+ *
+ * Nothing in a feed depends on when it was rendered: each event's DTSTAMP
+ * is the time its row was last written, and a feed's Last-Modified is the
+ * newest of those.  Rendering the same rows again, after an eviction or a
+ * restart, gives the same bytes and so the same ETag.  A delete leaves
+ * Last-Modified where it was unless it removes the newest row; the ETag,
+ * which clients check first, changes either way.
+ */
+@Service("ucsbDateCalendar")
+public class UCSBDateCalendar {
+
+  public static final String CONTENT_TYPE = "text/calendar;charset=UTF-8";
+
+  private static final DateTimeFormatter LOCAL = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+  private static final DateTimeFormatter UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+  @Autowired
+  private UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  private UCSBDateQuarterCache ucsbDateQuarterCache;
+
+  @Autowired
+  private ResponseCacheService responseCacheService;
+
+  @Getter
+  @AllArgsConstructor(access = AccessLevel.PRIVATE)
+  public static class Feed {
+    private final byte[] ics;
+    private final String etag;
+    // epoch millis, or -1 for a feed with no events
+    private final long lastModified;
+  }
+
+  @AllArgsConstructor
+  private static class QuarterFeed {
+    // the quarter cache's list these were rendered from
+    final List<UCSBDate> source;
+    final byte[] events;
+    final long lastModified;
+    final Feed feed;
+  }
+
+  @AllArgsConstructor
+  private static class AllFeed {
+    final long version;
+    final long generation;
+    final Feed feed;
+  }
+
+  // bounded like the quarter cache it follows, since any quarter may be asked for
+  private final Cache<String, QuarterFeed> quarters = Caffeine.newBuilder()
+      .maximumSize(UCSBDateQuarterCache.MAX_QUARTERS)
+      .build();
+
+  private volatile AllFeed all;
+
+  /** The feed of one quarter's dates. */
+  public Feed quarter(String quarterYYYYQ) {
+    List<UCSBDate> dates = ucsbDateQuarterCache.get(quarterYYYYQ,
+        () -> ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(quarterYYYYQ));
+    return quarterFeed(quarterYYYYQ, dates).feed;
+  }
+
+  /**
+   * The feed of every quarter's dates.  Dates that have no quarter are left
+   * out.  The quarters not already cached are loaded together in one query.
+   */
+  public Feed all() {
+    long version = responseCacheService.version(UCSBDate.class);
+    long generation = ucsbDateQuarterCache.generation();
+    AllFeed current = all;
+    if (current != null && current.version == version && current.generation == generation) {
+      return current.feed;
+    }
+    List<String> quarterYYYYQs = ucsbDateRepository.summarizeQuarters().stream()
+        .map(QuarterSummary::getQuarterYYYYQ)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+    Map<String, List<UCSBDate>> dates = ucsbDateQuarterCache.getAll(quarterYYYYQs,
+        missing -> ucsbDateRepository.findAllByQuarterYYYYQInOrderByQuarterYYYYQAscLocalDateTimeAscIdAsc(missing)
+            .stream()
+            .collect(Collectors.groupingBy(UCSBDate::getQuarterYYYYQ)));
+    ByteArrayOutputStream events = new ByteArrayOutputStream();
+    long lastModified = -1;
+    for (Map.Entry<String, List<UCSBDate>> quarter : dates.entrySet()) {
+      QuarterFeed quarterFeed = quarterFeed(quarter.getKey(), quarter.getValue());
+      events.writeBytes(quarterFeed.events);
+      lastModified = Math.max(lastModified, quarterFeed.lastModified);
+    }
+    Feed feed = feed("UCSB dates", events.toByteArray(), lastModified);
+    all = new AllFeed(version, generation, feed);
+    return feed;
+  }
+
+  private QuarterFeed quarterFeed(String quarterYYYYQ, List<UCSBDate> dates) {
+    QuarterFeed current = quarters.getIfPresent(quarterYYYYQ);
+    if (current != null && current.source == dates) {
+      return current;
+    }
+    byte[] events = events(dates);
+    long lastModified = dates.stream()
+        .filter(date -> date.getLocalDateTime() != null)
+        .mapToLong(date -> stamp(date).toEpochMilli())
+        .max()
+        .orElse(-1);
+    QuarterFeed fresh = new QuarterFeed(dates, events, lastModified,
+        feed("UCSB dates " + quarterYYYYQ, events, lastModified));
+    quarters.put(quarterYYYYQ, fresh);
+    return fresh;
+  }
+
+  private static byte[] events(List<UCSBDate> dates) {
+    StringBuilder ics = new StringBuilder(dates.size() * 160);
+    for (UCSBDate date : dates) {
+      if (date.getLocalDateTime() == null) {
+        continue;
+      }
+      line(ics, "BEGIN:VEVENT");
+      line(ics, "UID:ucsbdate-" + date.getId() + "@ucsb-cs156");
+      line(ics, "DTSTAMP:" + UTC.format(stamp(date)));
+      // floating time: the dates are stored without a zone, and mean campus time
+      line(ics, "DTSTART:" + LOCAL.format(date.getLocalDateTime()));
+      line(ics, "SUMMARY:" + text(date.getName()));
+      if (date.getQuarterYYYYQ() != null) {
+        line(ics, "CATEGORIES:" + text(date.getQuarterYYYYQ()));
+      }
+      line(ics, "END:VEVENT");
+    }
+    return ics.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  // whole seconds, as both DTSTAMP and HTTP dates have; a row written
+  // without Hibernate and without the column's default has no time at all
+  private static Instant stamp(UCSBDate date) {
+    return date.getUpdatedAt() == null ? Instant.EPOCH : date.getUpdatedAt().truncatedTo(ChronoUnit.SECONDS);
+  }
+
+  private static Feed feed(String name, byte[] events, long lastModified) {
+    StringBuilder header = new StringBuilder();
+    line(header, "BEGIN:VCALENDAR");
+    line(header, "VERSION:2.0");
+    line(header, "PRODID:-//UCSB CS156//UCSB Dates//EN");
+    line(header, "CALSCALE:GREGORIAN");
+    line(header, "X-WR-CALNAME:" + text(name));
+    byte[] head = header.toString().getBytes(StandardCharsets.UTF_8);
+    byte[] foot = "END:VCALENDAR\r\n".getBytes(StandardCharsets.UTF_8);
+
+    byte[] ics = Arrays.copyOf(head, head.length + events.length + foot.length);
+    System.arraycopy(events, 0, ics, head.length, events.length);
+    System.arraycopy(foot, 0, ics, head.length + events.length, foot.length);
+    return new Feed(ics, HexFormat.of().formatHex(sha256(ics), 0, 12), lastModified);
+  }
+
+  /** Append a content line, folded so that no line is longer than 75 octets. */
+  static void line(StringBuilder ics, String line) {
+    int octets = 0;
+    for (int i = 0; i < line.length(); ) {
+      int codePoint = line.codePointAt(i);
+      int width = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+      if (octets + width > 75) {
+        ics.append("\r\n ");
+        octets = 1;
+      }
+      ics.appendCodePoint(codePoint);
+      octets += width;
+      i += Character.charCount(codePoint);
+    }
+    ics.append("\r\n");
+  }
+
+  /** Escape a TEXT value. */
+  static String text(String value) {
+    if (value == null) {
+      return "";
+    }
+    return value.replace("\\", "\\\\")
+        .replace(";", "\\;")
+        .replace(",", "\\,")
+        .replace("\r\n", "\\n")
+        .replace("\n", "\\n")
+        .replace("\r", "\\n");
+  }
+
+  private static byte[] sha256(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package edu.ucsb.cs156.example.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the UCSB dates of each quarter that has been asked for, so that a
+ * term-planning page costs one query per quarter until that quarter is
+ * written.
+ *
+ * Writes invalidate only the quarters they touch.  A write that names its
+ * rows by id (delete, and the old quarter of a put or patch) drops whichever
+ * cached quarter holds that id; since a cached quarter holds every row the
+ * quarter had, a quarter that holds none of the ids was not touched.
+ *
+ * As with {@link ResponseCacheService}, invalidation waits for the writing
+ * transaction to commit, and a quarter read while an invalidation happened
+ * is returned but not kept.
+ *
+ * At most MAX_QUARTERS quarters are kept (Caffeine evicts those least
+ * likely to be asked for again), since anyone may ask for any quarter; see
+ * the calendar feeds.
+ */
+@Service("ucsbDateQuarterCache")
+public class UCSBDateQuarterCache {
+
+  // 250 years' worth; enough to hold every real quarter at once
+  public static final int MAX_QUARTERS = 1000;
+
+  private final Cache<String, List<UCSBDate>> quarters = Caffeine.newBuilder()
+      .maximumSize(MAX_QUARTERS)
+      .build();
+
+  // guarded by this
+  private final Map<String, Long> versions = new HashMap<>();
+  private long idInvalidations;
+  private long generation;
+
+  /**
+   * The dates of a quarter, running the query first if they are not
+   * cached.
+   */
+  public List<UCSBDate> get(String quarterYYYYQ, Supplier<List<UCSBDate>> query) {
+    return getAll(List.of(quarterYYYYQ), missing -> Map.of(quarterYYYYQ, query.get())).get(quarterYYYYQ);
+  }
+
+  /**
+   * The dates of each of these quarters, in the order given.  Those not
+   * cached are loaded with one call to the query, which is passed the
+   * missing quarters and returns their dates by quarter (a quarter it
+   * leaves out has no dates).
+   */
+  public Map<String, List<UCSBDate>> getAll(Collection<String> quarterYYYYQs,
+      Function<Set<String>, Map<String, List<UCSBDate>>> query) {
+    Map<String, List<UCSBDate>> found = new LinkedHashMap<>();
+    Set<String> missing = new LinkedHashSet<>();
+    for (String quarterYYYYQ : quarterYYYYQs) {
+      List<UCSBDate> cached = quarters.getIfPresent(quarterYYYYQ);
+      found.put(quarterYYYYQ, cached);
+      if (cached == null) {
+        missing.add(quarterYYYYQ);
+      }
+    }
+    if (missing.isEmpty()) {
+      return found;
+    }
+    Map<String, Long> versionsBefore = new HashMap<>();
+    long idGeneration;
+    synchronized (this) {
+      missing.forEach(quarter -> versionsBefore.put(quarter, versions.getOrDefault(quarter, 0L)));
+      idGeneration = idInvalidations;
+    }
+    Map<String, List<UCSBDate>> loaded = query.apply(Collections.unmodifiableSet(missing));
+    synchronized (this) {
+      for (String quarter : missing) {
+        List<UCSBDate> dates = List.copyOf(loaded.getOrDefault(quarter, List.of()));
+        found.put(quarter, dates);
+        if (versionsBefore.get(quarter).equals(versions.getOrDefault(quarter, 0L)) && idGeneration == idInvalidations) {
+          quarters.put(quarter, dates);
+        }
+      }
+    }
+    return found;
+  }
+
+  /** Drop the given quarters, once the current transaction (if any) commits. */
+  public void invalidateQuarters(Collection<String> quarterYYYYQs) {
+    afterCommit(() -> {
+      synchronized (this) {
+        quarterYYYYQs.forEach(this::drop);
+      }
+    });
+  }
+
+  /**
+   * Drop the quarters holding any of these ids, once the current
+   * transaction (if any) commits.
+   */
+  public void invalidateIds(Collection<Long> ids) {
+    // each cached date is checked against the ids, and a bulk write may
+    // carry thousands of them
+    Set<Long> idSet = new HashSet<>(ids);
+    afterCommit(() -> {
+      synchronized (this) {
+        idInvalidations++;
+        quarters.asMap().forEach((quarter, dates) -> {
+          if (dates.stream().anyMatch(date -> idSet.contains(date.getId()))) {
+            drop(quarter);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * A number that changes whenever any quarter is dropped, for callers that
+   * keep something derived from several quarters.
+   */
+  public synchronized long generation() {
+    return generation;
+  }
+
+  /** Forget every quarter, for writes that go around the controller. */
+  public synchronized void clear() {
+    idInvalidations++;
+    List.copyOf(quarters.asMap().keySet()).forEach(this::drop);
+  }
+
+  private void drop(String quarterYYYYQ) {
+    if (quarterYYYYQ == null) {
+      return;
+    }
+    generation++;
+    versions.merge(quarterYYYYQ, 1L, Long::sum);
+    quarters.invalidate(quarterYYYYQ);
+  }
+
+  private static void afterCommit(Runnable change) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          change.run();
+        }
+      });
+    } else {
+      change.run();
+    }
+  }
+}
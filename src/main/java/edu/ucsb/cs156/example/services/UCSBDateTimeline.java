@@ -0,0 +1,83 @@
+package edu.ucsb.cs156.example.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The UCSB dates that had not yet passed when it was built, in a
+ * {@link NavigableMap} keyed by timestamp, so that "what comes next" is a
+ * tail map walk rather than a query.
+ *
+ * The map is rebuilt on the first lookup after the dates are written,
+ * using the same versions as {@link ResponseCacheService}: a map is tagged
+ * with the version current before its query ran, so one read while a write
+ * was in flight is never used after that write.
+ */
+@Service("ucsbDateTimeline")
+public class UCSBDateTimeline {
+
+  @Autowired
+  private UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  private ResponseCacheService responseCacheService;
+
+  @AllArgsConstructor
+  private static class Snapshot {
+    final long version;
+    // the map holds every date at or after this
+    final LocalDateTime from;
+    final NavigableMap<LocalDateTime, List<UCSBDate>> dates;
+  }
+
+  private volatile Snapshot snapshot;
+
+  /**
+   * Up to {@code limit} dates at or after {@code now}, soonest first (ties
+   * in id order).
+   */
+  public List<UCSBDate> upcoming(LocalDateTime now, int limit) {
+    List<UCSBDate> upcoming = new ArrayList<>(Math.min(limit, 64));
+    for (List<UCSBDate> atTime : snapshot(now).dates.tailMap(now, true).values()) {
+      for (UCSBDate date : atTime) {
+        if (upcoming.size() == limit) {
+          return upcoming;
+        }
+        upcoming.add(date);
+      }
+    }
+    return upcoming;
+  }
+
+  private Snapshot snapshot(LocalDateTime now) {
+    long version = responseCacheService.version(UCSBDate.class);
+    Snapshot current = snapshot;
+    if (current != null && current.version == version && !now.isBefore(current.from)) {
+      return current;
+    }
+    NavigableMap<LocalDateTime, List<UCSBDate>> dates = new TreeMap<>();
+    for (UCSBDate date : ucsbDateRepository.findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(now)) {
+      dates.computeIfAbsent(date.getLocalDateTime(), t -> new ArrayList<>(1)).add(date);
+    }
+    dates.replaceAll((t, atTime) -> Collections.unmodifiableList(atTime));
+    Snapshot fresh = new Snapshot(version, now, Collections.unmodifiableNavigableMap(dates));
+    synchronized (this) {
+      if (snapshot == null || snapshot.version <= version) {
+        snapshot = fresh;
+      }
+    }
+    return fresh;
+  }
+}
@@ -0,0 +1,404 @@
+package edu.ucsb.cs156.example.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory indexes over the dining commons: a grid of the ones that have a
+ * location, for nearest-neighbour and bounding box queries, and a bitset
+ * per amenity flag, so that any combination of flags is a few ANDs.
+ *
+ * The grid is filled from the database on the first query.  After that the
+ * controller keeps it current with {@link #put} and {@link #remove}, which
+ * (like {@link ResponseCacheService#invalidate}) take effect once the
+ * writing transaction has committed.  Writes that go around the controller
+ * should call {@link #clear()} so that the next query reloads.
+ *
+ * Cells are {@value #CELL_DEGREES} degrees on a side (about 1km at the
+ * campus' latitude).  The grid does not wrap at the antimeridian.
+ */
+@Service("ucsbDiningCommonsIndex")
+public class UCSBDiningCommonsIndex {
+
+  static final double CELL_DEGREES = 0.01;
+
+  private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+  @Autowired
+  private UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // guarded by lock
+  private boolean loaded;
+  private final Map<String, UCSBDiningCommons> byCode = new HashMap<>();
+  private final Map<Long, Map<String, UCSBDiningCommons>> cells = new HashMap<>();
+  // each commons has a slot, its bit in the flag sets; freed slots are reused
+  private final Map<String, Integer> slots = new HashMap<>();
+  private final List<UCSBDiningCommons> bySlot = new ArrayList<>();
+  private final BitSet live = new BitSet();
+  private final BitSet sackMeal = new BitSet();
+  private final BitSet takeOutMeal = new BitSet();
+  private final BitSet diningCam = new BitSet();
+  // the occupied rows and columns; widened on insert but never narrowed
+  private int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
+  private int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
+
+  /**
+   * The {@code k} commons closest to a point, nearest first, with their
+   * great-circle distance from it.
+   */
+  public List<NearbyDiningCommons> nearest(double latitude, double longitude, int k) {
+    checkLatitude(latitude);
+    checkLongitude(longitude);
+    if (k < 1) {
+      throw new BadRequestException("k must be at least 1");
+    }
+    load();
+    lock.readLock().lock();
+    try {
+      if (cells.isEmpty()) {
+        return List.of();
+      }
+      // a max-heap of the best k found so far
+      PriorityQueue<NearbyDiningCommons> best = new PriorityQueue<>(
+          Comparator.comparingDouble(NearbyDiningCommons::getDistanceMeters).reversed());
+      int row = row(latitude), col = col(longitude);
+      int lastRing = Math.max(Math.max(row - minRow, maxRow - row), Math.max(col - minCol, maxCol - col));
+      for (int ring = 0; ring <= lastRing; ring++) {
+        if (cellsInSquare(ring) > cells.size()) {
+          // the rings have grown past the occupied cells: finish by checking
+          // every commons not yet seen
+          int seen = ring - 1;
+          cells.forEach((key, cell) -> {
+            if (Math.abs(rowOf(key) - row) > seen || Math.abs(colOf(key) - col) > seen) {
+              offerAll(best, k, cell.values(), latitude, longitude);
+            }
+          });
+          break;
+        }
+        for (int r = row - ring; r <= row + ring; r++) {
+          int step = (r == row - ring || r == row + ring) ? 1 : 2 * ring;
+          for (int c = col - ring; c <= col + ring; c += step) {
+            Map<String, UCSBDiningCommons> cell = cells.get(key(r, c));
+            if (cell != null) {
+              offerAll(best, k, cell.values(), latitude, longitude);
+            }
+          }
+        }
+        if (best.size() == k && best.peek().getDistanceMeters() <= distanceOutside(latitude, ring)) {
+          break;
+        }
+      }
+      List<NearbyDiningCommons> nearest = new ArrayList<>(best);
+      nearest.sort(Comparator.comparingDouble(NearbyDiningCommons::getDistanceMeters)
+          .thenComparing(n -> n.getCommons().getCode()));
+      return nearest;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * The commons inside a box (edges included), ordered by code.
+   */
+  public List<UCSBDiningCommons> within(double south, double west, double north, double east) {
+    checkLatitude(south);
+    checkLatitude(north);
+    checkLongitude(west);
+    checkLongitude(east);
+    if (south > north || west > east) {
+      throw new BadRequestException("south must not be above north, nor west east of east");
+    }
+    load();
+    lock.readLock().lock();
+    try {
+      if (cells.isEmpty()) {
+        return List.of();
+      }
+      List<UCSBDiningCommons> found = new ArrayList<>();
+      int fromRow = Math.max(row(south), minRow), toRow = Math.min(row(north), maxRow);
+      int fromCol = Math.max(col(west), minCol), toCol = Math.min(col(east), maxCol);
+      Collection<Map<String, UCSBDiningCommons>> candidates;
+      if ((long) (toRow - fromRow + 1) * (toCol - fromCol + 1) > cells.size()) {
+        candidates = cells.values();
+      } else {
+        candidates = new ArrayList<>();
+        for (int r = fromRow; r <= toRow; r++) {
+          for (int c = fromCol; c <= toCol; c++) {
+            Map<String, UCSBDiningCommons> cell = cells.get(key(r, c));
+            if (cell != null) {
+              candidates.add(cell);
+            }
+          }
+        }
+      }
+      for (Map<String, UCSBDiningCommons> cell : candidates) {
+        for (UCSBDiningCommons commons : cell.values()) {
+          if (commons.getLatitude() >= south && commons.getLatitude() <= north
+              && commons.getLongitude() >= west && commons.getLongitude() <= east) {
+            found.add(commons);
+          }
+        }
+      }
+      found.sort(Comparator.comparing(UCSBDiningCommons::getCode));
+      return found;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * The commons with the given amenities, ordered by code.  A null flag
+   * matches either value.
+   */
+  public List<UCSBDiningCommons> withAmenities(Boolean hasSackMeal, Boolean hasTakeOutMeal, Boolean hasDiningCam) {
+    load();
+    lock.readLock().lock();
+    try {
+      BitSet matches = (BitSet) live.clone();
+      restrict(matches, sackMeal, hasSackMeal);
+      restrict(matches, takeOutMeal, hasTakeOutMeal);
+      restrict(matches, diningCam, hasDiningCam);
+      List<UCSBDiningCommons> found = new ArrayList<>(matches.cardinality());
+      matches.stream().forEach(slot -> found.add(bySlot.get(slot)));
+      found.sort(Comparator.comparing(UCSBDiningCommons::getCode));
+      return found;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static void restrict(BitSet matches, BitSet flag, Boolean wanted) {
+    if (Boolean.TRUE.equals(wanted)) {
+      matches.and(flag);
+    } else if (Boolean.FALSE.equals(wanted)) {
+      matches.andNot(flag);
+    }
+  }
+
+  /** Add or replace a commons, once the current transaction (if any) commits. */
+  public void put(UCSBDiningCommons commons) {
+    afterCommit(() -> {
+      unindex(commons.getCode());
+      index(commons);
+    });
+  }
+
+  /** Drop commons by code, once the current transaction (if any) commits. */
+  public void remove(Collection<String> codes) {
+    afterCommit(() -> codes.forEach(this::unindex));
+  }
+
+  /** Forget everything, so that the next query reloads from the database. */
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      loaded = false;
+      byCode.clear();
+      cells.clear();
+      slots.clear();
+      bySlot.clear();
+      live.clear();
+      sackMeal.clear();
+      takeOutMeal.clear();
+      diningCam.clear();
+      minRow = minCol = Integer.MAX_VALUE;
+      maxRow = maxCol = Integer.MIN_VALUE;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void load() {
+    lock.readLock().lock();
+    try {
+      if (loaded) {
+        return;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    // the write lock is held across the query so that a put committed while
+    // it runs waits, and is applied on top of what was read
+    lock.writeLock().lock();
+    try {
+      if (!loaded) {
+        ucsbDiningCommonsRepository.findAll().forEach(this::index);
+        loaded = true;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void afterCommit(Runnable change) {
+    Runnable locked = () -> {
+      lock.writeLock().lock();
+      try {
+        // before the first load there is nothing to keep current
+        if (loaded) {
+          change.run();
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    };
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          locked.run();
+        }
+      });
+    } else {
+      locked.run();
+    }
+  }
+
+  // callers hold the write lock
+  private void index(UCSBDiningCommons commons) {
+    byCode.put(commons.getCode(), commons);
+    int slot = live.nextClearBit(0);
+    if (slot == bySlot.size()) {
+      bySlot.add(commons);
+    } else {
+      bySlot.set(slot, commons);
+    }
+    slots.put(commons.getCode(), slot);
+    live.set(slot);
+    sackMeal.set(slot, commons.getHasSackMeal());
+    takeOutMeal.set(slot, commons.getHasTakeOutMeal());
+    diningCam.set(slot, commons.getHasDiningCam());
+
+    if (!located(commons)) {
+      return;
+    }
+    int r = row(commons.getLatitude()), c = col(commons.getLongitude());
+    cells.computeIfAbsent(key(r, c), key -> new HashMap<>()).put(commons.getCode(), commons);
+    minRow = Math.min(minRow, r);
+    maxRow = Math.max(maxRow, r);
+    minCol = Math.min(minCol, c);
+    maxCol = Math.max(maxCol, c);
+  }
+
+  private void unindex(String code) {
+    UCSBDiningCommons old = byCode.remove(code);
+    if (old == null) {
+      return;
+    }
+    int slot = slots.remove(code);
+    bySlot.set(slot, null);
+    live.clear(slot);
+    sackMeal.clear(slot);
+    takeOutMeal.clear(slot);
+    diningCam.clear(slot);
+
+    if (located(old)) {
+      long key = key(row(old.getLatitude()), col(old.getLongitude()));
+      Map<String, UCSBDiningCommons> cell = cells.get(key);
+      cell.remove(code);
+      if (cell.isEmpty()) {
+        cells.remove(key);
+      }
+    }
+  }
+
+  private static boolean located(UCSBDiningCommons commons) {
+    return commons.getLatitude() != null && commons.getLongitude() != null;
+  }
+
+  private static void offerAll(PriorityQueue<NearbyDiningCommons> best, int k, Collection<UCSBDiningCommons> commons,
+      double latitude, double longitude) {
+    for (UCSBDiningCommons c : commons) {
+      double distance = distanceMeters(latitude, longitude, c.getLatitude(), c.getLongitude());
+      if (best.size() < k) {
+        best.add(new NearbyDiningCommons(c, distance));
+      } else if (distance < best.peek().getDistanceMeters()) {
+        best.poll();
+        best.add(new NearbyDiningCommons(c, distance));
+      }
+    }
+  }
+
+  private static long cellsInSquare(int ring) {
+    long side = 2L * ring + 1;
+    return side * side;
+  }
+
+  /**
+   * A lower bound on the distance from a point to anything outside the
+   * square of cells {@code ring} cells around it: such a point is at least
+   * {@code ring} cells away in latitude or in longitude.
+   */
+  static double distanceOutside(double latitude, int ring) {
+    // nothing is more than 180 degrees away in either direction
+    double degrees = Math.min(ring * CELL_DEGREES, 180);
+    double byLatitude = EARTH_RADIUS_METERS * Math.toRadians(degrees);
+    // if it is within that latitude band, it is no closer to the pole than this
+    double poleward = Math.min(90, Math.abs(latitude) + degrees);
+    double h = Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(poleward))
+        * Math.pow(Math.sin(Math.toRadians(degrees) / 2), 2);
+    double byLongitude = 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(h));
+    return Math.min(byLatitude, byLongitude);
+  }
+
+  /** Haversine distance in meters. */
+  static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double h = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(h)));
+  }
+
+  private static int row(double latitude) {
+    return (int) Math.floor(latitude / CELL_DEGREES);
+  }
+
+  private static int col(double longitude) {
+    return (int) Math.floor(longitude / CELL_DEGREES);
+  }
+
+  private static long key(int row, int col) {
+    return ((long) row << 32) | (col & 0xffffffffL);
+  }
+
+  private static int rowOf(long key) {
+    return (int) (key >> 32);
+  }
+
+  private static int colOf(long key) {
+    return (int) key;
+  }
+
+  private static void checkLatitude(double latitude) {
+    if (!(latitude >= -90 && latitude <= 90)) {
+      throw new BadRequestException("latitude must be between -90 and 90");
+    }
+  }
+
+  private static void checkLongitude(double longitude) {
+    if (!(longitude >= -180 && longitude <= 180)) {
+      throw new BadRequestException("longitude must be between -180 and 180");
+    }
+  }
+}
@@ -0,0 +1,71 @@
+CREATE TABLE users (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  email VARCHAR(255),
+  email_verified BOOLEAN NOT NULL,
+  family_name VARCHAR(255),
+  full_name VARCHAR(255),
+  given_name VARCHAR(255),
+  google_sub VARCHAR(255),
+  hosted_domain VARCHAR(255),
+  locale VARCHAR(255),
+  picture_url VARCHAR(255)
+);
+
+CREATE TABLE amusement_parks (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  address VARCHAR(255),
+  description VARCHAR(255),
+  name VARCHAR(255)
+);
+
+CREATE TABLE books (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  author VARCHAR(255),
+  publicdate VARCHAR(255),
+  title VARCHAR(255)
+);
+
+CREATE TABLE games (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  creator VARCHAR(255),
+  genre VARCHAR(255),
+  name VARCHAR(255)
+);
+
+CREATE TABLE icecreamshop (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  address VARCHAR(255),
+  description VARCHAR(255),
+  name VARCHAR(255)
+);
+
+CREATE TABLE restaurant (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  address VARCHAR(255),
+  name VARCHAR(255),
+  specialty VARCHAR(255)
+);
+
+CREATE TABLE schools (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  address VARCHAR(255),
+  description VARCHAR(255),
+  name VARCHAR(255)
+);
+
+CREATE TABLE ucsbdates (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  local_date_time TIMESTAMP,
+  name VARCHAR(255),
+  quarteryyyyq VARCHAR(255)
+);
+
+CREATE TABLE ucsbdiningcommons (
+  code VARCHAR(255) PRIMARY KEY,
+  has_dining_cam BOOLEAN NOT NULL,
+  has_sack_meal BOOLEAN NOT NULL,
+  has_take_out_meal BOOLEAN NOT NULL,
+  latitude DOUBLE PRECISION,
+  longitude DOUBLE PRECISION,
+  name VARCHAR(255)
+);
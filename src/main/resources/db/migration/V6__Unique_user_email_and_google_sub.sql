@@ -0,0 +1,24 @@
+-- Concurrent first logins could insert the same person twice.  Keep the
+-- oldest row for each email, then for each google_sub (each time carrying
+-- over the admin flag from any of its duplicates), then make email and
+-- google_sub unique so that provisioning can upsert instead of
+-- find-then-insert.
+
+UPDATE users SET admin = TRUE
+  WHERE COALESCE(admin, FALSE) = FALSE
+    AND EXISTS (SELECT 1 FROM users d WHERE d.email = users.email AND d.admin = TRUE);
+
+DELETE FROM users
+  WHERE email IS NOT NULL
+    AND id NOT IN (SELECT MIN(id) FROM users WHERE email IS NOT NULL GROUP BY email);
+
+UPDATE users SET admin = TRUE
+  WHERE COALESCE(admin, FALSE) = FALSE
+    AND EXISTS (SELECT 1 FROM users d WHERE d.google_sub = users.google_sub AND d.admin = TRUE);
+
+DELETE FROM users
+  WHERE google_sub IS NOT NULL
+    AND id NOT IN (SELECT MIN(id) FROM users WHERE google_sub IS NOT NULL GROUP BY google_sub);
+
+CREATE UNIQUE INDEX users_email_idx ON users (email);
+CREATE UNIQUE INDEX users_google_sub_idx ON users (google_sub);
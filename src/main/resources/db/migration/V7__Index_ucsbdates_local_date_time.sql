@@ -0,0 +1,4 @@
+-- Range and "upcoming" queries on ucsbdates filter and sort by
+-- local_date_time; without an index each one scans the whole table.
+
+CREATE INDEX ucsbdates_local_date_time_idx ON ucsbdates (local_date_time);
@@ -0,0 +1,5 @@
+-- The iCalendar feeds stamp each event with the time its row was last
+-- written (see UCSBDateCalendar).  Hibernate sets the column on every write;
+-- the default covers the rows already there and any inserted by plain SQL.
+
+ALTER TABLE ucsbdates ADD updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
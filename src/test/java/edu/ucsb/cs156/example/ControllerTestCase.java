@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
@@ -10,14 +11,17 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.ResponseCacheService;
+import edu.ucsb.cs156.example.services.RoleResolutionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.UnsupportedEncodingException;
 import java.util.Map;
 
 @ActiveProfiles("test")
-@Import(TestConfig.class)
+@Import({ TestConfig.class, ResponseCacheService.class, RoleResolutionService.class, SimpleMeterRegistry.class })
 public abstract class ControllerTestCase {
   @Autowired
   public CurrentUserService currentUserService;
@@ -31,6 +35,19 @@ public abstract class ControllerTestCase {
   @Autowired
   public ObjectMapper mapper;
 
+  @Autowired
+  public ResponseCacheService responseCacheService;
+
+  // The application context (and so the response cache) is shared by all
+  // tests in a class; don't let one test's cached listing leak into the next.
+  // (Some subclasses run without a Spring context at all.)
+  @BeforeEach
+  public void clearResponseCache() {
+    if (responseCacheService != null) {
+      responseCacheService.clear();
+    }
+  }
+
   protected Map<String, Object> responseToJson(MvcResult result) throws UnsupportedEncodingException, JsonProcessingException {
     String responseString = result.getResponse().getContentAsString();
     return mapper.readValue(responseString, Map.class);
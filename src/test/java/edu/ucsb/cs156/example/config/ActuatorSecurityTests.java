@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ucsb.cs156.example.testconfig.FullStackTestApplication;
+
+// Runs against the whole application, since what is under test is the
+// security filter chain in front of the actuator endpoints.
+
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@SpringBootTest(classes = FullStackTestApplication.class)
+class ActuatorSecurityTests {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Test
+  void logged_out_users_cannot_list_the_handler_mappings() throws Exception {
+    mockMvc.perform(get("/actuator/mappings")).andExpect(status().isForbidden());
+    mockMvc.perform(get("/actuator")).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  void users_cannot_list_the_handler_mappings() throws Exception {
+    mockMvc.perform(get("/actuator/mappings")).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  void admins_can_list_the_handler_mappings() throws Exception {
+    mockMvc.perform(get("/actuator/mappings")).andExpect(status().isOk());
+  }
+}
@@ -1,18 +1,23 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.AmusementPark;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.AmusementParkRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -22,10 +27,13 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +47,9 @@ public class AmusementParksControllerTests extends ControllerTestCase{
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityPatchService entityPatchService;
+
         // Authorization tests for /api/amusementparks/admin/all
 
         @Test
@@ -190,13 +201,7 @@ public class AmusementParksControllerTests extends ControllerTestCase{
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                AmusementPark UniversalStudio = AmusementPark.builder()
-                                .name("UniversalStudio")
-                                .address("100 Universal City Plaza, Universal City, CA 91608")
-                                .description("A Universal Studio theme park built for Universal Studio film fans")
-                                .build();
-
-                when(amusementParksRepository.findById(eq(2L))).thenReturn(Optional.of(UniversalStudio));
+                when(amusementParksRepository.deleteRowById(eq(2L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -205,8 +210,7 @@ public class AmusementParksControllerTests extends ControllerTestCase{
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(amusementParksRepository, times(1)).findById(2L);
-                verify(amusementParksRepository, times(1)).delete(any());
+                verify(amusementParksRepository, times(1)).deleteRowById(2L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("AmusementPark with id 2 deleted", json.get("message"));
@@ -218,7 +222,7 @@ public class AmusementParksControllerTests extends ControllerTestCase{
                         throws Exception {
                 // arrange
 
-                when(amusementParksRepository.findById(eq(2L))).thenReturn(Optional.empty());
+                when(amusementParksRepository.deleteRowById(eq(2L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -227,7 +231,7 @@ public class AmusementParksControllerTests extends ControllerTestCase{
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(amusementParksRepository, times(1)).findById(2L);
+                verify(amusementParksRepository, times(1)).deleteRowById(2L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("AmusementPark with id 2 not found", json.get("message"));
         }
@@ -237,12 +241,6 @@ public class AmusementParksControllerTests extends ControllerTestCase{
         public void admin_can_edit_an_existing_amusementParks() throws Exception {
                 // arrange
 
-                AmusementPark UniversalStudioOrig = AmusementPark.builder()
-                                .name("Universal")
-                                .address("100 Universal City Plaza, CA 91608")
-                                .description("A Universal Studio theme park built for Universal Studio film fans")
-                                .build();
-
                 AmusementPark UniversalStudioEdited = AmusementPark.builder()
                                 .name("UniversalStudio")
                                 .address("100 Universal City Plaza, Universal City, CA 91608")
@@ -251,7 +249,7 @@ public class AmusementParksControllerTests extends ControllerTestCase{
 
                 String requestBody = mapper.writeValueAsString(UniversalStudioEdited);
 
-                when(amusementParksRepository.findById(eq(5L))).thenReturn(Optional.of(UniversalStudioOrig));
+                when(amusementParksRepository.updateById(eq(5L), eq(UniversalStudioEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -263,10 +261,11 @@ public class AmusementParksControllerTests extends ControllerTestCase{
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(amusementParksRepository, times(1)).findById(5L);
-                verify(amusementParksRepository, times(1)).save(UniversalStudioEdited); // should be saved with updated info
+                verify(amusementParksRepository, times(1)).updateById(eq(5L), any());
+                verify(amusementParksRepository, never()).findById(any());
+                UniversalStudioEdited.setId(5L);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(UniversalStudioEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -282,7 +281,7 @@ public class AmusementParksControllerTests extends ControllerTestCase{
 
                 String requestBody = mapper.writeValueAsString(editedAmusementParks);
 
-                when(amusementParksRepository.findById(eq(7L))).thenReturn(Optional.empty());
+                when(amusementParksRepository.updateById(eq(7L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -294,10 +293,472 @@ public class AmusementParksControllerTests extends ControllerTestCase{
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(amusementParksRepository, times(1)).findById(7L);
+                verify(amusementParksRepository, times(1)).updateById(eq(7L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("AmusementPark with id 7 not found", json.get("message"));
 
         }
 
+        // Tests for keyset pagination on /api/amusementparks/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_amusement_parks_with_a_next_cursor() throws Exception {
+
+                // arrange
+
+                AmusementPark amusementPark1 = AmusementPark.builder()
+                                .id(3L)
+                                .name("Six Flags Magic Mountain")
+                                .address("26101 Magic Mountain Pkwy, Valencia, CA")
+                                .description("Roller coasters")
+                                .build();
+
+                AmusementPark amusementPark2 = AmusementPark.builder()
+                                .id(4L)
+                                .name("Disneyland")
+                                .address("1313 Disneyland Dr, Anaheim, CA")
+                                .description("Theme park")
+                                .build();
+
+                AmusementPark amusementPark3 = AmusementPark.builder()
+                                .id(9L)
+                                .name("Knott's Berry Farm")
+                                .address("8039 Beach Blvd, Buena Park, CA")
+                                .description("Berry themed")
+                                .build();
+
+                when(amusementParksRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(amusementPark1, amusementPark2, amusementPark3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/amusementparks/all?after=2&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(amusementParksRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 3));
+                KeysetPage<AmusementPark, Long> expectedPage = KeysetPage.<AmusementPark, Long>builder()
+                                .items(Arrays.asList(amusementPark1, amusementPark2))
+                                .nextCursor(4L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_of_amusement_parks_has_no_next_cursor_and_limit_is_clamped() throws Exception {
+
+                // arrange
+
+                AmusementPark amusementPark1 = AmusementPark.builder()
+                                .id(3L)
+                                .name("Six Flags Magic Mountain")
+                                .address("26101 Magic Mountain Pkwy, Valencia, CA")
+                                .description("Roller coasters")
+                                .build();
+
+                when(amusementParksRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(amusementPark1)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/amusementparks/all?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(amusementParksRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1));
+                KeysetPage<AmusementPark, Long> expectedPage = KeysetPage.<AmusementPark, Long>builder()
+                                .items(Arrays.asList(amusementPark1))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /api/amusementparks/export
+
+        @Test
+        public void logged_out_users_cannot_export_amusement_parks() throws Exception {
+                mockMvc.perform(get("/api/amusementparks/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_amusement_parks_as_ndjson() throws Exception {
+
+                // arrange
+
+                AmusementPark amusementPark1 = AmusementPark.builder()
+                                .id(1L)
+                                .name("Six Flags Magic Mountain")
+                                .address("26101 Magic Mountain Pkwy, Valencia, CA")
+                                .description("Roller coasters")
+                                .build();
+
+                AmusementPark amusementPark2 = AmusementPark.builder()
+                                .id(2L)
+                                .name("Disneyland")
+                                .address("1313 Disneyland Dr, Anaheim, CA")
+                                .description("Theme park")
+                                .build();
+
+                when(amusementParksRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(amusementPark1, amusementPark2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/amusementparks/export?format=ndjson"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(amusementParksRepository, times(1)).streamAllByOrderByIdAsc();
+                assertEquals(ApiController.NDJSON, response.getResponse().getContentType().split(";")[0]);
+                String expected = mapper.writeValueAsString(amusementPark1) + "\n" + mapper.writeValueAsString(amusementPark2) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_of_amusement_parks_rejects_unknown_formats() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/amusementparks/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(amusementParksRepository, times(0)).streamAllByOrderByIdAsc();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Unsupported export format xml", json.get("message"));
+        }
+
+        // Tests for /api/amusementparks/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_post_amusement_parks() throws Exception {
+                mockMvc.perform(post("/api/amusementparks/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_amusement_parks_as_json() throws Exception {
+
+                // arrange
+
+                AmusementPark amusementPark1 = AmusementPark.builder()
+                                .name("Six Flags Magic Mountain")
+                                .address("26101 Magic Mountain Pkwy, Valencia, CA")
+                                .description("Roller coasters")
+                                .build();
+
+                AmusementPark amusementPark2 = AmusementPark.builder()
+                                .name("Disneyland")
+                                .address("1313 Disneyland Dr, Anaheim, CA")
+                                .description("Theme park")
+                                .build();
+
+                List<AmusementPark> expected = Arrays.asList(amusementPark1, amusementPark2);
+                String requestBody = mapper.writeValueAsString(expected).replace("\"id\":0", "\"id\":42");
+
+                when(amusementParksRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/amusementparks/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(amusementParksRepository, times(1)).save(amusementPark1);
+                verify(amusementParksRepository, times(1)).save(amusementPark2);
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_amusement_parks_as_csv() throws Exception {
+
+                // arrange
+
+                AmusementPark amusementPark1 = AmusementPark.builder()
+                                .name("Six Flags Magic Mountain")
+                                .address("26101 Magic Mountain Pkwy, Valencia, CA")
+                                .description("Roller coasters")
+                                .build();
+
+                AmusementPark amusementPark2 = AmusementPark.builder()
+                                .name("Disneyland")
+                                .address("1313 Disneyland Dr, Anaheim, CA")
+                                .description("Theme park")
+                                .build();
+
+                String csv = "name,address,description\n"
+                                + "\"Six Flags Magic Mountain\",\"26101 Magic Mountain Pkwy, Valencia, CA\",\"Roller coasters\"\n"
+                                + "\"Disneyland\",\"1313 Disneyland Dr, Anaheim, CA\",\"Theme park\"\n";
+
+                when(amusementParksRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/amusementparks/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .characterEncoding("utf-8")
+                                                .content(csv)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(amusementParksRepository, times(1)).save(amusementPark1);
+                verify(amusementParksRepository, times(1)).save(amusementPark2);
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(amusementPark1, amusementPark2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_of_amusement_parks_rejects_csv_with_unknown_columns() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/amusementparks/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .content("color\nred\n")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(amusementParksRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+        }
+
+        // Tests for the response cache behind /api/amusementparks/all
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void all_amusement_parks_are_served_from_the_response_cache_until_a_delete() throws Exception {
+
+                // arrange
+
+                AmusementPark amusementPark1 = AmusementPark.builder()
+                                .id(15L)
+                                .name("Six Flags Magic Mountain")
+                                .address("26101 Magic Mountain Pkwy, Valencia, CA")
+                                .description("Roller coasters")
+                                .build();
+
+                when(amusementParksRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(amusementPark1)));
+                when(amusementParksRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                mockMvc.perform(get("/api/amusementparks/all")).andExpect(status().isOk());
+                MvcResult cached = mockMvc.perform(get("/api/amusementparks/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(amusementParksRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(Arrays.asList(amusementPark1)), cached.getResponse().getContentAsString());
+
+                // act
+                when(amusementParksRepository.findAll()).thenReturn(new ArrayList<>());
+                mockMvc.perform(delete("/api/amusementparks?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult refreshed = mockMvc.perform(get("/api/amusementparks/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(amusementParksRepository, times(2)).findAll();
+                assertEquals("[]", refreshed.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match) on /api/amusementparks
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void amusement_parks_answer_conditional_gets_with_304_until_a_delete() throws Exception {
+
+                // arrange
+
+                AmusementPark amusementPark1 = AmusementPark.builder()
+                                .id(15L)
+                                .name("Six Flags Magic Mountain")
+                                .address("26101 Magic Mountain Pkwy, Valencia, CA")
+                                .description("Roller coasters")
+                                .build();
+
+                when(amusementParksRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(amusementPark1)));
+                when(amusementParksRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/amusementparks/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private")).andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/amusementparks/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/api/amusementparks?id=15").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(amusementParksRepository, times(1)).findAll();
+                verify(amusementParksRepository, never()).findById(any());
+
+                // act
+                mockMvc.perform(delete("/api/amusementparks?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult changed = mockMvc.perform(get("/api/amusementparks/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(amusementParksRepository, times(2)).findAll();
+                assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+        }
+
+        // Tests for PATCH /api/amusementparks
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch_amusement_parks() throws Exception {
+                mockMvc.perform(patch("/api/amusementparks?id=67")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_some_fields_of_an_amusement_park() throws Exception {
+                // arrange
+
+                AmusementPark amusementPark1 = AmusementPark.builder()
+                                .id(67L)
+                                .name("Six Flags Magic Mountain")
+                                .address("26101 Magic Mountain Pkwy, Valencia, CA")
+                                .description("Roller coasters")
+                                .build();
+
+                Map<String, Object> fields = Map.of("address", "26101 Magic Mountain Pkwy, Valencia, CA");
+                when(entityPatchService.patch(eq(AmusementPark.class), eq(67L), eq(fields))).thenReturn(Optional.of(amusementPark1));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/amusementparks?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(fields))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(entityPatchService, times(1)).patch(eq(AmusementPark.class), eq(67L), eq(fields));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(amusementPark1), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_an_amusement_park_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(entityPatchService.patch(eq(AmusementPark.class), eq(67L), any())).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/amusementparks?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"address\": " + mapper.writeValueAsString("26101 Magic Mountain Pkwy, Valencia, CA") + "}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("AmusementPark with id 67 not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/amusementparks/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete_amusement_parks() throws Exception {
+                mockMvc.perform(delete("/api/amusementparks/bulk?ids=1,2,2,3").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_delete_amusement_parks() throws Exception {
+                // arrange
+
+                when(amusementParksRepository.deleteRowsByIds(eq(List.of(1L, 2L, 3L)))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/amusementparks/bulk?ids=1,2,2,3")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(amusementParksRepository, times(1)).deleteRowsByIds(eq(List.of(1L, 2L, 3L)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 amusement parks deleted", json.get("message"));
+        }
+
+        // Tests for GET /api/amusementparks/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch_of_amusement_parks() throws Exception {
+                mockMvc.perform(get("/api/amusementparks/batch?ids=3,2,1,3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_batch_of_amusement_parks_in_the_order_requested() throws Exception {
+
+                // arrange
+
+                AmusementPark first = AmusementPark.builder()
+                                .id(1L)
+                                .name("Six Flags Magic Mountain")
+                                .address("26101 Magic Mountain Pkwy, Valencia, CA")
+                                .description("Roller coasters")
+                                .build();
+
+                AmusementPark third = AmusementPark.builder()
+                                .id(3L)
+                                .name("Knott's Berry Farm")
+                                .address("8039 Beach Blvd, Buena Park, CA")
+                                .description("Berry themed")
+                                .build();
+
+                when(amusementParksRepository.findAllById(eq(List.of(3L, 2L, 1L)))).thenReturn(Arrays.asList(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/amusementparks/batch?ids=3,2,1,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(amusementParksRepository, times(1)).findAllById(eq(List.of(3L, 2L, 1L)));
+                String expectedJson = mapper.writeValueAsString(
+                                BatchResult.builder().items(Arrays.asList(third, first)).missing(Arrays.asList(2L)).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
 }
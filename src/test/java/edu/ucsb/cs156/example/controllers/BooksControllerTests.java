@@ -1,18 +1,23 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Book;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.BookRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -24,10 +29,13 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +50,9 @@ public class BooksControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityPatchService entityPatchService;
+
         // Authorization tests for /api/Books/admin/all
 
         @Test
@@ -195,13 +206,7 @@ public class BooksControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                Book book1 = Book.builder()
-                                .title("To Kill a Mockingbird")
-                                .author("Harper Lee")
-                                .publicdate("1960/08/11")
-                                .build();
-
-                when(BookRepository.findById(eq(15L))).thenReturn(Optional.of(book1));
+                when(BookRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -210,8 +215,7 @@ public class BooksControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(BookRepository, times(1)).findById(15L);
-                verify(BookRepository, times(1)).delete(any());
+                verify(BookRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Book with id 15 deleted", json.get("message"));
@@ -223,7 +227,7 @@ public class BooksControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(BookRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(BookRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -232,7 +236,7 @@ public class BooksControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(BookRepository, times(1)).findById(15L);
+                verify(BookRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Book with id 15 not found", json.get("message"));
         }
@@ -242,12 +246,6 @@ public class BooksControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_book() throws Exception {
                 // arrange
 
-                Book bookOrig = Book.builder()
-                                .title("To Kill a Mockingbird")
-                                .author("Harper Lee")
-                                .publicdate("1960/08/11")
-                                .build();
-
                 Book bookEdited = Book.builder()
                                 .title("1984")
                                 .author("George Orwell")
@@ -256,7 +254,7 @@ public class BooksControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(bookEdited);
 
-                when(BookRepository.findById(eq(67L))).thenReturn(Optional.of(bookOrig));
+                when(BookRepository.updateById(eq(67L), eq(bookEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -268,10 +266,11 @@ public class BooksControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(BookRepository, times(1)).findById(67L);
-                verify(BookRepository, times(1)).save(bookEdited); // should be saved with correct user
+                verify(BookRepository, times(1)).updateById(eq(67L), any());
+                verify(BookRepository, never()).findById(any());
+                bookEdited.setId(67L);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(bookEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -287,7 +286,7 @@ public class BooksControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(BookEditAuthor);
 
-                when(BookRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(BookRepository.updateById(eq(67L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -299,10 +298,472 @@ public class BooksControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(BookRepository, times(1)).findById(67L);
+                verify(BookRepository, times(1)).updateById(eq(67L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Book with id 67 not found", json.get("message"));
 
         }
-        
+
+        // Tests for keyset pagination on /api/books/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_books_with_a_next_cursor() throws Exception {
+
+                // arrange
+
+                Book book1 = Book.builder()
+                                .id(3L)
+                                .title("To Kill a Mockingbird")
+                                .author("Harper Lee")
+                                .publicdate("1960/08/11")
+                                .build();
+
+                Book book2 = Book.builder()
+                                .id(4L)
+                                .title("1984")
+                                .author("George Orwell")
+                                .publicdate("1949/07/08")
+                                .build();
+
+                Book book3 = Book.builder()
+                                .id(9L)
+                                .title("Dune")
+                                .author("Frank Herbert")
+                                .publicdate("1965/08/01")
+                                .build();
+
+                when(BookRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(book1, book2, book3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/books/all?after=2&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(BookRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 3));
+                KeysetPage<Book, Long> expectedPage = KeysetPage.<Book, Long>builder()
+                                .items(Arrays.asList(book1, book2))
+                                .nextCursor(4L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_of_books_has_no_next_cursor_and_limit_is_clamped() throws Exception {
+
+                // arrange
+
+                Book book1 = Book.builder()
+                                .id(3L)
+                                .title("To Kill a Mockingbird")
+                                .author("Harper Lee")
+                                .publicdate("1960/08/11")
+                                .build();
+
+                when(BookRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(book1)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/books/all?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(BookRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1));
+                KeysetPage<Book, Long> expectedPage = KeysetPage.<Book, Long>builder()
+                                .items(Arrays.asList(book1))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /api/books/export
+
+        @Test
+        public void logged_out_users_cannot_export_books() throws Exception {
+                mockMvc.perform(get("/api/books/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_books_as_ndjson() throws Exception {
+
+                // arrange
+
+                Book book1 = Book.builder()
+                                .id(1L)
+                                .title("To Kill a Mockingbird")
+                                .author("Harper Lee")
+                                .publicdate("1960/08/11")
+                                .build();
+
+                Book book2 = Book.builder()
+                                .id(2L)
+                                .title("1984")
+                                .author("George Orwell")
+                                .publicdate("1949/07/08")
+                                .build();
+
+                when(BookRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(book1, book2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/books/export?format=ndjson"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(BookRepository, times(1)).streamAllByOrderByIdAsc();
+                assertEquals(ApiController.NDJSON, response.getResponse().getContentType().split(";")[0]);
+                String expected = mapper.writeValueAsString(book1) + "\n" + mapper.writeValueAsString(book2) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_of_books_rejects_unknown_formats() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/books/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(BookRepository, times(0)).streamAllByOrderByIdAsc();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Unsupported export format xml", json.get("message"));
+        }
+
+        // Tests for /api/books/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_post_books() throws Exception {
+                mockMvc.perform(post("/api/books/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_books_as_json() throws Exception {
+
+                // arrange
+
+                Book book1 = Book.builder()
+                                .title("To Kill a Mockingbird")
+                                .author("Harper Lee")
+                                .publicdate("1960/08/11")
+                                .build();
+
+                Book book2 = Book.builder()
+                                .title("1984")
+                                .author("George Orwell")
+                                .publicdate("1949/07/08")
+                                .build();
+
+                List<Book> expected = Arrays.asList(book1, book2);
+                String requestBody = mapper.writeValueAsString(expected).replace("\"id\":0", "\"id\":42");
+
+                when(BookRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/books/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(BookRepository, times(1)).save(book1);
+                verify(BookRepository, times(1)).save(book2);
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_books_as_csv() throws Exception {
+
+                // arrange
+
+                Book book1 = Book.builder()
+                                .title("To Kill a Mockingbird")
+                                .author("Harper Lee")
+                                .publicdate("1960/08/11")
+                                .build();
+
+                Book book2 = Book.builder()
+                                .title("1984")
+                                .author("George Orwell")
+                                .publicdate("1949/07/08")
+                                .build();
+
+                String csv = "title,author,publicdate\n"
+                                + "\"To Kill a Mockingbird\",\"Harper Lee\",\"1960/08/11\"\n"
+                                + "\"1984\",\"George Orwell\",\"1949/07/08\"\n";
+
+                when(BookRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/books/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .characterEncoding("utf-8")
+                                                .content(csv)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(BookRepository, times(1)).save(book1);
+                verify(BookRepository, times(1)).save(book2);
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(book1, book2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_of_books_rejects_csv_with_unknown_columns() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/books/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .content("color\nred\n")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(BookRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+        }
+
+        // Tests for the response cache behind /api/books/all
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void all_books_are_served_from_the_response_cache_until_a_delete() throws Exception {
+
+                // arrange
+
+                Book book1 = Book.builder()
+                                .id(15L)
+                                .title("To Kill a Mockingbird")
+                                .author("Harper Lee")
+                                .publicdate("1960/08/11")
+                                .build();
+
+                when(BookRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(book1)));
+                when(BookRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                mockMvc.perform(get("/api/books/all")).andExpect(status().isOk());
+                MvcResult cached = mockMvc.perform(get("/api/books/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(BookRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(Arrays.asList(book1)), cached.getResponse().getContentAsString());
+
+                // act
+                when(BookRepository.findAll()).thenReturn(new ArrayList<>());
+                mockMvc.perform(delete("/api/books?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult refreshed = mockMvc.perform(get("/api/books/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(BookRepository, times(2)).findAll();
+                assertEquals("[]", refreshed.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match) on /api/books
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void books_answer_conditional_gets_with_304_until_a_delete() throws Exception {
+
+                // arrange
+
+                Book book1 = Book.builder()
+                                .id(15L)
+                                .title("To Kill a Mockingbird")
+                                .author("Harper Lee")
+                                .publicdate("1960/08/11")
+                                .build();
+
+                when(BookRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(book1)));
+                when(BookRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/books/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private")).andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/books/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/api/books?id=15").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(BookRepository, times(1)).findAll();
+                verify(BookRepository, never()).findById(any());
+
+                // act
+                mockMvc.perform(delete("/api/books?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult changed = mockMvc.perform(get("/api/books/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(BookRepository, times(2)).findAll();
+                assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+        }
+
+        // Tests for PATCH /api/books
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch_books() throws Exception {
+                mockMvc.perform(patch("/api/books?id=67")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_some_fields_of_a_book() throws Exception {
+                // arrange
+
+                Book book1 = Book.builder()
+                                .id(67L)
+                                .title("To Kill a Mockingbird")
+                                .author("Harper Lee")
+                                .publicdate("1960/08/11")
+                                .build();
+
+                Map<String, Object> fields = Map.of("author", "Harper Lee");
+                when(entityPatchService.patch(eq(Book.class), eq(67L), eq(fields))).thenReturn(Optional.of(book1));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/books?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(fields))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(entityPatchService, times(1)).patch(eq(Book.class), eq(67L), eq(fields));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(book1), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_book_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(entityPatchService.patch(eq(Book.class), eq(67L), any())).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/books?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"author\": " + mapper.writeValueAsString("Harper Lee") + "}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Book with id 67 not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/books/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete_books() throws Exception {
+                mockMvc.perform(delete("/api/books/bulk?ids=1,2,2,3").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_delete_books() throws Exception {
+                // arrange
+
+                when(BookRepository.deleteRowsByIds(eq(List.of(1L, 2L, 3L)))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/books/bulk?ids=1,2,2,3")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(BookRepository, times(1)).deleteRowsByIds(eq(List.of(1L, 2L, 3L)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 books deleted", json.get("message"));
+        }
+
+        // Tests for GET /api/books/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch_of_books() throws Exception {
+                mockMvc.perform(get("/api/books/batch?ids=3,2,1,3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_batch_of_books_in_the_order_requested() throws Exception {
+
+                // arrange
+
+                Book first = Book.builder()
+                                .id(1L)
+                                .title("To Kill a Mockingbird")
+                                .author("Harper Lee")
+                                .publicdate("1960/08/11")
+                                .build();
+
+                Book third = Book.builder()
+                                .id(3L)
+                                .title("Dune")
+                                .author("Frank Herbert")
+                                .publicdate("1965/08/01")
+                                .build();
+
+                when(BookRepository.findAllById(eq(List.of(3L, 2L, 1L)))).thenReturn(Arrays.asList(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/books/batch?ids=3,2,1,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(BookRepository, times(1)).findAllById(eq(List.of(3L, 2L, 1L)));
+                String expectedJson = mapper.writeValueAsString(
+                                BatchResult.builder().items(Arrays.asList(third, first)).missing(Arrays.asList(2L)).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
 }
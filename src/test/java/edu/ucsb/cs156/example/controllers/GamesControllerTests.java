@@ -1,18 +1,23 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.GameRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -22,10 +27,13 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,6 +48,9 @@ public class GamesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityPatchService entityPatchService;
+
         // Authorization tests for /api/games/admin/all
 
         @Test
@@ -191,13 +202,7 @@ public class GamesControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_game() throws Exception {
                 // arrange
 
-                Game game1 = Game.builder()
-                                .name("Bucket Montage")
-                                .creator("Plum")
-                                .genre("RPG")
-                                .build();
-
-                when(gameRepository.findById(eq(15L))).thenReturn(Optional.of(game1));
+                when(gameRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -206,8 +211,7 @@ public class GamesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(gameRepository, times(1)).findById(15L);
-                verify(gameRepository, times(1)).delete(any());
+                verify(gameRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Game with id 15 deleted", json.get("message"));
@@ -219,7 +223,7 @@ public class GamesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(gameRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(gameRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -228,7 +232,7 @@ public class GamesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(gameRepository, times(1)).findById(15L);
+                verify(gameRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Game with id 15 not found", json.get("message"));
         }
@@ -238,12 +242,6 @@ public class GamesControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_game() throws Exception {
                 // arrange
 
-                Game gameOrig = Game.builder()
-                                .name("Bucket Montage")
-                                .creator("Plum")
-                                .genre("RPG")
-                                .build();
-
                 Game gameEdited = Game.builder()
                                 .name("Montage Bucket")
                                 .creator("Suiku")
@@ -252,7 +250,7 @@ public class GamesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(gameEdited);
 
-                when(gameRepository.findById(eq(67L))).thenReturn(Optional.of(gameOrig));
+                when(gameRepository.updateById(eq(67L), eq(gameEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -264,10 +262,11 @@ public class GamesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(gameRepository, times(1)).findById(67L);
-                verify(gameRepository, times(1)).save(gameEdited); // should be saved with correct user
+                verify(gameRepository, times(1)).updateById(eq(67L), any());
+                verify(gameRepository, never()).findById(any());
+                gameEdited.setId(67L);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(gameEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -283,7 +282,7 @@ public class GamesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedGame);
 
-                when(gameRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(gameRepository.updateById(eq(67L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -295,9 +294,472 @@ public class GamesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(gameRepository, times(1)).findById(67L);
+                verify(gameRepository, times(1)).updateById(eq(67L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Game with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for keyset pagination on /api/games/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_games_with_a_next_cursor() throws Exception {
+
+                // arrange
+
+                Game game1 = Game.builder()
+                                .id(3L)
+                                .name("Chess")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                Game game2 = Game.builder()
+                                .id(4L)
+                                .name("Go")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                Game game3 = Game.builder()
+                                .id(9L)
+                                .name("Tetris")
+                                .creator("Alexey Pajitnov")
+                                .genre("Puzzle")
+                                .build();
+
+                when(gameRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(game1, game2, game3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/all?after=2&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(gameRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 3));
+                KeysetPage<Game, Long> expectedPage = KeysetPage.<Game, Long>builder()
+                                .items(Arrays.asList(game1, game2))
+                                .nextCursor(4L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_of_games_has_no_next_cursor_and_limit_is_clamped() throws Exception {
+
+                // arrange
+
+                Game game1 = Game.builder()
+                                .id(3L)
+                                .name("Chess")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                when(gameRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(game1)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/all?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(gameRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1));
+                KeysetPage<Game, Long> expectedPage = KeysetPage.<Game, Long>builder()
+                                .items(Arrays.asList(game1))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /api/games/export
+
+        @Test
+        public void logged_out_users_cannot_export_games() throws Exception {
+                mockMvc.perform(get("/api/games/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_games_as_ndjson() throws Exception {
+
+                // arrange
+
+                Game game1 = Game.builder()
+                                .id(1L)
+                                .name("Chess")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                Game game2 = Game.builder()
+                                .id(2L)
+                                .name("Go")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                when(gameRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(game1, game2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/export?format=ndjson"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(gameRepository, times(1)).streamAllByOrderByIdAsc();
+                assertEquals(ApiController.NDJSON, response.getResponse().getContentType().split(";")[0]);
+                String expected = mapper.writeValueAsString(game1) + "\n" + mapper.writeValueAsString(game2) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_of_games_rejects_unknown_formats() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(gameRepository, times(0)).streamAllByOrderByIdAsc();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Unsupported export format xml", json.get("message"));
+        }
+
+        // Tests for /api/games/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_post_games() throws Exception {
+                mockMvc.perform(post("/api/games/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_games_as_json() throws Exception {
+
+                // arrange
+
+                Game game1 = Game.builder()
+                                .name("Chess")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                Game game2 = Game.builder()
+                                .name("Go")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                List<Game> expected = Arrays.asList(game1, game2);
+                String requestBody = mapper.writeValueAsString(expected).replace("\"id\":0", "\"id\":42");
+
+                when(gameRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/games/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(gameRepository, times(1)).save(game1);
+                verify(gameRepository, times(1)).save(game2);
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_games_as_csv() throws Exception {
+
+                // arrange
+
+                Game game1 = Game.builder()
+                                .name("Chess")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                Game game2 = Game.builder()
+                                .name("Go")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                String csv = "name,creator,genre\n"
+                                + "\"Chess\",\"Unknown\",\"Strategy\"\n"
+                                + "\"Go\",\"Unknown\",\"Strategy\"\n";
+
+                when(gameRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/games/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .characterEncoding("utf-8")
+                                                .content(csv)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(gameRepository, times(1)).save(game1);
+                verify(gameRepository, times(1)).save(game2);
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(game1, game2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_of_games_rejects_csv_with_unknown_columns() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/games/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .content("color\nred\n")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(gameRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+        }
+
+        // Tests for the response cache behind /api/games/all
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void all_games_are_served_from_the_response_cache_until_a_delete() throws Exception {
+
+                // arrange
+
+                Game game1 = Game.builder()
+                                .id(15L)
+                                .name("Chess")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                when(gameRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(game1)));
+                when(gameRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                mockMvc.perform(get("/api/games/all")).andExpect(status().isOk());
+                MvcResult cached = mockMvc.perform(get("/api/games/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(gameRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(Arrays.asList(game1)), cached.getResponse().getContentAsString());
+
+                // act
+                when(gameRepository.findAll()).thenReturn(new ArrayList<>());
+                mockMvc.perform(delete("/api/games?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult refreshed = mockMvc.perform(get("/api/games/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(gameRepository, times(2)).findAll();
+                assertEquals("[]", refreshed.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match) on /api/games
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void games_answer_conditional_gets_with_304_until_a_delete() throws Exception {
+
+                // arrange
+
+                Game game1 = Game.builder()
+                                .id(15L)
+                                .name("Chess")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                when(gameRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(game1)));
+                when(gameRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/games/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private")).andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/games/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/api/games?id=15").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(gameRepository, times(1)).findAll();
+                verify(gameRepository, never()).findById(any());
+
+                // act
+                mockMvc.perform(delete("/api/games?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult changed = mockMvc.perform(get("/api/games/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(gameRepository, times(2)).findAll();
+                assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+        }
+
+        // Tests for PATCH /api/games
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch_games() throws Exception {
+                mockMvc.perform(patch("/api/games?id=67")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_some_fields_of_a_game() throws Exception {
+                // arrange
+
+                Game game1 = Game.builder()
+                                .id(67L)
+                                .name("Chess")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                Map<String, Object> fields = Map.of("creator", "Unknown");
+                when(entityPatchService.patch(eq(Game.class), eq(67L), eq(fields))).thenReturn(Optional.of(game1));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/games?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(fields))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(entityPatchService, times(1)).patch(eq(Game.class), eq(67L), eq(fields));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(game1), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_game_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(entityPatchService.patch(eq(Game.class), eq(67L), any())).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/games?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"creator\": " + mapper.writeValueAsString("Unknown") + "}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Game with id 67 not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/games/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete_games() throws Exception {
+                mockMvc.perform(delete("/api/games/bulk?ids=1,2,2,3").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_delete_games() throws Exception {
+                // arrange
+
+                when(gameRepository.deleteRowsByIds(eq(List.of(1L, 2L, 3L)))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/games/bulk?ids=1,2,2,3")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(gameRepository, times(1)).deleteRowsByIds(eq(List.of(1L, 2L, 3L)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 games deleted", json.get("message"));
+        }
+
+        // Tests for GET /api/games/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch_of_games() throws Exception {
+                mockMvc.perform(get("/api/games/batch?ids=3,2,1,3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_batch_of_games_in_the_order_requested() throws Exception {
+
+                // arrange
+
+                Game first = Game.builder()
+                                .id(1L)
+                                .name("Chess")
+                                .creator("Unknown")
+                                .genre("Strategy")
+                                .build();
+
+                Game third = Game.builder()
+                                .id(3L)
+                                .name("Tetris")
+                                .creator("Alexey Pajitnov")
+                                .genre("Puzzle")
+                                .build();
+
+                when(gameRepository.findAllById(eq(List.of(3L, 2L, 1L)))).thenReturn(Arrays.asList(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/batch?ids=3,2,1,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(gameRepository, times(1)).findAllById(eq(List.of(3L, 2L, 1L)));
+                String expectedJson = mapper.writeValueAsString(
+                                BatchResult.builder().items(Arrays.asList(third, first)).missing(Arrays.asList(2L)).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
 }
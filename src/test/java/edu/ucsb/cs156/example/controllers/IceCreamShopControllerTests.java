@@ -1,35 +1,45 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.IceCreamShop;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.IceCreamShopRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 @WebMvcTest(controllers = IceCreamShopController.class)
@@ -42,6 +52,9 @@ public class IceCreamShopControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityPatchService entityPatchService;
+
         // Authorization tests for /api/icecreamshop/admin/all
 
         @Test
@@ -193,13 +206,7 @@ public class IceCreamShopControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_iceCreamShop() throws Exception {
                 // arrange
 
-                IceCreamShop baskinrobbins = IceCreamShop.builder()
-                                .name("BaskinRobbins")
-                                .address("StateStSantaBarbaraCA")
-                                .description("Colorfulicecreamparlorchainknownforitsmanyflavorsplussorbetyogurt")
-                                .build();
-
-                when(iceCreamShopRepository.findById(eq(15L))).thenReturn(Optional.of(baskinrobbins));
+                when(iceCreamShopRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -208,8 +215,7 @@ public class IceCreamShopControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(iceCreamShopRepository, times(1)).findById(15L);
-                verify(iceCreamShopRepository, times(1)).delete(any());
+                verify(iceCreamShopRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("IceCreamShop with id 15 deleted", json.get("message"));
@@ -221,7 +227,7 @@ public class IceCreamShopControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(iceCreamShopRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(iceCreamShopRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -230,7 +236,7 @@ public class IceCreamShopControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(iceCreamShopRepository, times(1)).findById(15L);
+                verify(iceCreamShopRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("IceCreamShop with id 15 not found", json.get("message"));
         }
@@ -240,12 +246,6 @@ public class IceCreamShopControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_iceCreamShop() throws Exception {
                 // arrange
 
-                IceCreamShop ivdripOrig = IceCreamShop.builder()
-                                .name("IVDrip")
-                                .address("EmbarcaderodelNorteIslaVistaCA")
-                                .description("Quaintcompactcafeservinglocallyroastedcoffeealongsidehousemadebakedtreatsicecream")
-                                .build();
-
                 IceCreamShop ivdripEdited = IceCreamShop.builder()
                                 .name("ivdrip")
                                 .address("EmbarcaderodelNorteGoletaCA")
@@ -254,7 +254,7 @@ public class IceCreamShopControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ivdripEdited);
 
-                when(iceCreamShopRepository.findById(eq(67L))).thenReturn(Optional.of(ivdripOrig));
+                when(iceCreamShopRepository.updateById(eq(67L), eq(ivdripEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -266,10 +266,11 @@ public class IceCreamShopControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(iceCreamShopRepository, times(1)).findById(67L);
-                verify(iceCreamShopRepository, times(1)).save(ivdripEdited); // should be saved with updated info
+                verify(iceCreamShopRepository, times(1)).updateById(eq(67L), any());
+                verify(iceCreamShopRepository, never()).findById(any());
+                ivdripEdited.setId(67L);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(ivdripEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -285,7 +286,7 @@ public class IceCreamShopControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedIceCreamShop);
 
-                when(iceCreamShopRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(iceCreamShopRepository.updateById(eq(67L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -297,9 +298,472 @@ public class IceCreamShopControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(iceCreamShopRepository, times(1)).findById(67L);
+                verify(iceCreamShopRepository, times(1)).updateById(eq(67L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("IceCreamShop with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for keyset pagination on /api/icecreamshop/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_ice_cream_shops_with_a_next_cursor() throws Exception {
+
+                // arrange
+
+                IceCreamShop iceCreamShop1 = IceCreamShop.builder()
+                                .id(3L)
+                                .name("McConnell's")
+                                .address("728 State St")
+                                .description("Local")
+                                .build();
+
+                IceCreamShop iceCreamShop2 = IceCreamShop.builder()
+                                .id(4L)
+                                .name("Rori's")
+                                .address("2024 Cliff Dr")
+                                .description("Artisan")
+                                .build();
+
+                IceCreamShop iceCreamShop3 = IceCreamShop.builder()
+                                .id(9L)
+                                .name("Cold Stone")
+                                .address("5 W Calle Real")
+                                .description("Chain")
+                                .build();
+
+                when(iceCreamShopRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(iceCreamShop1, iceCreamShop2, iceCreamShop3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/icecreamshop/all?after=2&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(iceCreamShopRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 3));
+                KeysetPage<IceCreamShop, Long> expectedPage = KeysetPage.<IceCreamShop, Long>builder()
+                                .items(Arrays.asList(iceCreamShop1, iceCreamShop2))
+                                .nextCursor(4L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_of_ice_cream_shops_has_no_next_cursor_and_limit_is_clamped() throws Exception {
+
+                // arrange
+
+                IceCreamShop iceCreamShop1 = IceCreamShop.builder()
+                                .id(3L)
+                                .name("McConnell's")
+                                .address("728 State St")
+                                .description("Local")
+                                .build();
+
+                when(iceCreamShopRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(iceCreamShop1)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/icecreamshop/all?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(iceCreamShopRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1));
+                KeysetPage<IceCreamShop, Long> expectedPage = KeysetPage.<IceCreamShop, Long>builder()
+                                .items(Arrays.asList(iceCreamShop1))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /api/icecreamshop/export
+
+        @Test
+        public void logged_out_users_cannot_export_ice_cream_shops() throws Exception {
+                mockMvc.perform(get("/api/icecreamshop/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_ice_cream_shops_as_ndjson() throws Exception {
+
+                // arrange
+
+                IceCreamShop iceCreamShop1 = IceCreamShop.builder()
+                                .id(1L)
+                                .name("McConnell's")
+                                .address("728 State St")
+                                .description("Local")
+                                .build();
+
+                IceCreamShop iceCreamShop2 = IceCreamShop.builder()
+                                .id(2L)
+                                .name("Rori's")
+                                .address("2024 Cliff Dr")
+                                .description("Artisan")
+                                .build();
+
+                when(iceCreamShopRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(iceCreamShop1, iceCreamShop2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/icecreamshop/export?format=ndjson"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(iceCreamShopRepository, times(1)).streamAllByOrderByIdAsc();
+                assertEquals(ApiController.NDJSON, response.getResponse().getContentType().split(";")[0]);
+                String expected = mapper.writeValueAsString(iceCreamShop1) + "\n" + mapper.writeValueAsString(iceCreamShop2) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_of_ice_cream_shops_rejects_unknown_formats() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/icecreamshop/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(iceCreamShopRepository, times(0)).streamAllByOrderByIdAsc();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Unsupported export format xml", json.get("message"));
+        }
+
+        // Tests for /api/icecreamshop/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_post_ice_cream_shops() throws Exception {
+                mockMvc.perform(post("/api/icecreamshop/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_ice_cream_shops_as_json() throws Exception {
+
+                // arrange
+
+                IceCreamShop iceCreamShop1 = IceCreamShop.builder()
+                                .name("McConnell's")
+                                .address("728 State St")
+                                .description("Local")
+                                .build();
+
+                IceCreamShop iceCreamShop2 = IceCreamShop.builder()
+                                .name("Rori's")
+                                .address("2024 Cliff Dr")
+                                .description("Artisan")
+                                .build();
+
+                List<IceCreamShop> expected = Arrays.asList(iceCreamShop1, iceCreamShop2);
+                String requestBody = mapper.writeValueAsString(expected).replace("\"id\":0", "\"id\":42");
+
+                when(iceCreamShopRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/icecreamshop/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(iceCreamShopRepository, times(1)).save(iceCreamShop1);
+                verify(iceCreamShopRepository, times(1)).save(iceCreamShop2);
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_ice_cream_shops_as_csv() throws Exception {
+
+                // arrange
+
+                IceCreamShop iceCreamShop1 = IceCreamShop.builder()
+                                .name("McConnell's")
+                                .address("728 State St")
+                                .description("Local")
+                                .build();
+
+                IceCreamShop iceCreamShop2 = IceCreamShop.builder()
+                                .name("Rori's")
+                                .address("2024 Cliff Dr")
+                                .description("Artisan")
+                                .build();
+
+                String csv = "name,address,description\n"
+                                + "\"McConnell's\",\"728 State St\",\"Local\"\n"
+                                + "\"Rori's\",\"2024 Cliff Dr\",\"Artisan\"\n";
+
+                when(iceCreamShopRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/icecreamshop/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .characterEncoding("utf-8")
+                                                .content(csv)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(iceCreamShopRepository, times(1)).save(iceCreamShop1);
+                verify(iceCreamShopRepository, times(1)).save(iceCreamShop2);
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(iceCreamShop1, iceCreamShop2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_of_ice_cream_shops_rejects_csv_with_unknown_columns() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/icecreamshop/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .content("color\nred\n")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(iceCreamShopRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+        }
+
+        // Tests for the response cache behind /api/icecreamshop/all
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void all_ice_cream_shops_are_served_from_the_response_cache_until_a_delete() throws Exception {
+
+                // arrange
+
+                IceCreamShop iceCreamShop1 = IceCreamShop.builder()
+                                .id(15L)
+                                .name("McConnell's")
+                                .address("728 State St")
+                                .description("Local")
+                                .build();
+
+                when(iceCreamShopRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(iceCreamShop1)));
+                when(iceCreamShopRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                mockMvc.perform(get("/api/icecreamshop/all")).andExpect(status().isOk());
+                MvcResult cached = mockMvc.perform(get("/api/icecreamshop/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(iceCreamShopRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(Arrays.asList(iceCreamShop1)), cached.getResponse().getContentAsString());
+
+                // act
+                when(iceCreamShopRepository.findAll()).thenReturn(new ArrayList<>());
+                mockMvc.perform(delete("/api/icecreamshop?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult refreshed = mockMvc.perform(get("/api/icecreamshop/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(iceCreamShopRepository, times(2)).findAll();
+                assertEquals("[]", refreshed.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match) on /api/icecreamshop
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void ice_cream_shops_answer_conditional_gets_with_304_until_a_delete() throws Exception {
+
+                // arrange
+
+                IceCreamShop iceCreamShop1 = IceCreamShop.builder()
+                                .id(15L)
+                                .name("McConnell's")
+                                .address("728 State St")
+                                .description("Local")
+                                .build();
+
+                when(iceCreamShopRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(iceCreamShop1)));
+                when(iceCreamShopRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/icecreamshop/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private")).andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/icecreamshop/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/api/icecreamshop?id=15").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(iceCreamShopRepository, times(1)).findAll();
+                verify(iceCreamShopRepository, never()).findById(any());
+
+                // act
+                mockMvc.perform(delete("/api/icecreamshop?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult changed = mockMvc.perform(get("/api/icecreamshop/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(iceCreamShopRepository, times(2)).findAll();
+                assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+        }
+
+        // Tests for PATCH /api/icecreamshop
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch_ice_cream_shops() throws Exception {
+                mockMvc.perform(patch("/api/icecreamshop?id=67")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_some_fields_of_an_ice_cream_shop() throws Exception {
+                // arrange
+
+                IceCreamShop iceCreamShop1 = IceCreamShop.builder()
+                                .id(67L)
+                                .name("McConnell's")
+                                .address("728 State St")
+                                .description("Local")
+                                .build();
+
+                Map<String, Object> fields = Map.of("address", "728 State St");
+                when(entityPatchService.patch(eq(IceCreamShop.class), eq(67L), eq(fields))).thenReturn(Optional.of(iceCreamShop1));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/icecreamshop?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(fields))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(entityPatchService, times(1)).patch(eq(IceCreamShop.class), eq(67L), eq(fields));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(iceCreamShop1), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_an_ice_cream_shop_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(entityPatchService.patch(eq(IceCreamShop.class), eq(67L), any())).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/icecreamshop?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"address\": " + mapper.writeValueAsString("728 State St") + "}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("IceCreamShop with id 67 not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/icecreamshop/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete_ice_cream_shops() throws Exception {
+                mockMvc.perform(delete("/api/icecreamshop/bulk?ids=1,2,2,3").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_delete_ice_cream_shops() throws Exception {
+                // arrange
+
+                when(iceCreamShopRepository.deleteRowsByIds(eq(List.of(1L, 2L, 3L)))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/icecreamshop/bulk?ids=1,2,2,3")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(iceCreamShopRepository, times(1)).deleteRowsByIds(eq(List.of(1L, 2L, 3L)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 ice cream shops deleted", json.get("message"));
+        }
+
+        // Tests for GET /api/icecreamshop/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch_of_ice_cream_shops() throws Exception {
+                mockMvc.perform(get("/api/icecreamshop/batch?ids=3,2,1,3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_batch_of_ice_cream_shops_in_the_order_requested() throws Exception {
+
+                // arrange
+
+                IceCreamShop first = IceCreamShop.builder()
+                                .id(1L)
+                                .name("McConnell's")
+                                .address("728 State St")
+                                .description("Local")
+                                .build();
+
+                IceCreamShop third = IceCreamShop.builder()
+                                .id(3L)
+                                .name("Cold Stone")
+                                .address("5 W Calle Real")
+                                .description("Chain")
+                                .build();
+
+                when(iceCreamShopRepository.findAllById(eq(List.of(3L, 2L, 1L)))).thenReturn(Arrays.asList(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/icecreamshop/batch?ids=3,2,1,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(iceCreamShopRepository, times(1)).findAllById(eq(List.of(3L, 2L, 1L)));
+                String expectedJson = mapper.writeValueAsString(
+                                BatchResult.builder().items(Arrays.asList(third, first)).missing(Arrays.asList(2L)).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
 }
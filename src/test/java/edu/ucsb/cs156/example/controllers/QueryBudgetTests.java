@@ -0,0 +1,239 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.config.QueryCountingFilter;
+import edu.ucsb.cs156.example.testconfig.FullStackTestApplication;
+
+/**
+ * Runs each endpoint of every CRUD controller against a real (in-memory)
+ * database and checks that it runs no more SQL statements than its budget,
+ * so that an N+1 query or a load-before-delete cannot creep back in
+ * unnoticed.  Statements are counted by QueryCountingFilter.
+ */
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@SpringBootTest(classes = FullStackTestApplication.class)
+@WithMockUser(roles = { "ADMIN", "USER" })
+class QueryBudgetTests {
+
+  // endpoint -> most statements it may run (the id sequence is read once
+  // per 50 new rows, so a create may cost one more than its insert)
+  private static final Map<String, Integer> BUDGETS = Map.ofEntries(
+      Map.entry("POST /post", 2),
+      Map.entry("GET /all", 1),
+      Map.entry("GET /all?limit", 1),
+      Map.entry("GET", 1),
+      Map.entry("GET /batch", 1),
+      Map.entry("GET /export", 1),
+      Map.entry("PUT", 1),
+      Map.entry("PATCH", 2),
+      Map.entry("POST /bulk", 2),
+      Map.entry("DELETE", 1),
+      Map.entry("DELETE /bulk", 1));
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  private record Resource(String path, String key, Map<String, String> newRow, String patchField, boolean bulkPost) {
+    // the parameter that takes a list of keys
+    String keys() {
+      return key.equals("code") ? "codes" : "ids";
+    }
+  }
+
+  @Test
+  void amusement_parks_stay_within_budget() throws Exception {
+    assertWithinBudget(new Resource("/api/amusementparks", "id",
+        Map.of("name", "Six Flags", "address", "Valencia, CA", "description", "Rides"), "name", true));
+  }
+
+  @Test
+  void books_stay_within_budget() throws Exception {
+    assertWithinBudget(new Resource("/api/books", "id",
+        Map.of("title", "Dune", "author", "Frank Herbert", "publicdate", "1965/08/01"), "title", true));
+  }
+
+  @Test
+  void games_stay_within_budget() throws Exception {
+    assertWithinBudget(new Resource("/api/games", "id",
+        Map.of("name", "Tetris", "creator", "Alexey Pajitnov", "genre", "Puzzle"), "name", true));
+  }
+
+  @Test
+  void ice_cream_shops_stay_within_budget() throws Exception {
+    assertWithinBudget(new Resource("/api/icecreamshop", "id",
+        Map.of("name", "McConnell's", "address", "State St", "description", "Scoops"), "name", true));
+  }
+
+  @Test
+  void restaurants_stay_within_budget() throws Exception {
+    assertWithinBudget(new Resource("/api/restaurants", "id",
+        Map.of("name", "Freebirds", "address", "Isla Vista, CA", "specialty", "Burritos"), "name", true));
+  }
+
+  @Test
+  void schools_stay_within_budget() throws Exception {
+    assertWithinBudget(new Resource("/api/schools", "id",
+        Map.of("name", "UCSB", "address", "Santa Barbara, CA", "description", "Gauchos"), "name", true));
+  }
+
+  @Test
+  void ucsb_dates_stay_within_budget() throws Exception {
+    assertWithinBudget(new Resource("/api/ucsbdates", "id",
+        Map.of("quarterYYYYQ", "20231", "name", "Finals", "localDateTime", "2023-03-18T08:00:00"), "name", true));
+  }
+
+  @Test
+  void dining_commons_stay_within_budget() throws Exception {
+    assertWithinBudget(new Resource("/api/ucsbdiningcommons", "code",
+        Map.of("code", "budget", "name", "Budget Commons", "hasSackMeal", "true", "hasTakeOutMeal", "true",
+            "hasDiningCam", "false", "latitude", "34.41", "longitude", "-119.85"),
+        "name", false));
+  }
+
+  @Test
+  void dining_commons_index_queries_run_no_statements_once_it_is_loaded() throws Exception {
+    Map<String, Integer> used = new LinkedHashMap<>();
+    run("GET /nearest (loads)", get("/api/ucsbdiningcommons/nearest").param("lat", "0").param("lon", "0"), used);
+    run("POST /post", post("/api/ucsbdiningcommons/post").with(csrf())
+        .param("code", "geo").param("name", "Geo Commons").param("hasSackMeal", "true")
+        .param("hasTakeOutMeal", "true").param("hasDiningCam", "false")
+        .param("latitude", "12.5").param("longitude", "45.5"), used);
+
+    MvcResult nearest = run("GET /nearest", get("/api/ucsbdiningcommons/nearest")
+        .param("lat", "12.5").param("lon", "45.5").param("k", "1"), used);
+    MvcResult within = run("GET /within", get("/api/ucsbdiningcommons/within")
+        .param("south", "12").param("west", "45").param("north", "13").param("east", "46"), used);
+
+    MvcResult filtered = run("GET /filter", get("/api/ucsbdiningcommons/filter")
+        .param("hasSackMeal", "true").param("hasDiningCam", "false"), used);
+
+    assertEquals("geo", mapper.readTree(nearest.getResponse().getContentAsString()).get(0).get("commons").get("code").asText());
+    assertEquals("geo", mapper.readTree(within.getResponse().getContentAsString()).get(0).get("code").asText());
+    assertEquals(0, used.get("GET /nearest"));
+    assertEquals(0, used.get("GET /within"));
+    assertEquals(0, used.get("GET /filter"));
+    assertTrue(filtered.getResponse().getContentAsString().contains("\"code\":\"geo\""));
+  }
+
+  @Test
+  void ucsb_date_quarters_are_queried_once_until_written() throws Exception {
+    Map<String, Integer> used = new LinkedHashMap<>();
+    run("GET /quarter (loads)", get("/api/ucsbdates/quarter").param("yyyyq", "20094"), used);
+    MvcResult cached = run("GET /quarter", get("/api/ucsbdates/quarter").param("yyyyq", "20094"), used);
+    assertEquals("[]", cached.getResponse().getContentAsString());
+
+    run("POST /post", post("/api/ucsbdates/post").with(csrf())
+        .param("quarterYYYYQ", "20094").param("name", "Quarter test").param("localDateTime", "2009-09-24T08:00:00"), used);
+    MvcResult reloaded = run("GET /quarter (reloads)", get("/api/ucsbdates/quarter").param("yyyyq", "20094"), used);
+    run("GET /quarters", get("/api/ucsbdates/quarters"), used);
+
+    assertEquals(0, used.get("GET /quarter"));
+    assertEquals(1, used.get("GET /quarter (reloads)"));
+    assertEquals(1, used.get("GET /quarters"));
+    assertEquals("Quarter test", mapper.readTree(reloaded.getResponse().getContentAsString()).get(0).get("name").asText());
+  }
+
+  @Test
+  void ucsb_date_calendars_are_rendered_once_until_written() throws Exception {
+    Map<String, Integer> used = new LinkedHashMap<>();
+    run("POST /post", post("/api/ucsbdates/post").with(csrf())
+        .param("quarterYYYYQ", "20102").param("name", "Calendar spring").param("localDateTime", "2010-03-29T08:00:00"), used);
+    run("GET /calendar.ics (renders)", get("/api/ucsbdates/calendar.ics"), used);
+    MvcResult polled = run("GET /calendar.ics", get("/api/ucsbdates/calendar.ics"), used);
+    run("GET /calendar.ics?yyyyq", get("/api/ucsbdates/calendar.ics").param("yyyyq", "20101"), used);
+    run("GET /calendar.ics?yyyyq (cached)", get("/api/ucsbdates/calendar.ics").param("yyyyq", "20101"), used);
+
+    run("POST /post", post("/api/ucsbdates/post").with(csrf())
+        .param("quarterYYYYQ", "20101").param("name", "Calendar test").param("localDateTime", "2010-01-04T08:00:00"), used);
+    MvcResult rerendered = run("GET /calendar.ics?yyyyq (re-renders)",
+        get("/api/ucsbdates/calendar.ics").param("yyyyq", "20101"), used);
+
+    // the quarter summary, then one query for every quarter not yet cached
+    assertTrue(used.get("GET /calendar.ics (renders)") <= 2);
+    assertEquals(0, used.get("GET /calendar.ics"));
+    assertEquals(0, used.get("GET /calendar.ics?yyyyq (cached)"));
+    assertEquals(1, used.get("GET /calendar.ics?yyyyq (re-renders)"));
+    assertTrue(polled.getResponse().getHeader("ETag") != null);
+    assertTrue(rerendered.getResponse().getContentAsString().contains("SUMMARY:Calendar test"));
+  }
+
+  private void assertWithinBudget(Resource resource) throws Exception {
+    Map<String, Integer> used = new LinkedHashMap<>();
+    String path = resource.path();
+
+    List<String> keys = new ArrayList<>();
+    List<JsonNode> created = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      MockHttpServletRequestBuilder request = post(path + "/post").with(csrf());
+      int n = i;
+      resource.newRow().forEach((name, value) -> request.param(name,
+          name.equals("code") ? value + n : value));
+      MvcResult result = run("POST /post", request, used);
+      JsonNode row = mapper.readTree(result.getResponse().getContentAsString());
+      created.add(row);
+      keys.add(row.get(resource.key()).asText());
+    }
+
+    run("GET /all", get(path + "/all"), used);
+    run("GET /all?limit", get(path + "/all").param("limit", "2"), used);
+    run("GET", get(path).param(resource.key(), keys.get(0)), used);
+    run("GET /batch", get(path + "/batch").param(resource.keys(), String.join(",", keys)), used);
+    run("GET /export", get(path + "/export"), used);
+    run("PUT", put(path).param(resource.key(), keys.get(0)).with(csrf())
+        .contentType(MediaType.APPLICATION_JSON).content(created.get(0).toString()), used);
+    run("PATCH", patch(path).param(resource.key(), keys.get(0)).with(csrf())
+        .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(
+            Map.of(resource.patchField(), "Patched"))), used);
+    if (resource.bulkPost()) {
+      run("POST /bulk", post(path + "/bulk").with(csrf())
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(mapper.writeValueAsString(List.of(resource.newRow(), resource.newRow()))), used);
+    }
+    run("DELETE", delete(path).param(resource.key(), keys.get(1)).with(csrf()), used);
+    run("DELETE /bulk", delete(path + "/bulk").param(resource.keys(), keys.get(2)).with(csrf()), used);
+
+    used.forEach((endpoint, statements) -> assertTrue(statements <= BUDGETS.get(endpoint),
+        "%s %s ran %d statements, over its budget of %d".formatted(endpoint, path, statements,
+            BUDGETS.get(endpoint))));
+  }
+
+  private MvcResult run(String endpoint, MockHttpServletRequestBuilder request, Map<String, Integer> used)
+      throws Exception {
+    MvcResult result = mockMvc.perform(request).andExpect(status().is2xxSuccessful()).andReturn();
+    int statements = (int) result.getRequest().getAttribute(QueryCountingFilter.STATEMENTS_ATTRIBUTE);
+    used.merge(endpoint, statements, Math::max);
+    return result;
+  }
+}
@@ -1,18 +1,23 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RestaurantsRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -22,10 +27,13 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,6 +48,9 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityPatchService entityPatchService;
+
         // Authorization tests for /api/restaurants/admin/all
 
         @Test
@@ -191,13 +202,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_restaurant() throws Exception {
                 // arrange
 
-                Restaurant kazunori = Restaurant.builder()
-                                .name("KazuNori: The Original Hand Roll Bar")
-                                .address("1110 Gayley Ave, Los Angeles, CA 90024")
-                                .specialty("Sushi - Hand Rolls")
-                                .build();
-
-                when(restaurantsRepository.findById(eq(1l))).thenReturn(Optional.of(kazunori));
+                when(restaurantsRepository.deleteRowById(eq(1l))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -206,8 +211,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(restaurantsRepository, times(1)).findById(1l);
-                verify(restaurantsRepository, times(1)).delete(any());
+                verify(restaurantsRepository, times(1)).deleteRowById(1l);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 1 deleted", json.get("message"));
@@ -219,7 +223,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(restaurantsRepository.findById(eq(123l))).thenReturn(Optional.empty());
+                when(restaurantsRepository.deleteRowById(eq(123l))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -228,7 +232,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(restaurantsRepository, times(1)).findById(123l);
+                verify(restaurantsRepository, times(1)).deleteRowById(123l);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 123 not found", json.get("message"));
         }
@@ -238,12 +242,6 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_restaurant() throws Exception {
                 // arrange
 
-                Restaurant kazunoriOrig = Restaurant.builder()
-                                .name("KazuNori: The Original Hand Roll Bar")
-                                .address("1110 Gayley Ave, Goleta, CA 90024")
-                                .specialty("Burgers")
-                                .build();
-
                 Restaurant kazunoriEdited = Restaurant.builder()
                                 .name("KazuNori")
                                 .address("1110 Gayley Ave, Los Angeles, CA 90024")
@@ -252,7 +250,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(kazunoriEdited);
 
-                when(restaurantsRepository.findById(eq(2l))).thenReturn(Optional.of(kazunoriOrig));
+                when(restaurantsRepository.updateById(eq(2l), eq(kazunoriEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -264,10 +262,11 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(restaurantsRepository, times(1)).findById(2l);
-                verify(restaurantsRepository, times(1)).save(kazunoriEdited); // should be saved with updated info
+                verify(restaurantsRepository, times(1)).updateById(eq(2l), any());
+                verify(restaurantsRepository, never()).findById(any());
+                kazunoriEdited.setId(2l);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(kazunoriEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -283,7 +282,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(kazunoriEdited);
 
-                when(restaurantsRepository.findById(eq(2l))).thenReturn(Optional.empty());
+                when(restaurantsRepository.updateById(eq(2l), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -295,9 +294,472 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(restaurantsRepository, times(1)).findById(2l);
+                verify(restaurantsRepository, times(1)).updateById(eq(2l), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 2 not found", json.get("message"));
 
         }
+
+        // Tests for keyset pagination on /api/restaurants/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_restaurants_with_a_next_cursor() throws Exception {
+
+                // arrange
+
+                Restaurant restaurant1 = Restaurant.builder()
+                                .id(3L)
+                                .name("Freebirds")
+                                .address("879 Embarcadero del Norte")
+                                .specialty("Burritos")
+                                .build();
+
+                Restaurant restaurant2 = Restaurant.builder()
+                                .id(4L)
+                                .name("Blaze Pizza")
+                                .address("6530 Pardall Rd")
+                                .specialty("Pizza")
+                                .build();
+
+                Restaurant restaurant3 = Restaurant.builder()
+                                .id(9L)
+                                .name("Naan Stop")
+                                .address("910 Embarcadero del Norte")
+                                .specialty("Indian")
+                                .build();
+
+                when(restaurantsRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(restaurant1, restaurant2, restaurant3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/all?after=2&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(restaurantsRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 3));
+                KeysetPage<Restaurant, Long> expectedPage = KeysetPage.<Restaurant, Long>builder()
+                                .items(Arrays.asList(restaurant1, restaurant2))
+                                .nextCursor(4L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_of_restaurants_has_no_next_cursor_and_limit_is_clamped() throws Exception {
+
+                // arrange
+
+                Restaurant restaurant1 = Restaurant.builder()
+                                .id(3L)
+                                .name("Freebirds")
+                                .address("879 Embarcadero del Norte")
+                                .specialty("Burritos")
+                                .build();
+
+                when(restaurantsRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(restaurant1)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/all?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(restaurantsRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1));
+                KeysetPage<Restaurant, Long> expectedPage = KeysetPage.<Restaurant, Long>builder()
+                                .items(Arrays.asList(restaurant1))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /api/restaurants/export
+
+        @Test
+        public void logged_out_users_cannot_export_restaurants() throws Exception {
+                mockMvc.perform(get("/api/restaurants/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_restaurants_as_ndjson() throws Exception {
+
+                // arrange
+
+                Restaurant restaurant1 = Restaurant.builder()
+                                .id(1L)
+                                .name("Freebirds")
+                                .address("879 Embarcadero del Norte")
+                                .specialty("Burritos")
+                                .build();
+
+                Restaurant restaurant2 = Restaurant.builder()
+                                .id(2L)
+                                .name("Blaze Pizza")
+                                .address("6530 Pardall Rd")
+                                .specialty("Pizza")
+                                .build();
+
+                when(restaurantsRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(restaurant1, restaurant2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/export?format=ndjson"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(restaurantsRepository, times(1)).streamAllByOrderByIdAsc();
+                assertEquals(ApiController.NDJSON, response.getResponse().getContentType().split(";")[0]);
+                String expected = mapper.writeValueAsString(restaurant1) + "\n" + mapper.writeValueAsString(restaurant2) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_of_restaurants_rejects_unknown_formats() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(restaurantsRepository, times(0)).streamAllByOrderByIdAsc();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Unsupported export format xml", json.get("message"));
+        }
+
+        // Tests for /api/restaurants/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_post_restaurants() throws Exception {
+                mockMvc.perform(post("/api/restaurants/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_restaurants_as_json() throws Exception {
+
+                // arrange
+
+                Restaurant restaurant1 = Restaurant.builder()
+                                .name("Freebirds")
+                                .address("879 Embarcadero del Norte")
+                                .specialty("Burritos")
+                                .build();
+
+                Restaurant restaurant2 = Restaurant.builder()
+                                .name("Blaze Pizza")
+                                .address("6530 Pardall Rd")
+                                .specialty("Pizza")
+                                .build();
+
+                List<Restaurant> expected = Arrays.asList(restaurant1, restaurant2);
+                String requestBody = mapper.writeValueAsString(expected).replace("\"id\":0", "\"id\":42");
+
+                when(restaurantsRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/restaurants/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(restaurantsRepository, times(1)).save(restaurant1);
+                verify(restaurantsRepository, times(1)).save(restaurant2);
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_restaurants_as_csv() throws Exception {
+
+                // arrange
+
+                Restaurant restaurant1 = Restaurant.builder()
+                                .name("Freebirds")
+                                .address("879 Embarcadero del Norte")
+                                .specialty("Burritos")
+                                .build();
+
+                Restaurant restaurant2 = Restaurant.builder()
+                                .name("Blaze Pizza")
+                                .address("6530 Pardall Rd")
+                                .specialty("Pizza")
+                                .build();
+
+                String csv = "name,address,specialty\n"
+                                + "\"Freebirds\",\"879 Embarcadero del Norte\",\"Burritos\"\n"
+                                + "\"Blaze Pizza\",\"6530 Pardall Rd\",\"Pizza\"\n";
+
+                when(restaurantsRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/restaurants/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .characterEncoding("utf-8")
+                                                .content(csv)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(restaurantsRepository, times(1)).save(restaurant1);
+                verify(restaurantsRepository, times(1)).save(restaurant2);
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(restaurant1, restaurant2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_of_restaurants_rejects_csv_with_unknown_columns() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/restaurants/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .content("color\nred\n")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(restaurantsRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+        }
+
+        // Tests for the response cache behind /api/restaurants/all
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void all_restaurants_are_served_from_the_response_cache_until_a_delete() throws Exception {
+
+                // arrange
+
+                Restaurant restaurant1 = Restaurant.builder()
+                                .id(15L)
+                                .name("Freebirds")
+                                .address("879 Embarcadero del Norte")
+                                .specialty("Burritos")
+                                .build();
+
+                when(restaurantsRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(restaurant1)));
+                when(restaurantsRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk());
+                MvcResult cached = mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantsRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(Arrays.asList(restaurant1)), cached.getResponse().getContentAsString());
+
+                // act
+                when(restaurantsRepository.findAll()).thenReturn(new ArrayList<>());
+                mockMvc.perform(delete("/api/restaurants?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult refreshed = mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantsRepository, times(2)).findAll();
+                assertEquals("[]", refreshed.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match) on /api/restaurants
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void restaurants_answer_conditional_gets_with_304_until_a_delete() throws Exception {
+
+                // arrange
+
+                Restaurant restaurant1 = Restaurant.builder()
+                                .id(15L)
+                                .name("Freebirds")
+                                .address("879 Embarcadero del Norte")
+                                .specialty("Burritos")
+                                .build();
+
+                when(restaurantsRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(restaurant1)));
+                when(restaurantsRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/restaurants/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private")).andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/restaurants/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/api/restaurants?id=15").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(restaurantsRepository, times(1)).findAll();
+                verify(restaurantsRepository, never()).findById(any());
+
+                // act
+                mockMvc.perform(delete("/api/restaurants?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult changed = mockMvc.perform(get("/api/restaurants/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantsRepository, times(2)).findAll();
+                assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+        }
+
+        // Tests for PATCH /api/restaurants
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch_restaurants() throws Exception {
+                mockMvc.perform(patch("/api/restaurants?id=67")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_some_fields_of_a_restaurant() throws Exception {
+                // arrange
+
+                Restaurant restaurant1 = Restaurant.builder()
+                                .id(67L)
+                                .name("Freebirds")
+                                .address("879 Embarcadero del Norte")
+                                .specialty("Burritos")
+                                .build();
+
+                Map<String, Object> fields = Map.of("address", "879 Embarcadero del Norte");
+                when(entityPatchService.patch(eq(Restaurant.class), eq(67L), eq(fields))).thenReturn(Optional.of(restaurant1));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/restaurants?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(fields))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(entityPatchService, times(1)).patch(eq(Restaurant.class), eq(67L), eq(fields));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(restaurant1), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_restaurant_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(entityPatchService.patch(eq(Restaurant.class), eq(67L), any())).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/restaurants?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"address\": " + mapper.writeValueAsString("879 Embarcadero del Norte") + "}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Restaurant with id 67 not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/restaurants/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete_restaurants() throws Exception {
+                mockMvc.perform(delete("/api/restaurants/bulk?ids=1,2,2,3").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_delete_restaurants() throws Exception {
+                // arrange
+
+                when(restaurantsRepository.deleteRowsByIds(eq(List.of(1L, 2L, 3L)))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/restaurants/bulk?ids=1,2,2,3")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantsRepository, times(1)).deleteRowsByIds(eq(List.of(1L, 2L, 3L)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 restaurants deleted", json.get("message"));
+        }
+
+        // Tests for GET /api/restaurants/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch_of_restaurants() throws Exception {
+                mockMvc.perform(get("/api/restaurants/batch?ids=3,2,1,3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_batch_of_restaurants_in_the_order_requested() throws Exception {
+
+                // arrange
+
+                Restaurant first = Restaurant.builder()
+                                .id(1L)
+                                .name("Freebirds")
+                                .address("879 Embarcadero del Norte")
+                                .specialty("Burritos")
+                                .build();
+
+                Restaurant third = Restaurant.builder()
+                                .id(3L)
+                                .name("Naan Stop")
+                                .address("910 Embarcadero del Norte")
+                                .specialty("Indian")
+                                .build();
+
+                when(restaurantsRepository.findAllById(eq(List.of(3L, 2L, 1L)))).thenReturn(Arrays.asList(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/batch?ids=3,2,1,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(restaurantsRepository, times(1)).findAllById(eq(List.of(3L, 2L, 1L)));
+                String expectedJson = mapper.writeValueAsString(
+                                BatchResult.builder().items(Arrays.asList(third, first)).missing(Arrays.asList(2L)).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
 }
@@ -1,18 +1,23 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.School;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.SchoolRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -23,11 +28,20 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 
 //import java.time.LocalDateTime;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +56,9 @@ public class SchoolControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityPatchService entityPatchService;
+
         // Authorization tests for /api/ucsbdates/admin/all
 
         @Test
@@ -201,13 +218,7 @@ public class SchoolControllerTests extends ControllerTestCase {
 
                 //LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
 
-                School school1 = School.builder()
-                                .name("UCSB")
-                                .address("123 First Street")
-                                .description("ucsb test")
-                                .build();
-
-                when(schoolRepository.findById(eq(15L))).thenReturn(Optional.of(school1));
+                when(schoolRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -216,8 +227,7 @@ public class SchoolControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(schoolRepository, times(1)).findById(15L);
-                verify(schoolRepository, times(1)).delete(any());
+                verify(schoolRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("School with id 15 deleted", json.get("message"));
@@ -229,7 +239,7 @@ public class SchoolControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(schoolRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(schoolRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -238,7 +248,7 @@ public class SchoolControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(schoolRepository, times(1)).findById(15L);
+                verify(schoolRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("School with id 15 not found", json.get("message"));
         }
@@ -251,12 +261,6 @@ public class SchoolControllerTests extends ControllerTestCase {
                 //LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 //LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                School schoolOrig = School.builder()
-                                .name("UCSB")
-                                .address("123 First Street")
-                                .description("ucsb test")
-                                .build();
-
                 School schoolEdited = School.builder()
                                 .name("UC Santa Barbara")
                                 .address("321 Third Street")
@@ -265,7 +269,7 @@ public class SchoolControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(schoolEdited);
 
-                when(schoolRepository.findById(eq(67L))).thenReturn(Optional.of(schoolOrig));
+                when(schoolRepository.updateById(eq(67L), eq(schoolEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -277,10 +281,11 @@ public class SchoolControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(schoolRepository, times(1)).findById(67L);
-                verify(schoolRepository, times(1)).save(schoolEdited); // should be saved with correct user
+                verify(schoolRepository, times(1)).updateById(eq(67L), any());
+                verify(schoolRepository, never()).findById(any());
+                schoolEdited.setId(67L);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(schoolEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -298,7 +303,7 @@ public class SchoolControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(schoolEdited);
 
-                when(schoolRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(schoolRepository.updateById(eq(67L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -310,9 +315,534 @@ public class SchoolControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(schoolRepository, times(1)).findById(67L);
+                verify(schoolRepository, times(1)).updateById(eq(67L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("School with id 67 not found", json.get("message"));
+
+        }
+
+        // Tests for keyset pagination on /api/schools/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_schools_with_a_next_cursor() throws Exception {
+
+                // arrange
+
+                School school1 = School.builder()
+                                .id(3L)
+                                .name("UCSB")
+                                .address("Santa Barbara, CA")
+                                .description("Gauchos")
+                                .build();
+
+                School school2 = School.builder()
+                                .id(4L)
+                                .name("UCLA")
+                                .address("Los Angeles, CA")
+                                .description("Bruins")
+                                .build();
+
+                School school3 = School.builder()
+                                .id(9L)
+                                .name("UCSD")
+                                .address("La Jolla, CA")
+                                .description("Tritons")
+                                .build();
+
+                when(schoolRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(school1, school2, school3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/schools/all?after=2&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(schoolRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 3));
+                KeysetPage<School, Long> expectedPage = KeysetPage.<School, Long>builder()
+                                .items(Arrays.asList(school1, school2))
+                                .nextCursor(4L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_of_schools_has_no_next_cursor_and_limit_is_clamped() throws Exception {
+
+                // arrange
+
+                School school1 = School.builder()
+                                .id(3L)
+                                .name("UCSB")
+                                .address("Santa Barbara, CA")
+                                .description("Gauchos")
+                                .build();
+
+                when(schoolRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(school1)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/schools/all?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(schoolRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1));
+                KeysetPage<School, Long> expectedPage = KeysetPage.<School, Long>builder()
+                                .items(Arrays.asList(school1))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /api/schools/export
+
+        @Test
+        public void logged_out_users_cannot_export_schools() throws Exception {
+                mockMvc.perform(get("/api/schools/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_schools_as_ndjson() throws Exception {
+
+                // arrange
+
+                School school1 = School.builder()
+                                .id(1L)
+                                .name("UCSB")
+                                .address("Santa Barbara, CA")
+                                .description("Gauchos")
+                                .build();
+
+                School school2 = School.builder()
+                                .id(2L)
+                                .name("UCLA")
+                                .address("Los Angeles, CA")
+                                .description("Bruins")
+                                .build();
+
+                when(schoolRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(school1, school2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/schools/export?format=ndjson"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(schoolRepository, times(1)).streamAllByOrderByIdAsc();
+                assertEquals(ApiController.NDJSON, response.getResponse().getContentType().split(";")[0]);
+                String expected = mapper.writeValueAsString(school1) + "\n" + mapper.writeValueAsString(school2) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_of_schools_rejects_unknown_formats() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/schools/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(schoolRepository, times(0)).streamAllByOrderByIdAsc();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Unsupported export format xml", json.get("message"));
+        }
+
+        // Tests for /api/schools/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_post_schools() throws Exception {
+                mockMvc.perform(post("/api/schools/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_schools_as_json() throws Exception {
+
+                // arrange
+
+                School school1 = School.builder()
+                                .name("UCSB")
+                                .address("Santa Barbara, CA")
+                                .description("Gauchos")
+                                .build();
+
+                School school2 = School.builder()
+                                .name("UCLA")
+                                .address("Los Angeles, CA")
+                                .description("Bruins")
+                                .build();
+
+                List<School> expected = Arrays.asList(school1, school2);
+                String requestBody = mapper.writeValueAsString(expected).replace("\"id\":0", "\"id\":42");
+
+                when(schoolRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/schools/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(schoolRepository, times(1)).save(school1);
+                verify(schoolRepository, times(1)).save(school2);
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_schools_as_csv() throws Exception {
+
+                // arrange
+
+                School school1 = School.builder()
+                                .name("UCSB")
+                                .address("Santa Barbara, CA")
+                                .description("Gauchos")
+                                .build();
+
+                School school2 = School.builder()
+                                .name("UCLA")
+                                .address("Los Angeles, CA")
+                                .description("Bruins")
+                                .build();
+
+                String csv = "name,address,description\n"
+                                + "\"UCSB\",\"Santa Barbara, CA\",\"Gauchos\"\n"
+                                + "\"UCLA\",\"Los Angeles, CA\",\"Bruins\"\n";
+
+                when(schoolRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/schools/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .characterEncoding("utf-8")
+                                                .content(csv)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(schoolRepository, times(1)).save(school1);
+                verify(schoolRepository, times(1)).save(school2);
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(school1, school2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_of_schools_rejects_csv_with_unknown_columns() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/schools/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .content("color\nred\n")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(schoolRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+        }
+
+        // Tests for the response cache behind /api/schools/all
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void all_schools_are_served_from_the_response_cache_until_a_delete() throws Exception {
+
+                // arrange
+
+                School school1 = School.builder()
+                                .id(15L)
+                                .name("UCSB")
+                                .address("Santa Barbara, CA")
+                                .description("Gauchos")
+                                .build();
+
+                when(schoolRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(school1)));
+                when(schoolRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                mockMvc.perform(get("/api/schools/all")).andExpect(status().isOk());
+                MvcResult cached = mockMvc.perform(get("/api/schools/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(schoolRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(Arrays.asList(school1)), cached.getResponse().getContentAsString());
+
+                // act
+                when(schoolRepository.findAll()).thenReturn(new ArrayList<>());
+                mockMvc.perform(delete("/api/schools?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult refreshed = mockMvc.perform(get("/api/schools/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(schoolRepository, times(2)).findAll();
+                assertEquals("[]", refreshed.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void all_schools_are_gzipped_when_the_client_accepts_gzip() throws Exception {
+
+                // arrange
+
+                School school1 = School.builder()
+                                .id(15L)
+                                .name("UCSB")
+                                .address("Santa Barbara, CA")
+                                .description("Gauchos")
+                                .build();
+
+                when(schoolRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(school1)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/schools/all").header("Accept-Encoding", "deflate, gzip;q=0.8"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Encoding", "gzip"))
+                                .andExpect(header().string("Vary", "Accept-Encoding")).andReturn();
+
+                // assert
+                byte[] json = new GZIPInputStream(new ByteArrayInputStream(response.getResponse().getContentAsByteArray())).readAllBytes();
+                assertEquals(mapper.writeValueAsString(Arrays.asList(school1)), new String(json, StandardCharsets.UTF_8));
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match) on /api/schools
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void schools_answer_conditional_gets_with_304_until_a_delete() throws Exception {
+
+                // arrange
+
+                School school1 = School.builder()
+                                .id(15L)
+                                .name("UCSB")
+                                .address("Santa Barbara, CA")
+                                .description("Gauchos")
+                                .build();
+
+                when(schoolRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(school1)));
+                when(schoolRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/schools/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private")).andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/schools/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/api/schools?id=15").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(schoolRepository, times(1)).findAll();
+                verify(schoolRepository, never()).findById(any());
+
+                // act
+                mockMvc.perform(delete("/api/schools?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult changed = mockMvc.perform(get("/api/schools/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(schoolRepository, times(2)).findAll();
+                assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+        }
+
+        // Tests for PATCH /api/schools
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch_schools() throws Exception {
+                mockMvc.perform(patch("/api/schools?id=67")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_some_fields_of_a_school() throws Exception {
+                // arrange
+
+                School school1 = School.builder()
+                                .id(67L)
+                                .name("UCSB")
+                                .address("Santa Barbara, CA")
+                                .description("Gauchos")
+                                .build();
+
+                Map<String, Object> fields = Map.of("address", "Santa Barbara, CA");
+                when(entityPatchService.patch(eq(School.class), eq(67L), eq(fields))).thenReturn(Optional.of(school1));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/schools?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(fields))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(entityPatchService, times(1)).patch(eq(School.class), eq(67L), eq(fields));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(school1), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_school_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(entityPatchService.patch(eq(School.class), eq(67L), any())).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/schools?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"address\": " + mapper.writeValueAsString("Santa Barbara, CA") + "}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("School with id 67 not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/schools/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete_schools() throws Exception {
+                mockMvc.perform(delete("/api/schools/bulk?ids=1,2,2,3").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_delete_schools() throws Exception {
+                // arrange
+
+                when(schoolRepository.deleteRowsByIds(eq(List.of(1L, 2L, 3L)))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/schools/bulk?ids=1,2,2,3")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(schoolRepository, times(1)).deleteRowsByIds(eq(List.of(1L, 2L, 3L)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 schools deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_delete_of_schools_binds_at_most_a_thousand_ids_per_statement() throws Exception {
+                // arrange
 
+                String ids = LongStream.rangeClosed(1, 2500).mapToObj(Long::toString).collect(Collectors.joining(","));
+                when(schoolRepository.deleteRowsByIds(any())).thenAnswer(invocation -> invocation.<List<Long>>getArgument(0).size());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/schools/bulk?ids=" + ids)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(schoolRepository, times(2)).deleteRowsByIds(argThat(chunk -> chunk.size() == 1000));
+                verify(schoolRepository, times(1)).deleteRowsByIds(argThat(chunk -> chunk.size() == 500));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2500 schools deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_delete_of_schools_rejects_too_many_ids() throws Exception {
+                String ids = LongStream.rangeClosed(1, 10001).mapToObj(Long::toString).collect(Collectors.joining(","));
+
+                MvcResult response = mockMvc.perform(
+                                delete("/api/schools/bulk?ids=" + ids)
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                verify(schoolRepository, never()).deleteRowsByIds(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("At most 10000 ids may be given per request", json.get("message"));
+        }
+
+        // Tests for GET /api/schools/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch_of_schools() throws Exception {
+                mockMvc.perform(get("/api/schools/batch?ids=3,2,1,3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_batch_of_schools_in_the_order_requested() throws Exception {
+
+                // arrange
+
+                School first = School.builder()
+                                .id(1L)
+                                .name("UCSB")
+                                .address("Santa Barbara, CA")
+                                .description("Gauchos")
+                                .build();
+
+                School third = School.builder()
+                                .id(3L)
+                                .name("UCSD")
+                                .address("La Jolla, CA")
+                                .description("Tritons")
+                                .build();
+
+                when(schoolRepository.findAllById(eq(List.of(3L, 2L, 1L)))).thenReturn(Arrays.asList(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/schools/batch?ids=3,2,1,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(schoolRepository, times(1)).findAllById(eq(List.of(3L, 2L, 1L)));
+                String expectedJson = mapper.writeValueAsString(
+                                BatchResult.builder().items(Arrays.asList(third, first)).missing(Arrays.asList(2L)).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
         }
 }
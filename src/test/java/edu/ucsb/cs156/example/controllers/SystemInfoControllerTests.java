@@ -1,10 +1,18 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.EndpointStatistics;
+import edu.ucsb.cs156.example.models.EntityCacheStatistics;
+import edu.ucsb.cs156.example.models.GarbageCollectorStatistics;
+import edu.ucsb.cs156.example.models.RuntimeStatistics;
 import edu.ucsb.cs156.example.models.SystemInfo;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityCacheStatisticsService;
+import edu.ucsb.cs156.example.services.RuntimeStatisticsService;
 import edu.ucsb.cs156.example.services.SystemInfoService;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -25,6 +33,12 @@ public class SystemInfoControllerTests extends ControllerTestCase {
   @MockBean
   SystemInfoService mockSystemInfoService;
 
+  @MockBean
+  EntityCacheStatisticsService mockEntityCacheStatisticsService;
+
+  @MockBean
+  RuntimeStatisticsService mockRuntimeStatisticsService;
+
   @Test
   public void systemInfo__logged_out() throws Exception {
     mockMvc.perform(get("/api/systemInfo"))
@@ -61,4 +75,93 @@ public class SystemInfoControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @Test
+  public void entityCache__logged_out() throws Exception {
+    mockMvc.perform(get("/api/systemInfo/entityCache"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void entityCache__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/systemInfo/entityCache"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void entityCache__admin_logged_in() throws Exception {
+
+    // arrange
+
+    EntityCacheStatistics schools = EntityCacheStatistics
+        .builder()
+        .region("schools")
+        .hits(9)
+        .misses(1)
+        .hitPercentage(90.0f)
+        .puts(1)
+        .removals(0)
+        .evictions(0)
+        .build();
+    when(mockEntityCacheStatisticsService.getEntityCacheStatistics()).thenReturn(List.of(schools));
+    String expectedJson = mapper.writeValueAsString(List.of(schools));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/systemInfo/entityCache"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  @Test
+  public void runtime__logged_out() throws Exception {
+    mockMvc.perform(get("/api/systemInfo/runtime"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void runtime__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/systemInfo/runtime"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void runtime__admin_logged_in() throws Exception {
+
+    // arrange
+
+    RuntimeStatistics runtimeStatistics = RuntimeStatistics
+        .builder()
+        .uptimeMillis(60_000)
+        .heapUsed(100_000_000)
+        .heapCommitted(200_000_000)
+        .heapMax(500_000_000)
+        .nonHeapUsed(50_000_000)
+        .liveThreads(30)
+        .daemonThreads(25)
+        .peakThreads(32)
+        .garbageCollectors(List.of(GarbageCollectorStatistics.builder()
+            .name("G1 Young Generation").collections(4).collectionMillis(20).build()))
+        .entityCaches(List.of())
+        .endpoints(List.of(EndpointStatistics.builder()
+            .controller("SchoolsController").handler("allSchools")
+            .requests(120).requestsPerMinute(120.0).errors(0).meanMillis(2.5).maxMillis(40.0).build()))
+        .build();
+    when(mockRuntimeStatisticsService.getRuntimeStatistics()).thenReturn(runtimeStatistics);
+    String expectedJson = mapper.writeValueAsString(runtimeStatistics);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/systemInfo/runtime"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
 }
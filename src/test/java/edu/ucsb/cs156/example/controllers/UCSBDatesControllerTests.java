@@ -1,18 +1,29 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
+import edu.ucsb.cs156.example.services.UCSBDateCalendar;
+import edu.ucsb.cs156.example.services.UCSBDateQuarterCache;
+import edu.ucsb.cs156.example.services.UCSBDateTimeline;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.QuarterSummary;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -24,10 +35,15 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +58,18 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityPatchService entityPatchService;
+
+        @MockBean
+        UCSBDateTimeline ucsbDateTimeline;
+
+        @MockBean
+        UCSBDateQuarterCache ucsbDateQuarterCache;
+
+        @MockBean
+        UCSBDateCalendar ucsbDateCalendar;
+
         // Authorization tests for /api/ucsbdates/admin/all
 
         @Test
@@ -189,6 +217,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDateRepository, times(1)).save(ucsbDate1);
+                verify(ucsbDateQuarterCache, times(1)).invalidateQuarters(Set.of("20222"));
                 String expectedJson = mapper.writeValueAsString(ucsbDate1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -201,13 +230,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
 
-                UCSBDate ucsbDate1 = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
-
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -216,8 +239,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
-                verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
+                verify(ucsbDateQuarterCache, times(1)).invalidateIds(List.of(15L));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -229,7 +252,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -238,7 +261,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
+                verify(ucsbDateQuarterCache, never()).invalidateIds(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 not found", json.get("message"));
         }
@@ -251,12 +275,6 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                UCSBDate ucsbDateOrig = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
-
                 UCSBDate ucsbDateEdited = UCSBDate.builder()
                                 .name("firstDayOfFestivus")
                                 .quarterYYYYQ("20232")
@@ -265,7 +283,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ucsbDateEdited);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.updateById(eq(67L), eq(ucsbDateEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -277,10 +295,13 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(67L);
-                verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                verify(ucsbDateRepository, times(1)).updateById(eq(67L), any());
+                verify(ucsbDateRepository, never()).findById(any());
+                verify(ucsbDateQuarterCache, times(1)).invalidateIds(List.of(67L));
+                verify(ucsbDateQuarterCache, times(1)).invalidateQuarters(Set.of("20232"));
+                ucsbDateEdited.setId(67L);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(ucsbDateEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -298,7 +319,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ucsbEditedDate);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.updateById(eq(67L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -310,9 +331,753 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(67L);
+                verify(ucsbDateRepository, times(1)).updateById(eq(67L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 not found", json.get("message"));
+
+        }
+
+        // Tests for keyset pagination on /api/ucsbdates/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_ucsb_dates_with_a_next_cursor() throws Exception {
+
+                // arrange
+
+                UCSBDate uCSBDate1 = UCSBDate.builder()
+                                .id(3L)
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+
+                UCSBDate uCSBDate2 = UCSBDate.builder()
+                                .id(4L)
+                                .quarterYYYYQ("20222")
+                                .name("lastDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-06-03T00:00:00"))
+                                .build();
+
+                UCSBDate uCSBDate3 = UCSBDate.builder()
+                                .id(9L)
+                                .quarterYYYYQ("20223")
+                                .name("firstDayOfFall")
+                                .localDateTime(LocalDateTime.parse("2022-09-22T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(uCSBDate1, uCSBDate2, uCSBDate3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?after=2&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 3));
+                KeysetPage<UCSBDate, Long> expectedPage = KeysetPage.<UCSBDate, Long>builder()
+                                .items(Arrays.asList(uCSBDate1, uCSBDate2))
+                                .nextCursor(4L)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_of_ucsb_dates_has_no_next_cursor_and_limit_is_clamped() throws Exception {
+
+                // arrange
+
+                UCSBDate uCSBDate1 = UCSBDate.builder()
+                                .id(3L)
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(uCSBDate1)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1));
+                KeysetPage<UCSBDate, Long> expectedPage = KeysetPage.<UCSBDate, Long>builder()
+                                .items(Arrays.asList(uCSBDate1))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for /api/ucsbdates/export
+
+        @Test
+        public void logged_out_users_cannot_export_ucsb_dates() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_ucsb_dates_as_ndjson() throws Exception {
+
+                // arrange
+
+                UCSBDate uCSBDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+
+                UCSBDate uCSBDate2 = UCSBDate.builder()
+                                .id(2L)
+                                .quarterYYYYQ("20222")
+                                .name("lastDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-06-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(uCSBDate1, uCSBDate2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/export?format=ndjson"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).streamAllByOrderByIdAsc();
+                assertEquals(ApiController.NDJSON, response.getResponse().getContentType().split(";")[0]);
+                String expected = mapper.writeValueAsString(uCSBDate1) + "\n" + mapper.writeValueAsString(uCSBDate2) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_of_ucsb_dates_rejects_unknown_formats() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(0)).streamAllByOrderByIdAsc();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Unsupported export format xml", json.get("message"));
+        }
+
+        // Tests for /api/ucsbdates/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_post_ucsb_dates() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_ucsb_dates_as_json() throws Exception {
+
+                // arrange
+
+                UCSBDate uCSBDate1 = UCSBDate.builder()
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+
+                UCSBDate uCSBDate2 = UCSBDate.builder()
+                                .quarterYYYYQ("20222")
+                                .name("lastDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-06-03T00:00:00"))
+                                .build();
+
+                List<UCSBDate> expected = Arrays.asList(uCSBDate1, uCSBDate2);
+                String requestBody = mapper.writeValueAsString(expected).replace("\"id\":0", "\"id\":42");
+
+                when(ucsbDateRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdates/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).save(uCSBDate1);
+                verify(ucsbDateRepository, times(1)).save(uCSBDate2);
+                verify(ucsbDateQuarterCache, times(1)).invalidateQuarters(Set.of("20222"));
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_ucsb_dates_as_csv() throws Exception {
+
+                // arrange
+
+                UCSBDate uCSBDate1 = UCSBDate.builder()
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+
+                UCSBDate uCSBDate2 = UCSBDate.builder()
+                                .quarterYYYYQ("20222")
+                                .name("lastDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-06-03T00:00:00"))
+                                .build();
+
+                String csv = "quarterYYYYQ,name,localDateTime\n"
+                                + "\"20222\",\"firstDayOfClasses\",\"2022-03-28T00:00:00\"\n"
+                                + "\"20222\",\"lastDayOfClasses\",\"2022-06-03T00:00:00\"\n";
+
+                when(ucsbDateRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdates/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .characterEncoding("utf-8")
+                                                .content(csv)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).save(uCSBDate1);
+                verify(ucsbDateRepository, times(1)).save(uCSBDate2);
+                verify(ucsbDateQuarterCache, times(1)).invalidateQuarters(Set.of("20222"));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(uCSBDate1, uCSBDate2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_of_ucsb_dates_rejects_csv_with_unknown_columns() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdates/bulk")
+                                                .contentType(ApiController.CSV)
+                                                .content("color\nred\n")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+        }
+
+        // Tests for the response cache behind /api/ucsbdates/all
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void all_ucsb_dates_are_served_from_the_response_cache_until_a_delete() throws Exception {
+
+                // arrange
+
+                UCSBDate uCSBDate1 = UCSBDate.builder()
+                                .id(15L)
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(uCSBDate1)));
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+                MvcResult cached = mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(Arrays.asList(uCSBDate1)), cached.getResponse().getContentAsString());
+
+                // act
+                when(ucsbDateRepository.findAll()).thenReturn(new ArrayList<>());
+                mockMvc.perform(delete("/api/ucsbdates?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult refreshed = mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(2)).findAll();
+                assertEquals("[]", refreshed.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match) on /api/ucsbdates
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void ucsb_dates_answer_conditional_gets_with_304_until_a_delete() throws Exception {
+
+                // arrange
+
+                UCSBDate uCSBDate1 = UCSBDate.builder()
+                                .id(15L)
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(uCSBDate1)));
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(1);
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/ucsbdates/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private")).andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/ucsbdates/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/api/ucsbdates?id=15").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAll();
+                verify(ucsbDateRepository, never()).findById(any());
+
+                // act
+                mockMvc.perform(delete("/api/ucsbdates?id=15").with(csrf())).andExpect(status().isOk());
+                MvcResult changed = mockMvc.perform(get("/api/ucsbdates/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(2)).findAll();
+                assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+        }
+
+        // Tests for PATCH /api/ucsbdates
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch_ucsb_dates() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdates?id=67")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_some_fields_of_a_ucsb_date() throws Exception {
+                // arrange
+
+                UCSBDate uCSBDate1 = UCSBDate.builder()
+                                .id(67L)
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+
+                Map<String, Object> fields = Map.of("name", "firstDayOfClasses");
+                when(entityPatchService.patch(eq(UCSBDate.class), eq(67L), eq(fields))).thenReturn(Optional.of(uCSBDate1));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(fields))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(entityPatchService, times(1)).patch(eq(UCSBDate.class), eq(67L), eq(fields));
+                verify(ucsbDateQuarterCache, times(1)).invalidateIds(List.of(67L));
+                verify(ucsbDateQuarterCache, times(1)).invalidateQuarters(Set.of("20222"));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(uCSBDate1), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_ucsb_date_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(entityPatchService.patch(eq(UCSBDate.class), eq(67L), any())).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"name\": " + mapper.writeValueAsString("firstDayOfClasses") + "}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/ucsbdates/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete_ucsb_dates() throws Exception {
+                mockMvc.perform(delete("/api/ucsbdates/bulk?ids=1,2,2,3").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_delete_ucsb_dates() throws Exception {
+                // arrange
+
+                when(ucsbDateRepository.deleteRowsByIds(eq(List.of(1L, 2L, 3L)))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdates/bulk?ids=1,2,2,3")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).deleteRowsByIds(eq(List.of(1L, 2L, 3L)));
+                verify(ucsbDateQuarterCache, times(1)).invalidateIds(List.of(1L, 2L, 2L, 3L));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 UCSB dates deleted", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdates/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch_of_ucsb_dates() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/batch?ids=3,2,1,3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_batch_of_ucsb_dates_in_the_order_requested() throws Exception {
+
+                // arrange
+
+                UCSBDate first = UCSBDate.builder()
+                                .id(1L)
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+
+                UCSBDate third = UCSBDate.builder()
+                                .id(3L)
+                                .quarterYYYYQ("20223")
+                                .name("firstDayOfFall")
+                                .localDateTime(LocalDateTime.parse("2022-09-22T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findAllById(eq(List.of(3L, 2L, 1L)))).thenReturn(Arrays.asList(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/batch?ids=3,2,1,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findAllById(eq(List.of(3L, 2L, 1L)));
+                String expectedJson = mapper.writeValueAsString(
+                                BatchResult.builder().items(Arrays.asList(third, first)).missing(Arrays.asList(2L)).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/ucsbdates/range and /upcoming
+
+        @Test
+        public void logged_out_users_cannot_get_a_range_of_ucsb_dates() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/range?from=2023-01-01T00:00:00&to=2023-04-01T00:00:00"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_range_of_ucsb_dates() throws Exception {
+
+                // arrange
+
+                LocalDateTime from = LocalDateTime.parse("2023-01-01T00:00:00");
+                LocalDateTime to = LocalDateTime.parse("2023-04-01T00:00:00");
+                UCSBDate finals = UCSBDate.builder()
+                                .id(1L)
+                                .name("finals")
+                                .quarterYYYYQ("20231")
+                                .localDateTime(LocalDateTime.parse("2023-03-18T08:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findRangeAfter(eq(from), eq(0L), eq(to), eq(PageRequest.of(0, 101))))
+                                .thenReturn(List.of(finals));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/range?from=2023-01-01T00:00:00&to=2023-04-01T00:00:00"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findRangeAfter(from, 0L, to, PageRequest.of(0, 101));
+                KeysetPage<UCSBDate, Long> expectedPage = KeysetPage.<UCSBDate, Long>builder()
+                                .items(List.of(finals))
+                                .build();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(expectedPage), responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_range_is_returned_one_page_at_a_time() throws Exception {
+
+                // arrange
+
+                LocalDateTime from = LocalDateTime.parse("2023-03-18T08:00:00");
+                LocalDateTime to = LocalDateTime.parse("2023-04-01T00:00:00");
+                UCSBDate finals = UCSBDate.builder()
+                                .id(4L)
+                                .name("finals")
+                                .quarterYYYYQ("20231")
+                                .localDateTime(LocalDateTime.parse("2023-03-18T08:00:00"))
+                                .build();
+                UCSBDate springBreak = UCSBDate.builder()
+                                .id(2L)
+                                .name("spring break")
+                                .quarterYYYYQ("20231")
+                                .localDateTime(LocalDateTime.parse("2023-03-25T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findRangeAfter(eq(from), eq(3L), eq(to), eq(PageRequest.of(0, 2))))
+                                .thenReturn(List.of(finals, springBreak));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/range?from=2023-03-18T08:00:00&to=2023-04-01T00:00:00&after=3&limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findRangeAfter(from, 3L, to, PageRequest.of(0, 2));
+                KeysetPage<UCSBDate, Long> expectedPage = KeysetPage.<UCSBDate, Long>builder()
+                                .items(List.of(finals))
+                                .nextCursor(4L)
+                                .build();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(expectedPage), responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_page_of_a_range_is_capped_at_the_max_page_size() throws Exception {
+                LocalDateTime from = LocalDateTime.parse("2023-01-01T00:00:00");
+                LocalDateTime to = LocalDateTime.parse("2023-04-01T00:00:00");
+                when(ucsbDateRepository.findRangeAfter(any(), anyLong(), any(), any())).thenReturn(List.of());
+
+                mockMvc.perform(get("/api/ucsbdates/range?from=2023-01-01T00:00:00&to=2023-04-01T00:00:00&limit=1000000"))
+                                .andExpect(status().isOk());
+
+                verify(ucsbDateRepository, times(1)).findRangeAfter(from, 0L, to, PageRequest.of(0, ApiController.MAX_PAGE_SIZE + 1));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_range_must_end_after_it_starts() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/range?from=2023-04-01T00:00:00&to=2023-04-01T00:00:00"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                verify(ucsbDateRepository, never()).findRangeAfter(any(), anyLong(), any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("from must be before to", json.get("message"));
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_upcoming_ucsb_dates() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/upcoming"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_upcoming_ucsb_dates() throws Exception {
+
+                // arrange
+
+                UCSBDate commencement = UCSBDate.builder()
+                                .id(7L)
+                                .name("commencement")
+                                .quarterYYYYQ("20992")
+                                .localDateTime(LocalDateTime.parse("2099-06-13T09:00:00"))
+                                .build();
+
+                when(ucsbDateTimeline.upcoming(any(), eq(2))).thenReturn(List.of(commencement));
+
+                // act
+                LocalDateTime before = LocalDateTime.now();
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/upcoming?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateTimeline, times(1)).upcoming(argThat(now -> !now.isBefore(before)), eq(2));
+                verify(ucsbDateRepository, never()).findAll();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(List.of(commencement)), responseString);
+        }
+
+        // Tests for GET /api/ucsbdates/quarter and /quarters
+
+        @Test
+        public void logged_out_users_cannot_get_a_quarter_of_ucsb_dates() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/quarter?yyyyq=20231"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_quarter_of_ucsb_dates_through_the_quarter_cache() throws Exception {
+
+                // arrange
+
+                UCSBDate finals = UCSBDate.builder()
+                                .id(1L)
+                                .name("finals")
+                                .quarterYYYYQ("20231")
+                                .localDateTime(LocalDateTime.parse("2023-03-18T08:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc("20231")).thenReturn(List.of(finals));
+                when(ucsbDateQuarterCache.get(eq("20231"), any())).thenAnswer(
+                                invocation -> invocation.<Supplier<List<UCSBDate>>>getArgument(1).get());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter?yyyyq=20231"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateQuarterCache, times(1)).get(eq("20231"), any());
+                verify(ucsbDateRepository, times(1)).findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc("20231");
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(List.of(finals)), responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_quarter_must_be_a_year_and_a_quarter() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter?yyyyq=W23"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                verify(ucsbDateQuarterCache, never()).get(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("yyyyq must be a year and a quarter 1-4, e.g. 20231", json.get("message"));
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_the_quarter_summary() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/quarters"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_quarter_summary() throws Exception {
+
+                // arrange
+
+                List<QuarterSummary> summary = List.of(QuarterSummary.builder()
+                                .quarterYYYYQ("20231")
+                                .count(2)
+                                .first(LocalDateTime.parse("2023-01-09T00:00:00"))
+                                .last(LocalDateTime.parse("2023-03-18T08:00:00"))
+                                .build());
+
+                when(ucsbDateRepository.summarizeQuarters()).thenReturn(summary);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarters"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).summarizeQuarters();
+                verify(ucsbDateRepository, never()).findAll();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(summary), responseString);
+        }
+
+        // Tests for GET /api/ucsbdates/calendar.ics
+
+        private static UCSBDateCalendar.Feed feed(String ics, String etag) throws Exception {
+                java.lang.reflect.Constructor<UCSBDateCalendar.Feed> constructor = UCSBDateCalendar.Feed.class
+                                .getDeclaredConstructor(byte[].class, String.class, long.class);
+                constructor.setAccessible(true);
+                return constructor.newInstance(ics.getBytes(), etag, 1678000000000L);
+        }
+
+        @Test
+        public void logged_out_users_can_get_the_calendar_of_a_quarter() throws Exception {
+
+                // arrange
+
+                when(ucsbDateCalendar.quarter("20231")).thenReturn(feed("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n", "abc123"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/calendar.ics?yyyyq=20231"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"abc123\""))
+                                .andExpect(header().string("Last-Modified", "Sun, 05 Mar 2023 07:06:40 GMT"))
+                                .andExpect(header().string("Cache-Control", "no-cache, public"))
+                                .andReturn();
+
+                // assert
+
+                verify(ucsbDateCalendar, times(1)).quarter("20231");
+                assertEquals("text/calendar;charset=UTF-8", response.getResponse().getContentType());
+                assertEquals("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void the_calendar_of_every_quarter_answers_a_matching_etag_with_304() throws Exception {
+
+                // arrange
+
+                when(ucsbDateCalendar.all()).thenReturn(feed("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n", "abc123"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/calendar.ics").header("If-None-Match", "\"abc123\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+
+                verify(ucsbDateCalendar, times(1)).all();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void the_calendar_rejects_a_malformed_quarter() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/calendar.ics?yyyyq=2023W"))
+                                .andExpect(status().isBadRequest());
+                mockMvc.perform(get("/api/ucsbdates/calendar.ics?yyyyq=20235"))
+                                .andExpect(status().isBadRequest());
 
+                verify(ucsbDateCalendar, never()).quarter(any());
         }
 }
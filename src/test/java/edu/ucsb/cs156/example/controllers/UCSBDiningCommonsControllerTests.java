@@ -1,31 +1,45 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityPatchService;
+import edu.ucsb.cs156.example.services.UCSBDiningCommonsIndex;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.util.NestedServletException;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,6 +54,12 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityPatchService entityPatchService;
+
+        @MockBean
+        UCSBDiningCommonsIndex ucsbDiningCommonsIndex;
+
         // Authorization tests for /api/ucsbdiningcommons/admin/all
 
         @Test
@@ -197,6 +217,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).save(ortega);
+                verify(ucsbDiningCommonsIndex, times(1)).put(ortega);
                 String expectedJson = mapper.writeValueAsString(ortega);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -207,17 +228,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                UCSBDiningCommons portola = UCSBDiningCommons.builder()
-                                .name("Portola")
-                                .code("portola")
-                                .hasSackMeal(true)
-                                .hasTakeOutMeal(true)
-                                .hasDiningCam(true)
-                                .latitude(34.417723)
-                                .longitude(-119.867427)
-                                .build();
-
-                when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("portola"))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,8 +237,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-                verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowById("portola");
+                verify(ucsbDiningCommonsIndex, times(1)).remove(List.of("portola"));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -239,7 +250,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("munger-hall"))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -248,7 +259,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowById("munger-hall");
+                verify(ucsbDiningCommonsIndex, never()).remove(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
         }
@@ -258,16 +270,6 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_commons() throws Exception {
                 // arrange
 
-                UCSBDiningCommons carrilloOrig = UCSBDiningCommons.builder()
-                                .name("Carrillo")
-                                .code("carrillo")
-                                .hasSackMeal(false)
-                                .hasTakeOutMeal(false)
-                                .hasDiningCam(true)
-                                .latitude(34.409953)
-                                .longitude(-119.85277)
-                                .build();
-
                 UCSBDiningCommons carrilloEdited = UCSBDiningCommons.builder()
                                 .name("Carrillo Dining Hall")
                                 .code("carrillo")
@@ -280,7 +282,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(carrilloEdited);
 
-                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+                when(ucsbDiningCommonsRepository.updateById(eq("carrillo"), eq(carrilloEdited))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -292,10 +294,11 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
-                verify(ucsbDiningCommonsRepository, times(1)).save(carrilloEdited); // should be saved with updated info
+                verify(ucsbDiningCommonsRepository, times(1)).updateById(eq("carrillo"), any());
+                verify(ucsbDiningCommonsRepository, never()).findById(any());
+                verify(ucsbDiningCommonsIndex, times(1)).put(carrilloEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(carrilloEdited), responseString);
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -315,7 +318,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedCommons);
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.updateById(eq("munger-hall"), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -327,9 +330,517 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).updateById(eq("munger-hall"), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        // Tests for keyset pagination on /api/ucsbdiningcommons/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_commons_with_a_next_cursor() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons carrillo = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .code("carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+
+                UCSBDiningCommons dlg = UCSBDiningCommons.builder()
+                                .name("De La Guerra")
+                                .code("de-la-guerra")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409811)
+                                .longitude(-119.845026)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq("c"), eq(PageRequest.of(0, 2))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(carrillo, dlg)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?after=c&limit=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThanOrderByCodeAsc("c", PageRequest.of(0, 2));
+                KeysetPage<UCSBDiningCommons, String> expectedPage = KeysetPage.<UCSBDiningCommons, String>builder()
+                                .items(Arrays.asList(carrillo))
+                                .nextCursor("carrillo")
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void first_page_of_commons_starts_from_the_empty_cursor() throws Exception {
+
+                // arrange
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq(""), eq(PageRequest.of(0, 11))))
+                                .thenReturn(new ArrayList<>());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?limit=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThanOrderByCodeAsc("", PageRequest.of(0, 11));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(new ArrayList<>(), json.get("items"));
+                assertEquals(null, json.get("nextCursor"));
+        }
+
+        // Tests for /api/ucsbdiningcommons/export
+
+        @Test
+        public void logged_out_users_cannot_export_commons() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_commons_as_ndjson() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons commons1 = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .code("carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+
+                UCSBDiningCommons commons2 = UCSBDiningCommons.builder()
+                                .name("De La Guerra")
+                                .code("de-la-guerra")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409811)
+                                .longitude(-119.845026)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.streamAllByOrderByCodeAsc()).thenReturn(Stream.of(commons1, commons2));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/export?format=ndjson"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).streamAllByOrderByCodeAsc();
+                assertEquals(ApiController.NDJSON, response.getResponse().getContentType().split(";")[0]);
+                String expected = mapper.writeValueAsString(commons1) + "\n" + mapper.writeValueAsString(commons2) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_of_commons_rejects_unknown_formats() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(0)).streamAllByOrderByCodeAsc();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Unsupported export format xml", json.get("message"));
+        }
+
+        // Tests for the response cache behind /api/ucsbdiningcommons/all
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void all_ucsb_dining_commons_are_served_from_the_response_cache_until_a_delete() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons commons1 = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .code("carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(commons1)));
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("carrillo"))).thenReturn(1);
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+                MvcResult cached = mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(Arrays.asList(commons1)), cached.getResponse().getContentAsString());
+
+                // act
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(new ArrayList<>());
+                mockMvc.perform(delete("/api/ucsbdiningcommons?code=carrillo").with(csrf())).andExpect(status().isOk());
+                MvcResult refreshed = mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(2)).findAll();
+                assertEquals("[]", refreshed.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match) on /api/ucsbdiningcommons
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void ucsb_dining_commons_answer_conditional_gets_with_304_until_a_delete() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons commons1 = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .code("carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(commons1)));
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("carrillo"))).thenReturn(1);
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private")).andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/ucsbdiningcommons/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                verify(ucsbDiningCommonsRepository, never()).findById(any());
+
+                // act
+                mockMvc.perform(delete("/api/ucsbdiningcommons?code=carrillo").with(csrf())).andExpect(status().isOk());
+                MvcResult changed = mockMvc.perform(get("/api/ucsbdiningcommons/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(2)).findAll();
+                assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+        }
+
+        // Tests for PATCH /api/ucsbdiningcommons
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch_ucsb_dining_commons() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdiningcommons?code=carrillo")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_some_fields_of_a_commons() throws Exception {
+                // arrange
+
+                UCSBDiningCommons commons1 = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .code("carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+
+                Map<String, Object> fields = Map.of("hasSackMeal", true);
+                when(entityPatchService.patch(eq(UCSBDiningCommons.class), eq("carrillo"), eq(fields))).thenReturn(Optional.of(commons1));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=carrillo")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(fields))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(entityPatchService, times(1)).patch(eq(UCSBDiningCommons.class), eq("carrillo"), eq(fields));
+                verify(ucsbDiningCommonsIndex, times(1)).put(commons1);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(commons1), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_commons_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(entityPatchService.patch(eq(UCSBDiningCommons.class), eq("carrillo"), any())).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=carrillo")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content("{\"hasSackMeal\": " + mapper.writeValueAsString(true) + "}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id carrillo not found", json.get("message"));
+        }
+
+        // Tests for DELETE /api/ucsbdiningcommons/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete_ucsb_dining_commons() throws Exception {
+                mockMvc.perform(delete("/api/ucsbdiningcommons/bulk?codes=carrillo,portola,carrillo,ortega").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_delete_ucsb_dining_commons() throws Exception {
+                // arrange
+
+                when(ucsbDiningCommonsRepository.deleteRowsByIds(eq(List.of("carrillo", "portola", "ortega")))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdiningcommons/bulk?codes=carrillo,portola,carrillo,ortega")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowsByIds(eq(List.of("carrillo", "portola", "ortega")));
+                verify(ucsbDiningCommonsIndex, times(1)).remove(List.of("carrillo", "portola", "carrillo", "ortega"));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 commons deleted", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch_of_ucsb_dining_commons() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/batch?codes=ortega,munger-hall,carrillo"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_batch_of_ucsb_dining_commons_in_the_order_requested() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .code("carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+
+                UCSBDiningCommons third = UCSBDiningCommons.builder()
+                                .name("Ortega")
+                                .code("ortega")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.findAllById(eq(List.of("ortega", "munger-hall", "carrillo")))).thenReturn(Arrays.asList(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/batch?codes=ortega,munger-hall,carrillo"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findAllById(eq(List.of("ortega", "munger-hall", "carrillo")));
+                String expectedJson = mapper.writeValueAsString(
+                                BatchResult.builder().items(Arrays.asList(third, first)).missing(Arrays.asList("munger-hall")).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/nearest and /within
+
+        @Test
+        public void logged_out_users_cannot_get_the_nearest_ucsb_dining_commons() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_nearest_ucsb_dining_commons() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons carrillo = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .code("carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+
+                List<NearbyDiningCommons> nearest = List.of(NearbyDiningCommons.builder().commons(carrillo).distanceMeters(25.0).build());
+                when(ucsbDiningCommonsIndex.nearest(34.41, -119.85, 2)).thenReturn(nearest);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85&k=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsIndex, times(1)).nearest(34.41, -119.85, 2);
+                verify(ucsbDiningCommonsRepository, never()).findAll();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(nearest), responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_defaults_to_five_commons_and_rejects_bad_coordinates() throws Exception {
+                when(ucsbDiningCommonsIndex.nearest(eq(95.0), eq(0.0), eq(5))).thenThrow(new BadRequestException("latitude must be between -90 and 90"));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=95&lon=0"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("latitude must be between -90 and 90", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_bad_request_without_a_message_still_gets_a_400_body() throws Exception {
+                when(ucsbDiningCommonsIndex.nearest(eq(0.0), eq(0.0), eq(5))).thenThrow(new BadRequestException(null));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=0&lon=0"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("Bad request", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void other_illegal_argument_exceptions_are_not_client_errors() throws Exception {
+                when(ucsbDiningCommonsIndex.nearest(eq(0.0), eq(0.0), eq(5))).thenThrow(new IllegalArgumentException("bug"));
+
+                NestedServletException e = assertThrows(NestedServletException.class,
+                                () -> mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=0&lon=0")));
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_the_ucsb_dining_commons_within_a_box() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/within?south=34.40&west=-119.86&north=34.42&east=-119.84"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_ucsb_dining_commons_within_a_box() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+                                .name("Ortega")
+                                .code("ortega")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+
+                when(ucsbDiningCommonsIndex.within(34.40, -119.86, 34.42, -119.84)).thenReturn(List.of(ortega));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/within?south=34.40&west=-119.86&north=34.42&east=-119.84"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsIndex, times(1)).within(34.40, -119.86, 34.42, -119.84);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(List.of(ortega)), responseString);
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/filter
+
+        @Test
+        public void logged_out_users_cannot_filter_ucsb_dining_commons() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/filter?hasSackMeal=true"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_filter_ucsb_dining_commons_by_amenities() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+                                .name("Ortega")
+                                .code("ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(false)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+
+                when(ucsbDiningCommonsIndex.withAmenities(true, null, false)).thenReturn(List.of(ortega));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/filter?hasSackMeal=true&hasDiningCam=false"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsIndex, times(1)).withAmenities(true, null, false);
+                verify(ucsbDiningCommonsRepository, never()).findAll();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(List.of(ortega)), responseString);
+        }
 }
@@ -0,0 +1,269 @@
+package edu.ucsb.cs156.example.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.testconfig.FullStackTestApplication;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Drives mixed read/write HTTP traffic at every /api controller of a real
+ * server (embedded Tomcat, in-memory H2) and writes throughput and latency
+ * percentiles to a JSON report that can be diffed between commits.
+ *
+ * Tagged "loadtest", so a plain {@code mvn test} skips it.  Run it with
+ *     mvn -P loadtest test
+ * and tune it with -Dloadtest.concurrency (default 16),
+ * -Dloadtest.warmupSeconds (5), -Dloadtest.seconds (20),
+ * -Dloadtest.writePercent (20) and -Dloadtest.report
+ * (target/loadtest-report.json).
+ */
+@Tag("loadtest")
+@ActiveProfiles("test")
+@SpringBootTest(classes = FullStackTestApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "logging.level.root=WARN",
+    "logging.level.sql=WARN",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN" })
+class ApiLoadTest {
+
+  private static final int SEED_ROWS_PER_RESOURCE = 20;
+
+  // latencies are recorded in microseconds, up to a minute
+  private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  private final int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+  private final int warmupSeconds = Integer.getInteger("loadtest.warmupSeconds", 5);
+  private final int seconds = Integer.getInteger("loadtest.seconds", 20);
+  private final int writePercent = Integer.getInteger("loadtest.writePercent", 20);
+  private final String reportPath = System.getProperty("loadtest.report", "target/loadtest-report.json");
+
+  @LocalServerPort
+  int port;
+
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .enable(SerializationFeature.INDENT_OUTPUT);
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .build();
+
+  private final String adminAuthorization = "Basic "
+      + Base64.getEncoder().encodeToString("admin:password".getBytes(StandardCharsets.UTF_8));
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private final Map<String, Recorder> latencies = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+  private volatile boolean recording;
+
+  /**
+   * A CRUD controller: where it lives, the parameters of a new row, and the
+   * name of its key (request parameter and JSON field).
+   */
+  private record Resource(String path, String key, LongFunction<Map<String, String>> newRow) {
+  }
+
+  private final List<Resource> resources = List.of(
+      new Resource("/api/amusementparks", "id",
+          n -> Map.of("name", "Park " + n, "address", n + " Main St", "description", "Rides")),
+      new Resource("/api/books", "id",
+          n -> Map.of("title", "Title " + n, "author", "Author " + n, "publicdate", "2023/01/01")),
+      new Resource("/api/games", "id",
+          n -> Map.of("name", "Game " + n, "creator", "Creator " + n, "genre", "Puzzle")),
+      new Resource("/api/icecreamshop", "id",
+          n -> Map.of("name", "Shop " + n, "address", n + " State St", "description", "Scoops")),
+      new Resource("/api/restaurants", "id",
+          n -> Map.of("name", "Restaurant " + n, "address", n + " State St", "specialty", "Tacos")),
+      new Resource("/api/schools", "id",
+          n -> Map.of("name", "School " + n, "address", n + " Campus Way", "description", "Students")),
+      new Resource("/api/ucsbdates", "id",
+          n -> Map.of("quarterYYYYQ", "20231", "name", "Date " + n, "localDateTime", "2023-01-01T12:00:00")),
+      new Resource("/api/ucsbdiningcommons", "code",
+          n -> Map.of("code", "loadtest" + n, "name", "Commons " + n, "hasSackMeal", "true",
+              "hasTakeOutMeal", "false", "hasDiningCam", "true", "latitude", "34.41", "longitude", "-119.85")));
+
+  // controllers with nothing to write
+  private final List<String> readOnlyPaths = List.of("/api/currentUser", "/api/systemInfo", "/api/admin/users");
+
+  private final Map<Resource, List<String>> seededKeys = new LinkedHashMap<>();
+
+  @Test
+  void load_test_api_controllers() throws Exception {
+    for (Resource resource : resources) {
+      List<String> keys = new ArrayList<>();
+      for (int i = 0; i < SEED_ROWS_PER_RESOURCE; i++) {
+        keys.add(create(resource).get(resource.key()).asText());
+      }
+      seededKeys.put(resource, keys);
+    }
+
+    drive(warmupSeconds);
+    recording = true;
+    long started = System.nanoTime();
+    drive(seconds);
+    double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+    recording = false;
+
+    Map<String, Object> report = report(elapsedSeconds);
+    File file = new File(reportPath);
+    file.getAbsoluteFile().getParentFile().mkdirs();
+    objectMapper.writeValue(file, report);
+
+    Map<?, ?> total = (Map<?, ?>) report.get("total");
+    assertTrue((long) total.get("requests") > 0);
+    assertEquals(0L, total.get("errors"), "failed requests, see " + reportPath);
+  }
+
+  private void drive(int durationSeconds) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+    ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+    try {
+      List<Future<?>> running = new ArrayList<>();
+      for (int i = 0; i < concurrency; i++) {
+        running.add(workers.submit(() -> {
+          while (System.nanoTime() < deadline) {
+            step();
+          }
+          return null;
+        }));
+      }
+      for (Future<?> worker : running) {
+        worker.get();
+      }
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+  /** One unit of traffic: a read, or a create/update/delete of a new row. */
+  private void step() throws IOException, InterruptedException {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int target = random.nextInt(resources.size() + readOnlyPaths.size());
+    if (target >= resources.size()) {
+      send("GET", readOnlyPaths.get(target - resources.size()), null);
+      return;
+    }
+    Resource resource = resources.get(target);
+    if (random.nextInt(100) < writePercent) {
+      JsonNode created = create(resource);
+      String key = created.get(resource.key()).asText();
+      send("PUT", resource.path() + "?" + resource.key() + "=" + key, created.toString());
+      send("DELETE", resource.path() + "?" + resource.key() + "=" + key, null);
+    } else if (random.nextBoolean()) {
+      send("GET", resource.path() + "/all", null);
+    } else {
+      List<String> keys = seededKeys.get(resource);
+      send("GET", resource.path() + "?" + resource.key() + "=" + keys.get(random.nextInt(keys.size())), null);
+    }
+  }
+
+  private JsonNode create(Resource resource) throws IOException, InterruptedException {
+    String query = resource.newRow().apply(sequence.incrementAndGet()).entrySet().stream()
+        .map(e -> e.getKey() + "=" + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+        .collect(Collectors.joining("&"));
+    return objectMapper.readTree(send("POST", resource.path() + "/post?" + query, null));
+  }
+
+  /**
+   * Send one request as the admin user and record its latency under
+   * "METHOD path" (query string left out).
+   */
+  private String send(String method, String pathAndQuery, String json) throws IOException, InterruptedException {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + pathAndQuery))
+        .timeout(Duration.ofSeconds(30))
+        .header("Authorization", adminAuthorization);
+    if (json != null) {
+      request.header("Content-Type", "application/json")
+          .method(method, HttpRequest.BodyPublishers.ofString(json));
+    } else {
+      request.method(method, HttpRequest.BodyPublishers.noBody());
+    }
+
+    long started = System.nanoTime();
+    HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+
+    if (recording) {
+      String endpoint = method + " " + pathAndQuery.split("\\?")[0];
+      latencies.computeIfAbsent(endpoint, e -> new Recorder(MAX_LATENCY_MICROS, 3))
+          .recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+      if (response.statusCode() >= 400) {
+        errors.computeIfAbsent(endpoint, e -> new AtomicLong()).incrementAndGet();
+      }
+    }
+    return response.body();
+  }
+
+  private Map<String, Object> report(double elapsedSeconds) {
+    Map<String, Object> endpoints = new TreeMap<>();
+    Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+    long totalErrors = 0;
+    for (Map.Entry<String, Recorder> entry : latencies.entrySet()) {
+      Histogram histogram = entry.getValue().getIntervalHistogram();
+      long endpointErrors = errors.getOrDefault(entry.getKey(), new AtomicLong()).get();
+      endpoints.put(entry.getKey(), summary(histogram, endpointErrors, elapsedSeconds));
+      total.add(histogram);
+      totalErrors += endpointErrors;
+    }
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("concurrency", concurrency);
+    report.put("seconds", seconds);
+    report.put("writePercent", writePercent);
+    report.put("total", summary(total, totalErrors, elapsedSeconds));
+    report.put("endpoints", endpoints);
+    return report;
+  }
+
+  private static Map<String, Object> summary(Histogram histogram, long errors, double elapsedSeconds) {
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("requests", histogram.getTotalCount());
+    summary.put("errors", errors);
+    summary.put("requestsPerSecond", Math.round(histogram.getTotalCount() / elapsedSeconds * 10) / 10.0);
+    summary.put("p50Millis", millis(histogram.getValueAtPercentile(50)));
+    summary.put("p99Millis", millis(histogram.getValueAtPercentile(99)));
+    summary.put("p999Millis", millis(histogram.getValueAtPercentile(99.9)));
+    summary.put("maxMillis", millis(histogram.getMaxValue()));
+    return summary;
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+}
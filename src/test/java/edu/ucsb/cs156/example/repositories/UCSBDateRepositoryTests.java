@@ -0,0 +1,170 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.QuarterSummary;
+
+// Runs against an in-memory H2 database, since what is under test is the
+// derived and grouped queries, and what single-row writes do to the
+// second-level cache.
+
+@DataJpaTest
+class UCSBDateRepositoryTests {
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  private UCSBDate save(String name, String localDateTime) {
+    return save("20231", name, localDateTime);
+  }
+
+  private UCSBDate save(String quarterYYYYQ, String name, String localDateTime) {
+    return ucsbDateRepository.save(UCSBDate.builder().quarterYYYYQ(quarterYYYYQ).name(name)
+        .localDateTime(LocalDateTime.parse(localDateTime)).build());
+  }
+
+  @AfterEach
+  void deleteCommittedRows() {
+    ucsbDateRepository.deleteAll();
+  }
+
+  // two committed dates, both read into the second-level cache
+  private List<Long> cached() {
+    List<Long> ids = List.of(save("finals", "2023-03-18T08:00:00").getId(),
+        save("spring break", "2023-03-25T00:00:00").getId());
+    cache().evictAll();
+    ids.forEach(ucsbDateRepository::findById);
+    return ids;
+  }
+
+  private Cache cache() {
+    return entityManagerFactory.getCache();
+  }
+
+  private static List<String> names(List<UCSBDate> dates) {
+    return dates.stream().map(UCSBDate::getName).collect(Collectors.toList());
+  }
+
+  @Test
+  void test_range_includes_from_excludes_to_and_is_in_time_order() {
+    save("spring quarter", "2023-04-03T00:00:00");
+    save("finals", "2023-03-18T08:00:00");
+    save("winter quarter", "2023-01-09T00:00:00");
+    save("spring break", "2023-03-25T00:00:00");
+
+    List<UCSBDate> range = ucsbDateRepository.findRangeAfter(
+        LocalDateTime.parse("2023-03-18T08:00:00"), 0, LocalDateTime.parse("2023-04-03T00:00:00"), PageRequest.of(0, 10));
+
+    assertEquals(List.of("finals", "spring break"), names(range));
+  }
+
+  @Test
+  void test_range_pages_through_dates_at_the_same_time_by_id() {
+    save("finals", "2023-03-18T08:00:00");
+    UCSBDate passTime = save("pass time", "2023-03-25T00:00:00");
+    save("spring break", "2023-03-25T00:00:00");
+    save("spring quarter", "2023-04-03T00:00:00");
+    LocalDateTime to = LocalDateTime.parse("2023-04-03T00:00:00");
+
+    List<UCSBDate> first = ucsbDateRepository.findRangeAfter(LocalDateTime.parse("2023-03-01T00:00:00"), 0, to, PageRequest.of(0, 2));
+    List<UCSBDate> second = ucsbDateRepository.findRangeAfter(passTime.getLocalDateTime(), passTime.getId(), to, PageRequest.of(0, 2));
+
+    assertEquals(List.of("finals", "pass time"), names(first));
+    assertEquals(List.of("spring break"), names(second));
+  }
+
+  @Test
+  void test_from_returns_everything_at_or_after_in_time_then_id_order() {
+    save("pass time", "2023-03-25T00:00:00");
+    save("finals", "2023-03-18T08:00:00");
+    save("spring break", "2023-03-25T00:00:00");
+    save("winter quarter", "2023-01-09T00:00:00");
+
+    List<UCSBDate> upcoming = ucsbDateRepository
+        .findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(LocalDateTime.parse("2023-03-01T00:00:00"));
+
+    assertEquals(List.of("finals", "pass time", "spring break"), names(upcoming));
+  }
+
+  @Test
+  void test_quarter_returns_its_dates_in_time_order() {
+    save("20231", "finals", "2023-03-18T08:00:00");
+    save("20232", "spring quarter", "2023-04-03T00:00:00");
+    save("20231", "winter quarter", "2023-01-09T00:00:00");
+
+    assertEquals(List.of("winter quarter", "finals"),
+        names(ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc("20231")));
+  }
+
+  @Test
+  void test_quarters_returns_their_dates_by_quarter_then_time() {
+    save("20232", "spring quarter", "2023-04-03T00:00:00");
+    save("20231", "finals", "2023-03-18T08:00:00");
+    save("20233", "summer session", "2023-06-26T00:00:00");
+    save("20231", "winter quarter", "2023-01-09T00:00:00");
+
+    assertEquals(List.of("winter quarter", "finals", "spring quarter"),
+        names(ucsbDateRepository.findAllByQuarterYYYYQInOrderByQuarterYYYYQAscLocalDateTimeAscIdAsc(Set.of("20232", "20231"))));
+  }
+
+  @Test
+  void test_summarizeQuarters_counts_and_bounds_each_quarter() {
+    save("20232", "spring quarter", "2023-04-03T00:00:00");
+    save("20231", "finals", "2023-03-18T08:00:00");
+    save("20231", "winter quarter", "2023-01-09T00:00:00");
+    save("20231", "mlk day", "2023-01-16T00:00:00");
+
+    List<QuarterSummary> expected = List.of(
+        QuarterSummary.builder().quarterYYYYQ("20231").count(3)
+            .first(LocalDateTime.parse("2023-01-09T00:00:00")).last(LocalDateTime.parse("2023-03-18T08:00:00")).build(),
+        QuarterSummary.builder().quarterYYYYQ("20232").count(1)
+            .first(LocalDateTime.parse("2023-04-03T00:00:00")).last(LocalDateTime.parse("2023-04-03T00:00:00")).build());
+    assertEquals(expected, ucsbDateRepository.summarizeQuarters());
+  }
+
+  // each write commits, as the cache is only updated when it does
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void test_updateById_leaves_the_other_rows_in_the_second_level_cache() {
+    List<Long> ids = cached();
+
+    assertEquals(1, ucsbDateRepository.updateById(ids.get(0), UCSBDate.builder().quarterYYYYQ("20231")
+        .name("finals week").localDateTime(LocalDateTime.parse("2023-03-18T08:00:00")).build()));
+
+    assertTrue(cache().contains(UCSBDate.class, ids.get(1)));
+    assertEquals("finals week", ucsbDateRepository.findById(ids.get(0)).orElseThrow().getName());
+    assertEquals(0, ucsbDateRepository.updateById(12345L, UCSBDate.builder().build()));
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void test_deleteRowById_leaves_the_other_rows_in_the_second_level_cache() {
+    List<Long> ids = cached();
+
+    assertEquals(1, ucsbDateRepository.deleteRowById(ids.get(0)));
+
+    assertTrue(cache().contains(UCSBDate.class, ids.get(1)));
+    assertEquals(0, ucsbDateRepository.deleteRowById(ids.get(0)));
+  }
+}
@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import edu.ucsb.cs156.example.entities.User;
+
+// The tests of UserRepositoryTests, run against PostgreSQL (built by the
+// Flyway migrations) for its own upsert statement.  Needs Docker.
+
+@Testcontainers(disabledWithoutDocker = true)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryPostgresTests extends UserRepositoryTests {
+
+  @Container
+  static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:14-alpine");
+
+  @DynamicPropertySource
+  static void postgres(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+    registry.add("spring.datasource.username", POSTGRES::getUsername);
+    registry.add("spring.datasource.password", POSTGRES::getPassword);
+    // as in application-production.properties, over the active profile's H2
+    registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQL9Dialect");
+  }
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Test
+  void test_upsertByGoogleSub_draws_no_id_for_a_returning_user() {
+    User user = User.builder().email("cgaucho@ucsb.edu").googleSub("1234").emailVerified(true).build();
+    userRepository.upsertByGoogleSub(user);
+    long lastValue = jdbcTemplate.queryForObject("SELECT last_value FROM users_seq", Long.class);
+
+    userRepository.upsertByGoogleSub(user);
+
+    assertEquals(lastValue, jdbcTemplate.queryForObject("SELECT last_value FROM users_seq", Long.class));
+  }
+}
@@ -0,0 +1,124 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import edu.ucsb.cs156.example.entities.User;
+
+// Runs against an in-memory H2 database, since what is under test is the
+// MERGE statement itself; UserRepositoryPostgresTests runs the same tests
+// against PostgreSQL.
+
+@DataJpaTest
+class UserRepositoryTests {
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Autowired
+  TestEntityManager entityManager;
+
+  private static User chris(boolean admin) {
+    return User.builder()
+        .email("cgaucho@ucsb.edu")
+        .googleSub("1234")
+        .fullName("Chris Gaucho")
+        .emailVerified(true)
+        .admin(admin)
+        .build();
+  }
+
+  @Test
+  void test_upsertByGoogleSub_inserts_a_new_user_once() {
+    User first = userRepository.upsertByGoogleSub(chris(false));
+    User second = userRepository.upsertByGoogleSub(chris(false));
+
+    assertEquals(first.getId(), second.getId());
+    assertEquals("Chris Gaucho", second.getFullName());
+    assertEquals(1, userRepository.count());
+  }
+
+  @Test
+  void test_upsertByGoogleSub_promotes_but_never_demotes_an_admin() {
+    assertFalse(userRepository.upsertByGoogleSub(chris(false)).getAdmin());
+
+    assertTrue(userRepository.upsertByGoogleSub(chris(true)).getAdmin());
+    assertTrue(userRepository.upsertByGoogleSub(chris(false)).getAdmin());
+  }
+
+  @Test
+  void test_upsertByGoogleSub_follows_a_change_of_email() {
+    User first = userRepository.upsertByGoogleSub(chris(true));
+
+    User renamed = chris(false);
+    renamed.setEmail("chris.gaucho@ucsb.edu");
+    renamed.setFullName("Christopher Gaucho");
+    User second = userRepository.upsertByGoogleSub(renamed);
+
+    assertEquals(first.getId(), second.getId());
+    assertEquals("chris.gaucho@ucsb.edu", second.getEmail());
+    assertEquals("Christopher Gaucho", second.getFullName());
+    assertTrue(second.getAdmin());
+    assertEquals(1, userRepository.count());
+    assertEquals(second.getId(), userRepository.findByEmail("chris.gaucho@ucsb.edu").orElseThrow().getId());
+  }
+
+  @Test
+  void test_upsertByGoogleSub_takes_over_a_row_with_the_email_and_no_sub() {
+    User legacy = chris(true);
+    legacy.setGoogleSub(null);
+    legacy = userRepository.save(legacy);
+
+    User user = userRepository.upsertByGoogleSub(chris(false));
+
+    assertEquals(legacy.getId(), user.getId());
+    assertEquals("1234", user.getGoogleSub());
+    assertTrue(user.getAdmin());
+    assertEquals(1, userRepository.count());
+  }
+
+  @Test
+  void test_upsertByGoogleSub_takes_the_email_off_another_account() {
+    User other = chris(true);
+    other.setGoogleSub("5678");
+    other = userRepository.save(other);
+
+    User user = userRepository.upsertByGoogleSub(chris(false));
+
+    assertNotEquals(other.getId(), user.getId());
+    assertEquals("cgaucho@ucsb.edu", user.getEmail());
+    assertFalse(user.getAdmin());
+    entityManager.clear();
+    User before = userRepository.findById(other.getId()).orElseThrow();
+    assertNull(before.getEmail());
+    assertTrue(before.getAdmin());
+    assertEquals(2, userRepository.count());
+  }
+
+  @Test
+  void test_upsertByGoogleSub_takes_a_new_email_off_a_row_with_no_sub() {
+    User first = userRepository.upsertByGoogleSub(chris(false));
+    User legacy = chris(false);
+    legacy.setGoogleSub(null);
+    legacy.setEmail("chris.gaucho@ucsb.edu");
+    legacy = userRepository.save(legacy);
+
+    User renamed = chris(false);
+    renamed.setEmail("chris.gaucho@ucsb.edu");
+    User second = userRepository.upsertByGoogleSub(renamed);
+
+    assertEquals(first.getId(), second.getId());
+    assertEquals("chris.gaucho@ucsb.edu", second.getEmail());
+    entityManager.clear();
+    assertNull(userRepository.findById(legacy.getId()).orElseThrow().getEmail());
+    assertEquals(2, userRepository.count());
+  }
+}
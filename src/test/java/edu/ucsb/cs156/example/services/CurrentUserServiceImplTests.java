@@ -0,0 +1,123 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import(CurrentUserServiceImpl.class)
+@TestPropertySource(properties = "app.admin.emails=admin@ucsb.edu")
+class CurrentUserServiceImplTests {
+
+  @Autowired
+  CurrentUserServiceImpl currentUserService;
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  GrantedAuthoritiesService grantedAuthoritiesService;
+
+  @BeforeEach
+  void login() {
+    currentUserService.invalidateAllUsers();
+    DefaultOAuth2User principal = new DefaultOAuth2User(
+        List.of(new SimpleGrantedAuthority("ROLE_USER")),
+        Map.of("sub", "1234", "email", "cgaucho@ucsb.edu", "email_verified", true, "name", "Chris Gaucho"),
+        "sub");
+    SecurityContextHolder.getContext().setAuthentication(
+        new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+  }
+
+  @AfterEach
+  void logout() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void test_getUser_reads_the_users_table_once_per_principal() {
+    User chris = User.builder().id(1L).googleSub("1234").email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByGoogleSub("1234")).thenReturn(Optional.of(chris));
+
+    User first = currentUserService.getUser();
+    User second = currentUserService.getUser();
+
+    assertSame(first, second);
+    assertEquals(chris, first);
+    verify(userRepository, times(1)).findByGoogleSub("1234");
+    verify(userRepository, never()).upsertByGoogleSub(any());
+  }
+
+  @Test
+  void test_getUser_is_null_once_the_row_is_deleted() {
+    when(userRepository.findByGoogleSub("1234")).thenReturn(Optional.empty());
+
+    assertNull(currentUserService.getUser());
+    assertFalse(currentUserService.isLoggedIn());
+    verify(userRepository, never()).upsertByGoogleSub(any());
+  }
+
+  @Test
+  void test_login_writes_the_row_and_replaces_the_cached_user() {
+    User chris = User.builder().id(1L).googleSub("1234").email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByGoogleSub("1234")).thenReturn(Optional.of(chris));
+    currentUserService.getUser();
+
+    User renamed = User.builder().id(1L).googleSub("1234").email("chris@ucsb.edu").admin(true).build();
+    when(userRepository.upsertByGoogleSub(any())).thenReturn(renamed);
+    assertSame(renamed, currentUserService.login(Map.of("sub", "1234", "email", "chris@ucsb.edu")));
+
+    assertSame(renamed, currentUserService.getUser());
+    assertTrue(currentUserService.getUser().getAdmin());
+    verify(userRepository, times(1)).upsertByGoogleSub(any());
+    verify(userRepository, times(1)).findByGoogleSub("1234");
+  }
+
+  @Test
+  void test_login_provisions_the_user_from_the_oauth_attributes() {
+    when(userRepository.upsertByGoogleSub(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    User user = currentUserService.login(Map.of("sub", "1234", "email", "cgaucho@ucsb.edu",
+        "email_verified", true, "name", "Chris Gaucho"));
+
+    ArgumentCaptor<User> upserted = ArgumentCaptor.forClass(User.class);
+    verify(userRepository, times(1)).upsertByGoogleSub(upserted.capture());
+    assertSame(upserted.getValue(), user);
+    assertSame(user, currentUserService.getUser());
+    assertEquals("1234", user.getGoogleSub());
+    assertEquals("cgaucho@ucsb.edu", user.getEmail());
+    assertEquals("Chris Gaucho", user.getFullName());
+    assertTrue(user.getEmailVerified());
+    assertFalse(user.getAdmin());
+    verify(userRepository, never()).findByGoogleSub(any());
+  }
+}
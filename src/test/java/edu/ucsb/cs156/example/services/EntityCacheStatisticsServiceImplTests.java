@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import edu.ucsb.cs156.example.models.EntityCacheStatistics;
+
+class EntityCacheStatisticsServiceImplTests {
+
+  private CacheManager cacheManager;
+
+  private EntityCacheStatisticsService entityCacheStatisticsService = new EntityCacheStatisticsServiceImpl();
+
+  @BeforeEach
+  void createCacheManager() {
+    cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+  }
+
+  @AfterEach
+  void destroyCache() {
+    cacheManager.destroyCache("statistics-test");
+  }
+
+  @Test
+  void test_getEntityCacheStatistics_reports_jcache_counters() {
+    Cache<Long, String> cache = cacheManager.createCache("statistics-test",
+        new MutableConfiguration<Long, String>().setStatisticsEnabled(true));
+    cache.put(1L, "one");
+    cache.get(1L);
+    cache.get(1L);
+    cache.get(1L);
+    cache.get(2L);
+    cache.remove(1L);
+
+    EntityCacheStatistics stats = entityCacheStatisticsService.getEntityCacheStatistics().stream()
+        .filter(s -> s.getRegion().equals("statistics-test"))
+        .findFirst().orElseThrow();
+
+    EntityCacheStatistics expected = EntityCacheStatistics.builder()
+        .region("statistics-test")
+        .hits(3)
+        .misses(1)
+        .hitPercentage(75.0f)
+        .puts(1)
+        .removals(1)
+        .evictions(0)
+        .build();
+    assertEquals(expected, stats);
+  }
+
+}
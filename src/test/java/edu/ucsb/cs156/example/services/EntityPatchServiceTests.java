@@ -0,0 +1,137 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.School;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.repositories.SchoolRepository;
+
+// Runs against an in-memory H2 database, since what is under test is how
+// the row is written and what that does to the second-level cache.
+
+@DataJpaTest
+@Import({ EntityPatchService.class, JacksonAutoConfiguration.class })
+class EntityPatchServiceTests {
+
+  @Autowired
+  EntityPatchService entityPatchService;
+
+  @Autowired
+  TestEntityManager testEntityManager;
+
+  @Autowired
+  SchoolRepository schoolRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Test
+  void test_patch_changes_only_the_supplied_fields() {
+    School ucsb = testEntityManager.persistFlushFind(School.builder()
+        .name("UCSB")
+        .address("Santa Barbara, CA")
+        .description("Gauchos")
+        .build());
+    testEntityManager.clear();
+
+    Optional<School> patched = entityPatchService.patch(School.class, ucsb.getId(), Map.of("description", "Go Gauchos"));
+
+    School expected = School.builder()
+        .id(ucsb.getId())
+        .name("UCSB")
+        .address("Santa Barbara, CA")
+        .description("Go Gauchos")
+        .build();
+    assertEquals(Optional.of(expected), patched);
+  }
+
+  @Test
+  void test_patch_converts_values_to_the_field_types() {
+    testEntityManager.persistAndFlush(UCSBDiningCommons.builder()
+        .code("carrillo")
+        .name("Carrillo")
+        .latitude(34.409953)
+        .longitude(-119.85277)
+        .build());
+    testEntityManager.clear();
+
+    UCSBDiningCommons patched = entityPatchService.patch(UCSBDiningCommons.class, "carrillo",
+        Map.of("hasSackMeal", "true", "latitude", 34)).orElseThrow();
+
+    assertTrue(patched.getHasSackMeal());
+    assertEquals(34.0, patched.getLatitude());
+    assertEquals(-119.85277, patched.getLongitude());
+  }
+
+  // the patch commits, as the cache is only updated when it does
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void test_patch_leaves_the_other_rows_in_the_second_level_cache() {
+    long ucsb = schoolRepository.save(School.builder().name("UCSB").build()).getId();
+    long ucla = schoolRepository.save(School.builder().name("UCLA").build()).getId();
+    Cache cache = entityManagerFactory.getCache();
+    cache.evictAll();
+    schoolRepository.findById(ucsb);
+    schoolRepository.findById(ucla);
+
+    try {
+      entityPatchService.patch(School.class, ucsb, Map.of("name", "UC Santa Barbara"));
+
+      assertTrue(cache.contains(School.class, ucla));
+      assertEquals("UC Santa Barbara", schoolRepository.findById(ucsb).orElseThrow().getName());
+    } finally {
+      schoolRepository.deleteAll();
+    }
+  }
+
+  @Test
+  void test_patch_returns_empty_when_there_is_no_such_row() {
+    assertEquals(Optional.empty(), entityPatchService.patch(School.class, 12345L, Map.of("name", "UCLA")));
+  }
+
+  @Test
+  void test_patch_rejects_unknown_fields_and_the_id() {
+    BadRequestException unknown = assertThrows(BadRequestException.class,
+        () -> entityPatchService.patch(School.class, 1L, Map.of("mascot", "Olé")));
+    assertEquals("School has no updatable field mascot", unknown.getMessage());
+
+    assertThrows(BadRequestException.class,
+        () -> entityPatchService.patch(School.class, 1L, Map.of("id", 2)));
+  }
+
+  @Test
+  void test_patch_rejects_values_the_field_cannot_hold() {
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> entityPatchService.patch(UCSBDiningCommons.class, "carrillo", Map.of("latitude", "north")));
+    assertEquals("latitude cannot be set to north", e.getMessage());
+  }
+
+  @Test
+  void test_patch_rejects_null_for_primitive_fields() {
+    Map<String, Object> fields = new HashMap<>();
+    fields.put("hasDiningCam", null);
+
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> entityPatchService.patch(UCSBDiningCommons.class, "carrillo", fields));
+    assertEquals("hasDiningCam may not be null", e.getMessage());
+  }
+}
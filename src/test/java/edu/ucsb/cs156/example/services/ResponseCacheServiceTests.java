@@ -0,0 +1,147 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.School;
+import edu.ucsb.cs156.example.services.ResponseCacheService.CachedResponse;
+
+@ExtendWith(SpringExtension.class)
+@Import({ ResponseCacheService.class, JacksonAutoConfiguration.class })
+class ResponseCacheServiceTests {
+
+  @Autowired
+  ResponseCacheService responseCacheService;
+
+  AtomicInteger queries = new AtomicInteger();
+
+  List<School> schools = List.of(School.builder().id(1L).name("UCSB").build());
+
+  @BeforeEach
+  void clear() {
+    responseCacheService.clear();
+  }
+
+  private CachedResponse listing() throws Exception {
+    return responseCacheService.get(School.class, () -> {
+      queries.incrementAndGet();
+      return schools;
+    });
+  }
+
+  @Test
+  void test_get_runs_the_query_once_until_invalidated() throws Exception {
+    CachedResponse first = listing();
+    CachedResponse second = listing();
+
+    assertSame(first, second);
+    assertEquals(1, queries.get());
+
+    responseCacheService.invalidate(School.class);
+    listing();
+
+    assertEquals(2, queries.get());
+  }
+
+  @Test
+  void test_gzip_copy_has_the_same_json() throws Exception {
+    CachedResponse cached = listing();
+
+    assertArrayEquals(cached.getJson(), gunzip(cached.getGzip()));
+  }
+
+  @Test
+  void test_invalidate_inside_a_transaction_waits_for_the_commit() throws Exception {
+    long before = responseCacheService.version(School.class);
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      responseCacheService.invalidate(School.class);
+      // a reader that runs before the commit may still cache (and serve) the old rows
+      assertEquals(before, responseCacheService.version(School.class));
+      listing();
+      listing();
+      assertEquals(1, queries.get());
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertEquals(before + 1, responseCacheService.version(School.class));
+    listing();
+    assertEquals(2, queries.get());
+  }
+
+  @Test
+  void test_listing_read_before_a_write_is_not_cached_under_the_new_version() throws Exception {
+    responseCacheService.get(School.class, () -> {
+      // the write commits while this (stale) query is being serialized
+      responseCacheService.invalidate(School.class);
+      return schools;
+    });
+
+    listing();
+
+    assertEquals(1, queries.get());
+  }
+
+  @Test
+  void test_etag_changes_when_the_entity_is_written() throws Exception {
+    String before = responseCacheService.etag(School.class);
+
+    assertEquals(before, responseCacheService.etag(School.class));
+    responseCacheService.invalidate(School.class);
+
+    assertNotEquals(before, responseCacheService.etag(School.class));
+  }
+
+  @Test
+  void test_listings_and_etags_are_rebuilt_once_the_ttl_has_passed() throws Exception {
+    AtomicLong nanos = new AtomicLong(responseCacheService.ticker.read());
+    responseCacheService.ticker = nanos::get;
+    try {
+      listing();
+      String before = responseCacheService.etag(School.class);
+
+      nanos.addAndGet(TimeUnit.SECONDS.toNanos(599));
+      listing();
+      assertEquals(1, queries.get());
+      assertEquals(before, responseCacheService.etag(School.class));
+
+      nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+      listing();
+      assertEquals(2, queries.get());
+      assertNotEquals(before, responseCacheService.etag(School.class));
+    } finally {
+      responseCacheService.ticker = Ticker.systemTicker();
+    }
+  }
+
+  private static byte[] gunzip(byte[] bytes) throws IOException {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readAllBytes();
+    }
+  }
+}
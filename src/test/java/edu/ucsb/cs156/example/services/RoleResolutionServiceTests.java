@@ -0,0 +1,98 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(SpringExtension.class)
+@Import({ RoleResolutionService.class, SimpleMeterRegistry.class })
+@TestPropertySource(properties = "app.admin.emails=phtcon@ucsb.edu")
+class RoleResolutionServiceTests {
+
+  @Autowired
+  RoleResolutionService roleResolutionService;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  CurrentUserService currentUserService;
+
+  private static User user(String email, boolean admin) {
+    return User.builder().email(email).admin(admin).build();
+  }
+
+  @Test
+  void test_configured_admins_do_not_touch_the_users_table() {
+    assertTrue(roleResolutionService.isAdmin("phtcon@ucsb.edu"));
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  void test_admins_in_the_users_table_are_found_by_email() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user("cgaucho@ucsb.edu", true)));
+
+    assertTrue(roleResolutionService.isAdmin("cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  void test_unknown_users_are_not_admins() {
+    when(userRepository.findByEmail("stranger@example.org")).thenReturn(Optional.empty());
+
+    assertFalse(roleResolutionService.isAdmin("stranger@example.org"));
+  }
+
+  @Test
+  void test_mapAuthorities_adds_admin_and_member_roles_and_is_timed() {
+    when(currentUserService.login(any())).thenReturn(user("phtcon@ucsb.edu", false));
+    OAuth2UserAuthority oauth = new OAuth2UserAuthority(Map.of("email", "phtcon@ucsb.edu"));
+    SimpleGrantedAuthority scope = new SimpleGrantedAuthority("SCOPE_email");
+
+    Set<GrantedAuthority> roles = roleResolutionService.mapAuthorities(List.of(oauth, scope));
+
+    assertEquals(Set.of(oauth, scope, new SimpleGrantedAuthority("ROLE_ADMIN"), new SimpleGrantedAuthority("ROLE_MEMBER")), roles);
+    assertEquals(1, meterRegistry.get("app.login.roles").timer().count());
+    verify(currentUserService, times(1)).login(Map.of("email", "phtcon@ucsb.edu"));
+  }
+
+  @Test
+  void test_mapAuthorities_takes_the_admin_flag_from_the_row_the_login_wrote() {
+    Map<String, Object> claims = Map.of("sub", "5678", "email", "someone@example.org");
+    when(currentUserService.login(claims)).thenReturn(user("someone@example.org", true));
+    OAuth2UserAuthority oauth = new OAuth2UserAuthority(claims);
+
+    Set<GrantedAuthority> roles = roleResolutionService.mapAuthorities(List.of(oauth));
+
+    assertEquals(Set.of(oauth, new SimpleGrantedAuthority("ROLE_ADMIN")), roles);
+    verify(userRepository, never()).findByEmail(any());
+  }
+}
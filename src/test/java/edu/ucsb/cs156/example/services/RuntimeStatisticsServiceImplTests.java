@@ -0,0 +1,120 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.models.ConnectionPoolStatistics;
+import edu.ucsb.cs156.example.models.EndpointStatistics;
+import edu.ucsb.cs156.example.models.EntityCacheStatistics;
+import edu.ucsb.cs156.example.models.RuntimeStatistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(SpringExtension.class)
+@Import({ RuntimeStatisticsServiceImpl.class, SimpleMeterRegistry.class })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class RuntimeStatisticsServiceImplTests {
+
+  @Autowired
+  RuntimeStatisticsServiceImpl runtimeStatisticsService;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  @MockBean
+  EntityCacheStatisticsService entityCacheStatisticsService;
+
+  @Test
+  void test_jvm_figures_and_entity_caches_are_reported() {
+    List<EntityCacheStatistics> caches = List.of(EntityCacheStatistics.builder().region("schools").build());
+    when(entityCacheStatisticsService.getEntityCacheStatistics()).thenReturn(caches);
+
+    RuntimeStatistics stats = runtimeStatisticsService.getRuntimeStatistics();
+
+    assertTrue(stats.getUptimeMillis() > 0);
+    assertTrue(stats.getHeapUsed() > 0);
+    assertTrue(stats.getLiveThreads() > 0);
+    assertTrue(stats.getPeakThreads() >= stats.getLiveThreads());
+    assertTrue(!stats.getGarbageCollectors().isEmpty());
+    assertEquals(caches, stats.getEntityCaches());
+  }
+
+  @Test
+  void test_connection_pool_is_null_without_hikari_meters() {
+    assertNull(runtimeStatisticsService.connectionPool());
+  }
+
+  @Test
+  void test_connection_pool_reads_hikari_meters() {
+    gauge("hikaricp.connections.active", 3);
+    gauge("hikaricp.connections.idle", 7);
+    gauge("hikaricp.connections.pending", 1);
+    gauge("hikaricp.connections.max", 10);
+    Timer acquire = Timer.builder("hikaricp.connections.acquire").tag("pool", "HikariPool-1").register(meterRegistry);
+    acquire.record(2, TimeUnit.MILLISECONDS);
+    acquire.record(4, TimeUnit.MILLISECONDS);
+    Counter.builder("hikaricp.connections.timeout").tag("pool", "HikariPool-1").register(meterRegistry).increment();
+
+    ConnectionPoolStatistics expected = ConnectionPoolStatistics.builder()
+        .pool("HikariPool-1")
+        .active(3)
+        .idle(7)
+        .pending(1)
+        .max(10)
+        .acquired(2)
+        .acquireMeanMillis(3.0)
+        .acquireMaxMillis(4.0)
+        .timeouts(1)
+        .build();
+    assertEquals(expected, runtimeStatisticsService.connectionPool());
+  }
+
+  @Test
+  void test_endpoints_are_busiest_first_with_rates_and_errors() {
+    Timer all = timer("SchoolsController", "allSchools");
+    for (int i = 0; i < 3; i++) {
+      all.record(10, TimeUnit.MILLISECONDS);
+    }
+    timer("SchoolsController", "getById").record(30, TimeUnit.MILLISECONDS);
+    Counter.builder("app.controller.errors")
+        .tags("controller", "SchoolsController", "handler", "getById", "exception", "EntityNotFoundException")
+        .register(meterRegistry).increment();
+
+    List<EndpointStatistics> endpoints = runtimeStatisticsService.endpoints(120_000);
+
+    List<EndpointStatistics> expected = List.of(
+        EndpointStatistics.builder()
+            .controller("SchoolsController").handler("allSchools")
+            .requests(3).requestsPerMinute(1.5).errors(0).meanMillis(10.0).maxMillis(10.0).build(),
+        EndpointStatistics.builder()
+            .controller("SchoolsController").handler("getById")
+            .requests(1).requestsPerMinute(0.5).errors(1).meanMillis(30.0).maxMillis(30.0).build());
+    assertEquals(expected, endpoints);
+  }
+
+  private void gauge(String name, double value) {
+    Gauge.builder(name, () -> value).tag("pool", "HikariPool-1").register(meterRegistry);
+  }
+
+  private Timer timer(String controller, String handler) {
+    return Timer.builder("app.controller.requests")
+        .tags("controller", controller, "handler", handler)
+        .register(meterRegistry);
+  }
+}
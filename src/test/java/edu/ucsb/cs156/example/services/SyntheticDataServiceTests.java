@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ucsb.cs156.example.entities.School;
+import edu.ucsb.cs156.example.repositories.SchoolRepository;
+
+@DataJpaTest
+@Import({ SyntheticDataService.class, ResponseCacheService.class, UCSBDiningCommonsIndex.class, UCSBDateQuarterCache.class,
+    JacksonAutoConfiguration.class })
+class SyntheticDataServiceTests {
+
+  @Autowired
+  SyntheticDataService syntheticDataService;
+
+  @Autowired
+  SchoolRepository schoolRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Test
+  void test_generate_adds_rows_to_every_table() {
+    // more than a batch, and not a whole number of id blocks
+    Map<String, Long> counts = syntheticDataService.generate(1234, 7);
+
+    assertEquals(List.of("users", "amusement_parks", "books", "games", "icecreamshop", "restaurant", "schools",
+        "ucsbdates", "ucsbdiningcommons"), List.copyOf(counts.keySet()));
+    counts.forEach((table, rows) -> {
+      assertEquals(1234L, rows);
+      assertEquals(1234L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class), table);
+    });
+  }
+
+  @Test
+  void test_generated_ids_do_not_collide_with_hibernate_ids() {
+    syntheticDataService.generate(120, 7);
+
+    School saved = schoolRepository.save(School.builder().name("UCSB").build());
+
+    assertEquals(121L, schoolRepository.count());
+    assertEquals(1L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM schools WHERE id = ?", Long.class,
+        saved.getId()));
+  }
+
+  @Test
+  void test_the_seed_decides_the_rows() {
+    syntheticDataService.generate(10, 7);
+    List<String> seven = jdbcTemplate.queryForList("SELECT title FROM books ORDER BY id", String.class);
+    jdbcTemplate.update("DELETE FROM books");
+
+    syntheticDataService.generate(10, 8);
+    List<String> eight = jdbcTemplate.queryForList("SELECT title FROM books ORDER BY id", String.class);
+    jdbcTemplate.update("DELETE FROM books");
+    jdbcTemplate.update("DELETE FROM users");
+    jdbcTemplate.update("DELETE FROM ucsbdiningcommons");
+
+    syntheticDataService.generate(10, 7);
+    List<String> sevenAgain = jdbcTemplate.queryForList("SELECT title FROM books ORDER BY id", String.class);
+
+    assertEquals(seven, sevenAgain);
+    assertNotEquals(seven, eight);
+  }
+
+  @Test
+  void test_generate_refuses_a_seed_that_was_already_used() {
+    syntheticDataService.generate(1, 7);
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> syntheticDataService.generate(1, 7));
+    assertEquals("Rows for seed 7 have already been generated", e.getMessage());
+  }
+}
@@ -0,0 +1,219 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.QuarterSummary;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import({ UCSBDateCalendar.class, UCSBDateQuarterCache.class, ResponseCacheService.class, JacksonAutoConfiguration.class })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class UCSBDateCalendarTests {
+
+  @Autowired
+  UCSBDateCalendar ucsbDateCalendar;
+
+  @Autowired
+  UCSBDateQuarterCache ucsbDateQuarterCache;
+
+  @Autowired
+  ResponseCacheService responseCacheService;
+
+  @MockBean
+  UCSBDateRepository ucsbDateRepository;
+
+  UCSBDate finals = date(1, "20231", "Finals; week 11", "2023-03-18T08:00:00", "2023-01-05T17:30:12.345Z");
+  UCSBDate springStart = date(2, "20232", "Spring quarter", "2023-04-03T00:00:00", "2023-02-01T09:00:00Z");
+
+  private static UCSBDate date(long id, String quarterYYYYQ, String name, String localDateTime, String updatedAt) {
+    return UCSBDate.builder().id(id).quarterYYYYQ(quarterYYYYQ).name(name)
+        .localDateTime(LocalDateTime.parse(localDateTime)).updatedAt(Instant.parse(updatedAt)).build();
+  }
+
+  private static String ics(UCSBDateCalendar.Feed feed) {
+    return new String(feed.getIcs(), StandardCharsets.UTF_8);
+  }
+
+  // the rows the mocked repository answers from, by quarter
+  Map<String, List<UCSBDate>> table = new HashMap<>();
+
+  @SuppressWarnings("unchecked")
+  private void twoQuarters() {
+    table.put("20231", List.of(finals));
+    table.put("20232", List.of(springStart));
+    when(ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(any()))
+        .thenAnswer(invocation -> table.getOrDefault(invocation.getArgument(0), List.of()));
+    when(ucsbDateRepository.findAllByQuarterYYYYQInOrderByQuarterYYYYQAscLocalDateTimeAscIdAsc(any()))
+        .thenAnswer(invocation -> ((Collection<String>) invocation.getArgument(0)).stream()
+            .sorted()
+            .flatMap(quarter -> table.getOrDefault(quarter, List.of()).stream())
+            .collect(Collectors.toList()));
+    when(ucsbDateRepository.summarizeQuarters()).thenReturn(List.of(
+        QuarterSummary.builder().quarterYYYYQ("20231").count(1).build(),
+        QuarterSummary.builder().quarterYYYYQ("20232").count(1).build()));
+  }
+
+  @Test
+  void test_quarter_feed_is_an_icalendar_with_one_event_per_date() {
+    twoQuarters();
+
+    String ics = ics(ucsbDateCalendar.quarter("20231"));
+
+    assertEquals("BEGIN:VCALENDAR\r\n"
+        + "VERSION:2.0\r\n"
+        + "PRODID:-//UCSB CS156//UCSB Dates//EN\r\n"
+        + "CALSCALE:GREGORIAN\r\n"
+        + "X-WR-CALNAME:UCSB dates 20231\r\n"
+        + "BEGIN:VEVENT\r\n"
+        + "UID:ucsbdate-1@ucsb-cs156\r\n"
+        + "DTSTAMP:20230105T173012Z\r\n"
+        + "DTSTART:20230318T080000\r\n"
+        + "SUMMARY:Finals\\; week 11\r\n"
+        + "CATEGORIES:20231\r\n"
+        + "END:VEVENT\r\n"
+        + "END:VCALENDAR\r\n", ics);
+  }
+
+  @Test
+  void test_quarter_feed_is_rendered_once_until_the_quarter_is_written() {
+    twoQuarters();
+    UCSBDateCalendar.Feed first = ucsbDateCalendar.quarter("20231");
+
+    assertSame(first, ucsbDateCalendar.quarter("20231"));
+    verify(ucsbDateRepository, times(1)).findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc("20231");
+
+    table.put("20231", List.of(finals, date(3, "20231", "Grades due", "2023-03-28T17:00:00", "2023-03-01T12:00:00Z")));
+    ucsbDateQuarterCache.invalidateQuarters(List.of("20231"));
+    UCSBDateCalendar.Feed second = ucsbDateCalendar.quarter("20231");
+
+    assertNotEquals(first.getEtag(), second.getEtag());
+    assertTrue(ics(second).contains("SUMMARY:Grades due"));
+  }
+
+  @Test
+  void test_quarter_feed_is_the_same_when_rendered_again_from_the_same_rows() {
+    twoQuarters();
+    UCSBDateCalendar.Feed first = ucsbDateCalendar.quarter("20231");
+
+    // the same rows, loaded again as after an eviction or a restart
+    table.put("20231", List.of(date(1, "20231", "Finals; week 11", "2023-03-18T08:00:00", "2023-01-05T17:30:12.345Z")));
+    ucsbDateQuarterCache.invalidateQuarters(List.of("20231"));
+    UCSBDateCalendar.Feed second = ucsbDateCalendar.quarter("20231");
+
+    assertNotSame(first, second);
+    assertArrayEquals(first.getIcs(), second.getIcs());
+    assertEquals(first.getEtag(), second.getEtag());
+    assertEquals(first.getLastModified(), second.getLastModified());
+  }
+
+  @Test
+  void test_last_modified_is_when_the_newest_row_was_written() {
+    twoQuarters();
+
+    assertEquals(Instant.parse("2023-01-05T17:30:12Z").toEpochMilli(), ucsbDateCalendar.quarter("20231").getLastModified());
+    assertEquals(Instant.parse("2023-02-01T09:00:00Z").toEpochMilli(), ucsbDateCalendar.all().getLastModified());
+    assertEquals(-1, ucsbDateCalendar.quarter("20233").getLastModified());
+  }
+
+  @Test
+  void test_all_feed_loads_every_quarter_in_one_query() {
+    twoQuarters();
+    UCSBDateCalendar.Feed first = ucsbDateCalendar.all();
+
+    assertSame(first, ucsbDateCalendar.all());
+    assertTrue(ics(first).indexOf("SUMMARY:Finals") < ics(first).indexOf("SUMMARY:Spring quarter"));
+    verify(ucsbDateRepository, times(1)).summarizeQuarters();
+    verify(ucsbDateRepository, times(1)).findAllByQuarterYYYYQInOrderByQuarterYYYYQAscLocalDateTimeAscIdAsc(Set.of("20231", "20232"));
+    verify(ucsbDateRepository, never()).findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(any());
+  }
+
+  @Test
+  void test_all_feed_shares_the_quarters_already_cached() {
+    twoQuarters();
+    UCSBDateCalendar.Feed winter = ucsbDateCalendar.quarter("20231");
+
+    ucsbDateCalendar.all();
+
+    assertSame(winter, ucsbDateCalendar.quarter("20231"));
+    verify(ucsbDateRepository, times(1)).findAllByQuarterYYYYQInOrderByQuarterYYYYQAscLocalDateTimeAscIdAsc(Set.of("20232"));
+    verify(ucsbDateRepository, times(1)).findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(any());
+  }
+
+  @Test
+  void test_all_feed_re_renders_only_the_quarter_that_changed() {
+    twoQuarters();
+    UCSBDateCalendar.Feed first = ucsbDateCalendar.all();
+    UCSBDateCalendar.Feed winter = ucsbDateCalendar.quarter("20231");
+
+    table.put("20232", List.of());
+    ucsbDateQuarterCache.invalidateIds(List.of(2L));
+    responseCacheService.invalidate(UCSBDate.class);
+    UCSBDateCalendar.Feed second = ucsbDateCalendar.all();
+
+    assertNotEquals(first.getEtag(), second.getEtag());
+    assertTrue(ics(second).contains("SUMMARY:Finals"));
+    assertFalse(ics(second).contains("SUMMARY:Spring quarter"));
+    assertSame(winter, ucsbDateCalendar.quarter("20231"));
+    verify(ucsbDateRepository, times(1)).findAllByQuarterYYYYQInOrderByQuarterYYYYQAscLocalDateTimeAscIdAsc(Set.of("20232"));
+    verify(ucsbDateRepository, times(2)).summarizeQuarters();
+  }
+
+  @Test
+  void test_all_feed_notices_a_quarter_dropped_before_the_version_changes() {
+    twoQuarters();
+    ucsbDateCalendar.all();
+
+    ucsbDateQuarterCache.invalidateQuarters(List.of("20231"));
+    ucsbDateCalendar.all();
+
+    verify(ucsbDateRepository, times(1)).findAllByQuarterYYYYQInOrderByQuarterYYYYQAscLocalDateTimeAscIdAsc(Set.of("20231"));
+  }
+
+  @Test
+  void test_long_lines_are_folded_at_75_octets() {
+    StringBuilder ics = new StringBuilder();
+    UCSBDateCalendar.line(ics, "SUMMARY:" + "é".repeat(40));
+
+    String[] lines = ics.toString().split("\r\n");
+    assertEquals(2, lines.length);
+    assertTrue(lines[0].getBytes(StandardCharsets.UTF_8).length <= 75);
+    assertTrue(lines[1].startsWith(" "));
+    assertEquals("SUMMARY:" + "é".repeat(40), lines[0] + lines[1].substring(1));
+  }
+
+  @Test
+  void test_text_values_are_escaped() {
+    assertEquals("a\\\\b\\;c\\,d\\ne", UCSBDateCalendar.text("a\\b;c,d\ne"));
+  }
+}
@@ -0,0 +1,160 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+
+class UCSBDateQuarterCacheTests {
+
+  private UCSBDateQuarterCache ucsbDateQuarterCache = new UCSBDateQuarterCache();
+
+  AtomicInteger queries = new AtomicInteger();
+
+  UCSBDate finals = date(1, "20231", "finals");
+  UCSBDate springStart = date(2, "20232", "spring quarter");
+
+  private static UCSBDate date(long id, String quarterYYYYQ, String name) {
+    return UCSBDate.builder().id(id).quarterYYYYQ(quarterYYYYQ).name(name)
+        .localDateTime(LocalDateTime.parse("2023-03-18T08:00:00")).build();
+  }
+
+  private Supplier<List<UCSBDate>> query(UCSBDate... dates) {
+    return () -> {
+      queries.incrementAndGet();
+      return List.of(dates);
+    };
+  }
+
+  private void loadBothQuarters() {
+    ucsbDateQuarterCache.get("20231", query(finals));
+    ucsbDateQuarterCache.get("20232", query(springStart));
+    assertEquals(2, queries.get());
+  }
+
+  @Test
+  void test_get_runs_the_query_once_per_quarter() {
+    assertEquals(List.of(finals), ucsbDateQuarterCache.get("20231", query(finals)));
+    assertEquals(List.of(finals), ucsbDateQuarterCache.get("20231", query(finals)));
+    assertEquals(List.of(springStart), ucsbDateQuarterCache.get("20232", query(springStart)));
+
+    assertEquals(2, queries.get());
+  }
+
+  @Test
+  void test_invalidating_a_quarter_leaves_the_others_cached() {
+    loadBothQuarters();
+
+    ucsbDateQuarterCache.invalidateQuarters(List.of("20231"));
+    ucsbDateQuarterCache.get("20231", query(finals));
+    ucsbDateQuarterCache.get("20232", query(springStart));
+
+    assertEquals(3, queries.get());
+  }
+
+  @Test
+  void test_invalidating_an_id_drops_only_the_quarter_holding_it() {
+    loadBothQuarters();
+
+    ucsbDateQuarterCache.invalidateIds(List.of(2L, 99L));
+    ucsbDateQuarterCache.get("20231", query(finals));
+    ucsbDateQuarterCache.get("20232", query());
+
+    assertEquals(3, queries.get());
+  }
+
+  @Test
+  void test_invalidate_inside_a_transaction_waits_for_the_commit() {
+    loadBothQuarters();
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      ucsbDateQuarterCache.invalidateQuarters(List.of("20231"));
+      ucsbDateQuarterCache.invalidateIds(List.of(2L));
+      ucsbDateQuarterCache.get("20231", query(finals));
+      ucsbDateQuarterCache.get("20232", query(springStart));
+      assertEquals(2, queries.get());
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    ucsbDateQuarterCache.get("20231", query(finals));
+    ucsbDateQuarterCache.get("20232", query(springStart));
+    assertEquals(4, queries.get());
+  }
+
+  @Test
+  void test_a_quarter_read_during_an_invalidation_is_not_kept() {
+    ucsbDateQuarterCache.get("20231", () -> {
+      // a delete commits while this (stale) query is running
+      ucsbDateQuarterCache.invalidateIds(List.of(1L));
+      return List.of(finals);
+    });
+    ucsbDateQuarterCache.get("20232", () -> {
+      ucsbDateQuarterCache.invalidateQuarters(List.of("20232"));
+      return List.of(springStart);
+    });
+
+    ucsbDateQuarterCache.get("20231", query(finals));
+    ucsbDateQuarterCache.get("20232", query(springStart));
+
+    assertEquals(2, queries.get());
+  }
+
+  @Test
+  void test_getAll_loads_the_missing_quarters_in_one_query() {
+    ucsbDateQuarterCache.get("20231", query(finals));
+    List<Set<String>> asked = new ArrayList<>();
+
+    Map<String, List<UCSBDate>> found = ucsbDateQuarterCache.getAll(List.of("20232", "20231", "20233"), missing -> {
+      asked.add(Set.copyOf(missing));
+      return Map.of("20232", List.of(springStart));
+    });
+
+    assertEquals(List.of("20232", "20231", "20233"), List.copyOf(found.keySet()));
+    assertEquals(List.of(springStart), found.get("20232"));
+    assertEquals(List.of(finals), found.get("20231"));
+    assertEquals(List.of(), found.get("20233"));
+    assertEquals(List.of(Set.of("20232", "20233")), asked);
+
+    ucsbDateQuarterCache.get("20232", query(springStart));
+    ucsbDateQuarterCache.get("20233", query());
+    assertEquals(1, queries.get());
+  }
+
+  @Test
+  void test_getAll_does_not_keep_quarters_invalidated_during_the_query() {
+    ucsbDateQuarterCache.getAll(List.of("20231", "20232"), missing -> {
+      ucsbDateQuarterCache.invalidateQuarters(List.of("20232"));
+      return Map.of("20231", List.of(finals), "20232", List.of(springStart));
+    });
+
+    ucsbDateQuarterCache.get("20231", query(finals));
+    ucsbDateQuarterCache.get("20232", query(springStart));
+
+    assertEquals(1, queries.get());
+  }
+
+  @Test
+  void test_clear_drops_every_quarter() {
+    loadBothQuarters();
+
+    ucsbDateQuarterCache.clear();
+    ucsbDateQuarterCache.get("20231", query(finals));
+    ucsbDateQuarterCache.get("20232", query(springStart));
+
+    assertEquals(4, queries.get());
+  }
+}
@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import({ UCSBDateTimeline.class, ResponseCacheService.class, JacksonAutoConfiguration.class })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class UCSBDateTimelineTests {
+
+  @Autowired
+  UCSBDateTimeline ucsbDateTimeline;
+
+  @Autowired
+  ResponseCacheService responseCacheService;
+
+  @MockBean
+  UCSBDateRepository ucsbDateRepository;
+
+  LocalDateTime now = LocalDateTime.parse("2023-03-01T12:00:00");
+
+  UCSBDate finals = date(1, "finals", "2023-03-18T08:00:00");
+  UCSBDate springBreak = date(2, "spring break", "2023-03-25T00:00:00");
+  UCSBDate springStart = date(3, "spring quarter", "2023-04-03T00:00:00");
+  UCSBDate passTime = date(4, "pass time", "2023-03-25T00:00:00");
+
+  private static UCSBDate date(long id, String name, String localDateTime) {
+    return UCSBDate.builder().id(id).quarterYYYYQ("20231").name(name)
+        .localDateTime(LocalDateTime.parse(localDateTime)).build();
+  }
+
+  @Test
+  void test_upcoming_returns_the_next_dates_in_time_then_id_order() {
+    when(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(now))
+        .thenReturn(List.of(finals, springBreak, passTime, springStart));
+
+    assertEquals(List.of(finals, springBreak, passTime), ucsbDateTimeline.upcoming(now, 3));
+    assertEquals(List.of(finals, springBreak, passTime, springStart), ucsbDateTimeline.upcoming(now, 10));
+  }
+
+  @Test
+  void test_upcoming_answers_later_lookups_from_the_same_map() {
+    when(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(now))
+        .thenReturn(List.of(finals, springBreak, passTime, springStart));
+    ucsbDateTimeline.upcoming(now, 1);
+
+    assertEquals(List.of(springBreak, passTime), ucsbDateTimeline.upcoming(LocalDateTime.parse("2023-03-25T00:00:00"), 2));
+    assertEquals(List.of(springStart), ucsbDateTimeline.upcoming(LocalDateTime.parse("2023-03-25T00:00:01"), 2));
+    assertEquals(List.of(), ucsbDateTimeline.upcoming(LocalDateTime.parse("2023-05-01T00:00:00"), 2));
+
+    verify(ucsbDateRepository, times(1)).findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(any());
+  }
+
+  @Test
+  void test_upcoming_reloads_after_a_write() {
+    when(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(now))
+        .thenReturn(List.of(springStart));
+    assertEquals(List.of(springStart), ucsbDateTimeline.upcoming(now, 1));
+
+    when(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(now))
+        .thenReturn(List.of(finals, springStart));
+    responseCacheService.invalidate(UCSBDate.class);
+
+    assertEquals(List.of(finals), ucsbDateTimeline.upcoming(now, 1));
+  }
+
+  @Test
+  void test_upcoming_reloads_for_a_time_before_the_map_starts() {
+    LocalDateTime earlier = LocalDateTime.parse("2023-01-01T00:00:00");
+    UCSBDate winterStart = date(5, "winter quarter", "2023-01-09T00:00:00");
+    when(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(now))
+        .thenReturn(List.of(finals));
+    when(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(earlier))
+        .thenReturn(List.of(winterStart, finals));
+    ucsbDateTimeline.upcoming(now, 1);
+
+    assertEquals(List.of(winterStart), ucsbDateTimeline.upcoming(earlier, 1));
+  }
+}
@@ -0,0 +1,243 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import(UCSBDiningCommonsIndex.class)
+class UCSBDiningCommonsIndexTests {
+
+  @Autowired
+  UCSBDiningCommonsIndex index;
+
+  @MockBean
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  UCSBDiningCommons carrillo = commons("carrillo", 34.409953, -119.85277);
+  UCSBDiningCommons dlg = commons("de-la-guerra", 34.409811, -119.845026);
+  UCSBDiningCommons ortega = commons("ortega", 34.410987, -119.84709);
+  UCSBDiningCommons portola = commons("portola", 34.417723, -119.867427);
+
+  @BeforeEach
+  void clear() {
+    index.clear();
+  }
+
+  private static UCSBDiningCommons commons(String code, Double latitude, Double longitude) {
+    return UCSBDiningCommons.builder().code(code).name(code).latitude(latitude).longitude(longitude).build();
+  }
+
+  private List<String> nearestCodes(double latitude, double longitude, int k) {
+    return index.nearest(latitude, longitude, k).stream()
+        .map(n -> n.getCommons().getCode())
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  void test_nearest_matches_a_brute_force_search() {
+    Random random = new Random(42);
+    List<UCSBDiningCommons> all = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      all.add(commons("c" + i, 34.414 + (random.nextDouble() - 0.5) * 0.2, -119.849 + (random.nextDouble() - 0.5) * 0.2));
+    }
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(all);
+
+    for (int i = 0; i < 50; i++) {
+      double latitude = 34.414 + (random.nextDouble() - 0.5) * 0.3;
+      double longitude = -119.849 + (random.nextDouble() - 0.5) * 0.3;
+      int k = 1 + random.nextInt(20);
+      List<Double> expected = all.stream()
+          .map(c -> UCSBDiningCommonsIndex.distanceMeters(latitude, longitude, c.getLatitude(), c.getLongitude()))
+          .sorted()
+          .limit(k)
+          .collect(Collectors.toList());
+
+      List<Double> actual = index.nearest(latitude, longitude, k).stream()
+          .map(NearbyDiningCommons::getDistanceMeters)
+          .collect(Collectors.toList());
+
+      assertEquals(expected, actual);
+    }
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  void test_nearest_from_far_away_still_finds_the_campus() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo, dlg, ortega, portola));
+
+    assertEquals(List.of("de-la-guerra", "ortega"), nearestCodes(40.7128, -74.0060, 2));
+    assertEquals(List.of("portola", "carrillo", "ortega", "de-la-guerra"), nearestCodes(-33.8688, 151.2093, 10));
+  }
+
+  @Test
+  void test_nearest_reports_distance_in_meters() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo, dlg));
+
+    NearbyDiningCommons nearest = index.nearest(34.409953, -119.85277, 2).get(1);
+
+    assertEquals("de-la-guerra", nearest.getCommons().getCode());
+    assertEquals(711, nearest.getDistanceMeters(), 5);
+  }
+
+  @Test
+  void test_within_returns_the_commons_in_the_box_by_code() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(portola, ortega, dlg, carrillo));
+
+    assertEquals(List.of(carrillo, dlg, ortega), index.within(34.40, -119.86, 34.415, -119.84));
+    assertEquals(List.of(carrillo, dlg, ortega, portola), index.within(-90, -180, 90, 180));
+    assertEquals(List.of(), index.within(0, 0, 1, 1));
+  }
+
+  @Test
+  void test_commons_without_a_location_are_not_indexed() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(commons("nowhere", null, null), carrillo));
+
+    assertEquals(List.of("carrillo"), nearestCodes(34.4, -119.8, 5));
+  }
+
+  @Test
+  void test_put_and_remove_change_the_index_without_reloading() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo, dlg));
+    assertEquals(List.of("carrillo"), nearestCodes(34.409953, -119.85277, 1));
+
+    index.put(commons("carrillo", 10.0, 10.0));
+    index.put(portola);
+    assertEquals(List.of("de-la-guerra", "portola"), nearestCodes(34.409953, -119.85277, 2));
+
+    index.remove(List.of("portola", "de-la-guerra"));
+    assertEquals(List.of("carrillo"), nearestCodes(34.409953, -119.85277, 5));
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  void test_put_inside_a_transaction_waits_for_the_commit() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo));
+    index.nearest(0, 0, 1);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      index.put(portola);
+      assertEquals(List.of("carrillo"), nearestCodes(34.4, -119.8, 5));
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertEquals(List.of("carrillo", "portola"), nearestCodes(34.4, -119.8, 5));
+  }
+
+  @Test
+  void test_clear_reloads_on_the_next_query() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo));
+    assertEquals(List.of("carrillo"), nearestCodes(34.4, -119.8, 5));
+
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(ortega));
+    index.clear();
+
+    assertEquals(List.of("ortega"), nearestCodes(34.4, -119.8, 5));
+  }
+
+  private static UCSBDiningCommons commons(String code, boolean sackMeal, boolean takeOutMeal, boolean diningCam) {
+    return UCSBDiningCommons.builder().code(code).name(code)
+        .hasSackMeal(sackMeal).hasTakeOutMeal(takeOutMeal).hasDiningCam(diningCam).build();
+  }
+
+  @Test
+  void test_with_amenities_matches_every_combination_of_flags() {
+    List<UCSBDiningCommons> all = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      all.add(commons("c" + i, (i & 1) != 0, (i & 2) != 0, (i & 4) != 0));
+    }
+    all.add(carrillo);
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(all);
+
+    List<Boolean> choices = Arrays.asList(null, true, false);
+    for (Boolean sackMeal : choices) {
+      for (Boolean takeOutMeal : choices) {
+        for (Boolean diningCam : choices) {
+          List<UCSBDiningCommons> expected = all.stream()
+              .filter(c -> sackMeal == null || c.getHasSackMeal() == sackMeal)
+              .filter(c -> takeOutMeal == null || c.getHasTakeOutMeal() == takeOutMeal)
+              .filter(c -> diningCam == null || c.getHasDiningCam() == diningCam)
+              .sorted(Comparator.comparing(UCSBDiningCommons::getCode))
+              .collect(Collectors.toList());
+
+          assertEquals(expected, index.withAmenities(sackMeal, takeOutMeal, diningCam));
+        }
+      }
+    }
+  }
+
+  @Test
+  void test_with_amenities_follows_puts_and_removes() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(
+        commons("a", true, false, false), commons("b", true, true, false)));
+    assertEquals(List.of("a", "b"), codes(index.withAmenities(true, null, null)));
+
+    index.remove(List.of("a"));
+    index.put(commons("b", false, true, false));
+    index.put(commons("c", true, false, true));
+
+    assertEquals(List.of("c"), codes(index.withAmenities(true, null, null)));
+    assertEquals(List.of("b"), codes(index.withAmenities(false, true, false)));
+    assertEquals(List.of("b", "c"), codes(index.withAmenities(null, null, null)));
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  private static List<String> codes(List<UCSBDiningCommons> commons) {
+    return commons.stream().map(UCSBDiningCommons::getCode).collect(Collectors.toList());
+  }
+
+  @Test
+  void test_bad_arguments_are_rejected() {
+    assertThrows(BadRequestException.class, () -> index.nearest(91, 0, 1));
+    assertThrows(BadRequestException.class, () -> index.nearest(0, -181, 1));
+    assertThrows(BadRequestException.class, () -> index.nearest(0, 0, 0));
+    assertThrows(BadRequestException.class, () -> index.nearest(Double.NaN, 0, 1));
+    BadRequestException e = assertThrows(BadRequestException.class, () -> index.within(1, 0, 0, 1));
+    assertEquals("south must not be above north, nor west east of east", e.getMessage());
+  }
+
+  @Test
+  void test_distance_outside_is_a_lower_bound() {
+    Random random = new Random(7);
+    for (int i = 0; i < 10000; i++) {
+      double latitude = (random.nextDouble() - 0.5) * 179;
+      int ring = random.nextInt(200);
+      double degrees = (ring + random.nextDouble() * 5) * UCSBDiningCommonsIndex.CELL_DEGREES;
+      double bound = UCSBDiningCommonsIndex.distanceOutside(latitude, ring);
+      double other = Math.max(-90, Math.min(90, latitude + (random.nextDouble() - 0.5) * 2 * degrees));
+      // a point at least ring cells away in longitude, at a nearby latitude
+      double distance = UCSBDiningCommonsIndex.distanceMeters(latitude, 0, other, degrees);
+      if (Math.abs(other - latitude) < ring * UCSBDiningCommonsIndex.CELL_DEGREES) {
+        assertEquals(true, distance >= bound - 1e-6, "lat %f ring %d".formatted(latitude, ring));
+      }
+    }
+  }
+}
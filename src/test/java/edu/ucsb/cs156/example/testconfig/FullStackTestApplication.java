@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.testconfig;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.ComponentScan.Filter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+
+/**
+ * The whole application, for tests that need real repositories and a real
+ * database (e.g. the load test and the query budget tests): every bean of
+ * {@link ExampleApplication}, except that the logged in user comes from
+ * {@link MockCurrentUserServiceImpl} instead of a Google login.
+ */
+@Configuration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackages = "edu.ucsb.cs156.example")
+@ComponentScan(basePackages = "edu.ucsb.cs156.example", excludeFilters = {
+    @Filter(type = FilterType.CUSTOM, classes = { TypeExcludeFilter.class, AutoConfigurationExcludeFilter.class }),
+    @Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ExampleApplication.class),
+    @Filter(type = FilterType.REGEX, pattern = "edu\\.ucsb\\.cs156\\.example\\.services\\.CurrentUserServiceImpl"),
+    @Filter(type = FilterType.REGEX, pattern = "edu\\.ucsb\\.cs156\\.example\\.benchmarks\\..*") })
+@Import(FullStackTestApplication.BasicAuthSecurityConfig.class)
+public class FullStackTestApplication {
+
+  /**
+   * Lets an HTTP client authenticate to /api with HTTP basic auth as
+   * "user" or "admin" (password "password"), ahead of the OAuth login chain
+   * in SecurityConfig.  The mock current user service turns these into the
+   * same users that @WithMockUser gives the controller tests.
+   *
+   * Imported rather than annotated @Configuration, so that the @WebMvcTest
+   * slices (which pick up every scanned WebSecurityConfigurer) never see it.
+   */
+  @Order(1)
+  public static class BasicAuthSecurityConfig extends WebSecurityConfigurerAdapter {
+
+    // a plain text password: with the default encoder, the first login
+    // re-hashes it with bcrypt, and every request after that would pay for
+    // a bcrypt check
+    @Override
+    @SuppressWarnings("deprecation")
+    protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+      auth.inMemoryAuthentication()
+          .passwordEncoder(NoOpPasswordEncoder.getInstance())
+          .withUser("user").password("password").roles("USER").and()
+          .withUser("admin").password("password").roles("USER", "ADMIN");
+    }
+
+    @Override
+    protected void configure(HttpSecurity http) throws Exception {
+      http.antMatcher("/api/**")
+          .authorizeRequests(authorize -> authorize.anyRequest().authenticated())
+          .httpBasic()
+          .and()
+          .csrf(csrf -> csrf.disable())
+          .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+    }
+  }
+}